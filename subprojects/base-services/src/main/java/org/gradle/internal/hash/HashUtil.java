@@ -19,10 +19,19 @@ import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.UncheckedException;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public class HashUtil {
+    /**
+     * The size in bytes above which files are hashed by memory mapping them, rather than reading them through a heap buffer.
+     * Memory mapped hashing is disabled when this property is not set.
+     */
+    public static final String MAPPED_HASH_THRESHOLD_PROPERTY = "org.gradle.hash.mapped.threshold";
+    private static final long MAPPED_HASH_THRESHOLD = Long.getLong(MAPPED_HASH_THRESHOLD_PROPERTY, -1);
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+
     public static HashValue createHash(String scriptText, String algorithm) {
         MessageDigest messageDigest = createMessageDigest(algorithm);
         messageDigest.update(scriptText.getBytes());
@@ -30,7 +39,14 @@ public class HashUtil {
     }
 
     public static HashValue createHash(File file, String algorithm) {
+        return createHash(file, algorithm, MAPPED_HASH_THRESHOLD);
+    }
+
+    static HashValue createHash(File file, String algorithm, long mappedHashThreshold) {
         try {
+            if (mappedHashThreshold >= 0 && file.length() >= mappedHashThreshold) {
+                return createMappedHash(file, algorithm);
+            }
             return createHash(new FileInputStream(file), algorithm);
         } catch (UncheckedIOException e) {
             // Catch any unchecked io exceptions and add the file path for troubleshooting
@@ -62,6 +78,28 @@ public class HashUtil {
         return new HashValue(messageDigest.digest());
     }
 
+    /**
+     * Hashes the file by feeding memory mapped regions of it to the digest, which avoids copying the file content into heap buffers.
+     */
+    private static HashValue createMappedHash(File file, String algorithm) throws FileNotFoundException {
+        MessageDigest messageDigest = createMessageDigest(algorithm);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                long size = channel.size();
+                for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+                    messageDigest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position)));
+                }
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new HashValue(messageDigest.digest());
+    }
+
     private static MessageDigest createMessageDigest(String algorithm) {
         try {
             return MessageDigest.getInstance(algorithm);
@@ -43,6 +43,18 @@ class HashUtilTest extends Specification {
         file?.delete()
     }
 
+    def "createHash from File returns same hash when file is memory mapped" () {
+        setup:
+        File file = File.createTempFile("HashUtilTest", null)
+        file << stringToHash
+
+        expect:
+        HashUtil.createHash(file, "MD5", 0).asHexString() == md5HashString
+
+        cleanup:
+        file?.delete()
+    }
+
     @Issue("https://issues.gradle.org/browse/GRADLE-2967")
     def "createHash from File adds filename to UncheckedIOException" () {
         setup:
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Task;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
+import org.gradle.internal.Factory;
+import org.gradle.internal.serialize.LongSerializer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CacheBackedTaskDurationHistory implements TaskDurationHistory {
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final PersistentIndexedCache<String, Long> durationCache;
+
+    public CacheBackedTaskDurationHistory(TaskArtifactStateCacheAccess cacheAccess) {
+        this.cacheAccess = cacheAccess;
+        durationCache = cacheAccess.createCache("taskDurations", String.class, new LongSerializer());
+    }
+
+    public Map<Task, Long> getPreviousDurations(final Collection<? extends Task> tasks) {
+        return cacheAccess.useCache("Load task durations", new Factory<Map<Task, Long>>() {
+            public Map<Task, Long> create() {
+                Map<Task, Long> durations = new HashMap<Task, Long>();
+                for (Task task : tasks) {
+                    Long duration = durationCache.get(task.getPath());
+                    if (duration != null) {
+                        durations.put(task, duration);
+                    }
+                }
+                return durations;
+            }
+        });
+    }
+
+    public void recordDurations(final Map<? extends Task, Long> durations) {
+        if (durations.isEmpty()) {
+            return;
+        }
+        cacheAccess.useCache("Store task durations", new Runnable() {
+            public void run() {
+                for (Map.Entry<? extends Task, Long> entry : durations.entrySet()) {
+                    durationCache.put(entry.getKey().getPath(), entry.getValue());
+                }
+            }
+        });
+    }
+}
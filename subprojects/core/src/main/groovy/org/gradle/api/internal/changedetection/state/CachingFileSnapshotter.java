@@ -33,8 +33,15 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
     private final StringInterner stringInterner;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store, StringInterner stringInterner) {
+        this(hasher, "fileHashes", store, stringInterner);
+    }
+
+    /**
+     * @param cacheName The name of the cache to store hashes in. Hashes calculated by different {@link Hasher} implementations must be stored in different caches.
+     */
+    public CachingFileSnapshotter(Hasher hasher, String cacheName, PersistentStore store, StringInterner stringInterner) {
         this.hasher = hasher;
-        this.cache = store.createCache("fileHashes", String.class, serializer);
+        this.cache = store.createCache(cacheName, String.class, serializer);
         this.stringInterner = stringInterner;
     }
 
@@ -46,23 +53,54 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
         return snapshot(new FileTreeElementAccessor(file));
     }
 
-    private FileInfo snapshot(FileWithMetadata fileWithMetadata) {
-        File file = fileWithMetadata.getFile();
-        String absolutePath = file.getAbsolutePath();
-        FileInfo info = cache.get(absolutePath);
+    /**
+     * Returns the cached snapshot of the given file, or null when there is no cached snapshot or the file has changed since it was taken.
+     * Must be called while holding the cache lock.
+     */
+    public FileInfo getCachedSnapshot(FileTreeElement file) {
+        return getCachedSnapshot(new FileTreeElementAccessor(file));
+    }
 
-        long length = fileWithMetadata.getSize();
-        long timestamp = fileWithMetadata.getLastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+    /**
+     * Hashes the given file without accessing the cache. Can be called concurrently from any thread.
+     */
+    public FileInfo hash(FileTreeElement file) {
+        return hash(new FileTreeElementAccessor(file));
+    }
+
+    /**
+     * Stores a snapshot of the given file, as calculated by {@link #hash(FileTreeElement)}. Must be called while holding the cache lock.
+     */
+    public void cacheSnapshot(FileTreeElement file, FileInfo info) {
+        cache.put(stringInterner.intern(file.getFile().getAbsolutePath()), info);
+    }
+
+    private FileInfo snapshot(FileWithMetadata fileWithMetadata) {
+        FileInfo info = getCachedSnapshot(fileWithMetadata);
+        if (info != null) {
             return info;
         }
 
-        byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
+        info = hash(fileWithMetadata);
+        cache.put(stringInterner.intern(fileWithMetadata.getFile().getAbsolutePath()), info);
         return info;
     }
 
+    private FileInfo getCachedSnapshot(FileWithMetadata fileWithMetadata) {
+        FileInfo info = cache.get(fileWithMetadata.getFile().getAbsolutePath());
+        if (info != null && fileWithMetadata.getSize() == info.length && fileWithMetadata.getLastModified() == info.timestamp) {
+            return info;
+        }
+        return null;
+    }
+
+    private FileInfo hash(FileWithMetadata fileWithMetadata) {
+        long length = fileWithMetadata.getSize();
+        long timestamp = fileWithMetadata.getLastModified();
+        byte[] hash = hasher.hash(fileWithMetadata.getFile());
+        return new FileInfo(hash, length, timestamp);
+    }
+
     private interface FileWithMetadata {
         File getFile();
 
@@ -131,6 +169,14 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
         public byte[] getHash() {
             return hash;
         }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
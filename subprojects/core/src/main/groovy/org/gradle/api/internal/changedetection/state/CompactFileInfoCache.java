@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheStats;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * An in-memory cache of {@link CachingFileSnapshotter.FileInfo} values keyed by absolute path, which packs the hashes and file metadata into primitive arrays
+ * instead of keeping several objects per entry. Each path is stored as the id of its directory, which is shared by all entries in the directory, and its file
+ * name. Entries are stored in an open addressing table that grows as required, and are evicted using the clock algorithm once the cache is full.
+ *
+ * <p>Only hashes of {@link #HASH_LENGTH} bytes are cached. Any other value put into the cache removes the entry for the key.</p>
+ */
+class CompactFileInfoCache extends AbstractCache<Object, Object> {
+    static final int HASH_LENGTH = 16;
+    private static final int MIN_CAPACITY = 1024;
+    // Must be a power of 2
+    private static final int RECENT_VALUES = 4096;
+
+    private final int maxSize;
+    private final int maxCapacity;
+    private final DirectoryTable directories = new DirectoryTable();
+    // The values last returned or put, by slot, so that a hit on a recently used entry does not create a new value
+    private final int[] recentSlots = new int[RECENT_VALUES];
+    private final CachingFileSnapshotter.FileInfo[] recentValues = new CachingFileSnapshotter.FileInfo[RECENT_VALUES];
+    private int capacity;
+    private int[] pathHashes;
+    private int[] directoryIds;
+    private String[] names;
+    private long[] lengths;
+    private long[] timestamps;
+    private byte[] hashes;
+    private BitSet referenced;
+    private int size;
+    private int clockHand;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    CompactFileInfoCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        // Keep the load factor at or below 0.75 when full
+        this.maxCapacity = Math.max(MIN_CAPACITY, (int) Math.min(Integer.MAX_VALUE / HASH_LENGTH, (long) this.maxSize * 4 / 3 + 1));
+        allocate(Math.min(MIN_CAPACITY, maxCapacity));
+    }
+
+    @Override
+    public synchronized Object getIfPresent(Object key) {
+        int slot = find((String) key);
+        if (names[slot] == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        referenced.set(slot);
+        int recent = slot & (RECENT_VALUES - 1);
+        if (recentSlots[recent] != slot) {
+            byte[] hash = Arrays.copyOfRange(hashes, slot * HASH_LENGTH, (slot + 1) * HASH_LENGTH);
+            recentSlots[recent] = slot;
+            recentValues[recent] = new CachingFileSnapshotter.FileInfo(hash, lengths[slot], timestamps[slot]);
+        }
+        return recentValues[recent];
+    }
+
+    @Override
+    public synchronized void put(Object key, Object value) {
+        String path = (String) key;
+        if (!(value instanceof CachingFileSnapshotter.FileInfo) || ((CachingFileSnapshotter.FileInfo) value).getHash().length != HASH_LENGTH) {
+            invalidate(path);
+            return;
+        }
+        int slot = find(path);
+        if (names[slot] == null) {
+            if (size >= maxSize) {
+                evict();
+            } else if (size + 1 > capacity / 4 * 3 && capacity < maxCapacity) {
+                allocate((int) Math.min((long) capacity * 2, maxCapacity));
+            }
+            slot = find(path);
+            int nameStart = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar)) + 1;
+            pathHashes[slot] = path.hashCode();
+            directoryIds[slot] = directories.add(path.substring(0, nameStart));
+            names[slot] = path.substring(nameStart);
+            size++;
+        }
+        CachingFileSnapshotter.FileInfo fileInfo = (CachingFileSnapshotter.FileInfo) value;
+        lengths[slot] = fileInfo.getLength();
+        timestamps[slot] = fileInfo.getTimestamp();
+        System.arraycopy(fileInfo.getHash(), 0, hashes, slot * HASH_LENGTH, HASH_LENGTH);
+        referenced.set(slot);
+        int recent = slot & (RECENT_VALUES - 1);
+        recentSlots[recent] = slot;
+        recentValues[recent] = fileInfo;
+    }
+
+    @Override
+    public synchronized void invalidate(Object key) {
+        int slot = find((String) key);
+        if (names[slot] != null) {
+            delete(slot);
+        }
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        size = 0;
+        directories.clear();
+        allocate(Math.min(MIN_CAPACITY, maxCapacity));
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hitCount, missCount, 0, 0, 0, evictionCount);
+    }
+
+    /**
+     * Returns the slot that contains the given path, or the empty slot where it would be inserted.
+     */
+    private int find(String path) {
+        int hash = path.hashCode();
+        int slot = slotFor(hash);
+        while (names[slot] != null && !(pathHashes[slot] == hash && matches(slot, path))) {
+            slot = next(slot);
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot, String path) {
+        String directory = directories.get(directoryIds[slot]);
+        String name = names[slot];
+        return path.length() == directory.length() + name.length() && path.startsWith(directory) && path.endsWith(name);
+    }
+
+    private int slotFor(int hash) {
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % capacity;
+    }
+
+    private int next(int slot) {
+        return slot + 1 == capacity ? 0 : slot + 1;
+    }
+
+    private void evict() {
+        while (true) {
+            if (clockHand >= capacity) {
+                clockHand = 0;
+            }
+            int slot = clockHand++;
+            if (names[slot] == null) {
+                continue;
+            }
+            if (referenced.get(slot)) {
+                referenced.clear(slot);
+                continue;
+            }
+            delete(slot);
+            evictionCount++;
+            return;
+        }
+    }
+
+    /**
+     * Removes the entry in the given slot, moving later entries of the same probe sequence back to fill the gap.
+     */
+    private void delete(int slot) {
+        directories.release(directoryIds[slot]);
+        int empty = slot;
+        int current = slot;
+        while (true) {
+            current = next(current);
+            if (names[current] == null) {
+                break;
+            }
+            int home = slotFor(pathHashes[current]);
+            boolean stays = empty <= current ? empty < home && home <= current : empty < home || home <= current;
+            if (!stays) {
+                move(current, empty);
+                empty = current;
+            }
+        }
+        names[empty] = null;
+        referenced.clear(empty);
+        forgetRecentValue(empty);
+        size--;
+    }
+
+    private void move(int from, int to) {
+        pathHashes[to] = pathHashes[from];
+        directoryIds[to] = directoryIds[from];
+        names[to] = names[from];
+        lengths[to] = lengths[from];
+        timestamps[to] = timestamps[from];
+        System.arraycopy(hashes, from * HASH_LENGTH, hashes, to * HASH_LENGTH, HASH_LENGTH);
+        referenced.set(to, referenced.get(from));
+        forgetRecentValue(to);
+    }
+
+    private void forgetRecentValue(int slot) {
+        int recent = slot & (RECENT_VALUES - 1);
+        if (recentSlots[recent] == slot) {
+            recentSlots[recent] = -1;
+            recentValues[recent] = null;
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        int[] oldPathHashes = pathHashes;
+        int[] oldDirectoryIds = directoryIds;
+        String[] oldNames = names;
+        long[] oldLengths = lengths;
+        long[] oldTimestamps = timestamps;
+        byte[] oldHashes = hashes;
+        BitSet oldReferenced = referenced;
+
+        capacity = newCapacity;
+        pathHashes = new int[newCapacity];
+        directoryIds = new int[newCapacity];
+        names = new String[newCapacity];
+        lengths = new long[newCapacity];
+        timestamps = new long[newCapacity];
+        hashes = new byte[newCapacity * HASH_LENGTH];
+        referenced = new BitSet(newCapacity);
+        Arrays.fill(recentSlots, -1);
+        Arrays.fill(recentValues, null);
+        clockHand = 0;
+
+        if (oldNames == null || size == 0) {
+            return;
+        }
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = slotFor(oldPathHashes[i]);
+                while (names[slot] != null) {
+                    slot = next(slot);
+                }
+                pathHashes[slot] = oldPathHashes[i];
+                directoryIds[slot] = oldDirectoryIds[i];
+                names[slot] = oldNames[i];
+                lengths[slot] = oldLengths[i];
+                timestamps[slot] = oldTimestamps[i];
+                System.arraycopy(oldHashes, i * HASH_LENGTH, hashes, slot * HASH_LENGTH, HASH_LENGTH);
+                referenced.set(slot, oldReferenced.get(i));
+            }
+        }
+    }
+
+    /**
+     * Assigns ids to the directories of the cached paths, and releases the id of a directory once no entry refers to it.
+     */
+    private static class DirectoryTable {
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+        private final Deque<Integer> freeIds = new ArrayDeque<Integer>();
+        private String[] directories = new String[64];
+        private int[] references = new int[64];
+        private int nextId;
+
+        int add(String directory) {
+            Integer id = ids.get(directory);
+            if (id == null) {
+                id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+                if (id == directories.length) {
+                    directories = Arrays.copyOf(directories, id * 2);
+                    references = Arrays.copyOf(references, id * 2);
+                }
+                directories[id] = directory;
+                ids.put(directory, id);
+            }
+            references[id]++;
+            return id;
+        }
+
+        String get(int id) {
+            return directories[id];
+        }
+
+        void release(int id) {
+            if (--references[id] == 0) {
+                ids.remove(directories[id]);
+                directories[id] = null;
+                freeIds.push(id);
+            }
+        }
+
+        void clear() {
+            ids.clear();
+            freeIds.clear();
+            Arrays.fill(directories, null);
+            Arrays.fill(references, 0);
+            nextId = 0;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
@@ -35,11 +36,24 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     private final FileTreeElementSnapshotter snapshotter;
     private TaskArtifactStateCacheAccess cacheAccess;
     private final StringInterner stringInterner;
+    private final ParallelFileSnapshotter parallelSnapshotter;
+    private final VirtualFileSystem virtualFileSystem;
 
     public DefaultFileCollectionSnapshotter(FileTreeElementSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+        this(snapshotter, cacheAccess, stringInterner, null);
+    }
+
+    public DefaultFileCollectionSnapshotter(FileTreeElementSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, @Nullable ParallelFileSnapshotter parallelSnapshotter) {
+        this(snapshotter, cacheAccess, stringInterner, parallelSnapshotter, null);
+    }
+
+    public DefaultFileCollectionSnapshotter(FileTreeElementSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, @Nullable ParallelFileSnapshotter parallelSnapshotter,
+                                            @Nullable VirtualFileSystem virtualFileSystem) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
         this.stringInterner = stringInterner;
+        this.parallelSnapshotter = parallelSnapshotter;
+        this.virtualFileSystem = virtualFileSystem;
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
@@ -51,12 +65,25 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     public FileCollectionSnapshot snapshot(final FileCollection input) {
-        final List<FileVisitDetails> allFileVisitDetails = visitFiles(input);
+        List<FileTreeInternal> fileTrees = resolveAsFileTrees(input);
+        if (virtualFileSystem != null) {
+            return new FileCollectionSnapshotImpl(snapshotUsingVirtualFileSystem(fileTrees));
+        }
+
+        final List<FileVisitDetails> allFileVisitDetails = visitFiles(fileTrees);
 
         if (allFileVisitDetails.isEmpty()) {
             return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
         }
 
+        return new FileCollectionSnapshotImpl(snapshotFiles(allFileVisitDetails));
+    }
+
+    private Map<String, IncrementalFileSnapshot> snapshotFiles(final List<FileVisitDetails> allFileVisitDetails) {
+        if (parallelSnapshotter != null) {
+            return snapshotInParallel(allFileVisitDetails);
+        }
+
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
 
         cacheAccess.useCache("Create file snapshot", new Runnable() {
@@ -74,15 +101,68 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
             }
         });
 
-        return new FileCollectionSnapshotImpl(snapshots);
+        return snapshots;
     }
 
-    private List<FileVisitDetails> visitFiles(FileCollection input) {
-        final List<FileVisitDetails> allFileVisitDetails = new LinkedList<FileVisitDetails>();
+    private Map<String, IncrementalFileSnapshot> snapshotUsingVirtualFileSystem(List<FileTreeInternal> fileTrees) {
+        Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        List<FileTreeInternal> otherTrees = new ArrayList<FileTreeInternal>();
+        for (FileTreeInternal fileTree : fileTrees) {
+            DirectoryFileTree directoryTree = unwrapDirectoryTree(fileTree);
+            if (directoryTree == null || !virtualFileSystem.canKeep(directoryTree)) {
+                otherTrees.add(fileTree);
+                continue;
+            }
+            Map<String, IncrementalFileSnapshot> treeSnapshots = virtualFileSystem.getSnapshots(directoryTree);
+            if (treeSnapshots == null) {
+                // Start watching before walking the tree, so that no change made during the walk goes unnoticed
+                long version = virtualFileSystem.startWatching(directoryTree.getDir());
+                treeSnapshots = snapshotFiles(visitFiles(Collections.singletonList(fileTree)));
+                if (version >= 0) {
+                    virtualFileSystem.putSnapshots(directoryTree, version, treeSnapshots);
+                }
+            }
+            snapshots.putAll(treeSnapshots);
+        }
+        if (!otherTrees.isEmpty()) {
+            snapshots.putAll(snapshotFiles(visitFiles(otherTrees)));
+        }
+        return snapshots;
+    }
+
+    private Map<String, IncrementalFileSnapshot> snapshotInParallel(List<FileVisitDetails> allFileVisitDetails) {
+        Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        List<String> filePaths = new ArrayList<String>();
+        List<FileVisitDetails> files = new ArrayList<FileVisitDetails>();
+        for (FileVisitDetails fileDetails : allFileVisitDetails) {
+            String absolutePath = stringInterner.intern(fileDetails.getFile().getAbsolutePath());
+            if (!snapshots.containsKey(absolutePath)) {
+                if (fileDetails.isDirectory()) {
+                    snapshots.put(absolutePath, new DirSnapshot());
+                } else {
+                    // Reserve the entry, so that duplicates are hashed once only
+                    snapshots.put(absolutePath, null);
+                    filePaths.add(absolutePath);
+                    files.add(fileDetails);
+                }
+            }
+        }
+
+        List<FileSnapshot> fileSnapshots = parallelSnapshotter.snapshot(files);
+        for (int i = 0; i < filePaths.size(); i++) {
+            snapshots.put(filePaths.get(i), new FileHashSnapshot(fileSnapshots.get(i).getHash()));
+        }
+        return snapshots;
+    }
 
+    private static List<FileTreeInternal> resolveAsFileTrees(FileCollection input) {
         DefaultFileCollectionResolveContext context = new DefaultFileCollectionResolveContext();
         context.add(input);
-        List<FileTreeInternal> fileTrees = context.resolveAsFileTrees();
+        return context.resolveAsFileTrees();
+    }
+
+    private List<FileVisitDetails> visitFiles(List<FileTreeInternal> fileTrees) {
+        final List<FileVisitDetails> allFileVisitDetails = new LinkedList<FileVisitDetails>();
 
         for (FileTreeInternal fileTree : fileTrees) {
             Set<File> fileTreeSourceFiles = unwrapFileTreeSourceFilesIfAvailable(fileTree);
@@ -107,6 +187,14 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         return allFileVisitDetails;
     }
 
+    @Nullable
+    private static DirectoryFileTree unwrapDirectoryTree(FileTreeInternal fileTree) {
+        if (fileTree instanceof FileTreeAdapter && ((FileTreeAdapter) fileTree).getTree() instanceof DirectoryFileTree) {
+            return (DirectoryFileTree) ((FileTreeAdapter) fileTree).getTree();
+        }
+        return null;
+    }
+
     private Set<File> unwrapFileTreeSourceFilesIfAvailable(Object fileTree) {
         if (fileTree instanceof FileTreeWithSourceFile) {
             File sourceFile = ((FileTreeWithSourceFile) fileTree).getSourceFile();
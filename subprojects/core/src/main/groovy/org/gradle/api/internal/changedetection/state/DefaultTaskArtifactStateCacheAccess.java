@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
@@ -26,12 +28,29 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
+import java.util.Set;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    /**
+     * A comma separated list of the names of the caches to access through memory mapped regions, for example {@code taskArtifacts,fileSnapshots}.
+     */
+    public static final String MAPPED_CACHES_PROPERTY = "org.gradle.cache.mapped";
+    /**
+     * A comma separated list of the names of the caches to store as append-only logs, for example {@code fileHashes,fileSnapshots}.
+     */
+    public static final String LOG_STRUCTURED_CACHES_PROPERTY = "org.gradle.cache.logstructured";
+    /**
+     * A comma separated list of the names of the caches whose puts are held in memory and written in one pass, for example {@code fileHashes}.
+     */
+    public static final String WRITE_BEHIND_CACHES_PROPERTY = "org.gradle.cache.writebehind";
+
     private final CacheDecorator inMemoryDecorator;
     private final PersistentCache cache;
+    private final Set<String> mappedCaches = ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(System.getProperty(MAPPED_CACHES_PROPERTY, "")));
+    private final Set<String> logStructuredCaches = ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(System.getProperty(LOG_STRUCTURED_CACHES_PROPERTY, "")));
+    private final Set<String> writeBehindCaches = ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(System.getProperty(WRITE_BEHIND_CACHES_PROPERTY, "")));
 
     public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator) {
         this.inMemoryDecorator = decorator;
@@ -48,7 +67,10 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Serializer<V> valueSerializer) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryDecorator);
+                .cacheDecorator(inMemoryDecorator)
+                .memoryMapped(mappedCaches.contains(cacheName))
+                .logStructured(logStructuredCaches.contains(cacheName))
+                .writeBehind(writeBehindCaches.contains(cacheName));
         return cache.createCache(parameters);
     }
 
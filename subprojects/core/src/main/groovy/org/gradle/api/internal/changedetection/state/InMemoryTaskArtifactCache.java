@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.cache.*;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -26,12 +27,26 @@ import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
 
 import java.io.File;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class InMemoryTaskArtifactCache implements CacheDecorator {
+    public static final String COMPACT_FILE_HASHES_PROPERTY = "org.gradle.filehash.compact";
+
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
     private static final Map<String, Integer> CACHE_CAPS = new CacheCapSizer().calculateCaps();
+    private static final Set<String> FILE_HASH_CACHES = new HashSet<String>();
+    // An entry of the compact file hash cache takes less than half the heap of a regular cache entry: about 160 bytes instead of 440 bytes for a path of
+    // 120 characters in a directory of 25 cached files
+    private static final int COMPACT_CAP_MULTIPLIER = 2;
+
+    static {
+        for (FileHashAlgorithm algorithm : FileHashAlgorithm.values()) {
+            FILE_HASH_CACHES.add(algorithm.getCacheName());
+        }
+    }
 
     static class CacheCapSizer {
         private static final Map<String, Integer> DEFAULT_CAP_SIZES = new HashMap<String, Integer>();
@@ -44,8 +59,10 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
         static {
             DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
             DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
+            DEFAULT_CAP_SIZES.put("taskDurations", 2000);
             DEFAULT_CAP_SIZES.put("outputFileStates", 3000);
             DEFAULT_CAP_SIZES.put("fileHashes", 400000);
+            DEFAULT_CAP_SIZES.put("fileHashes-murmur3", 400000);
             DEFAULT_CAP_SIZES.put("compilationState", 1000);
         }
 
@@ -88,6 +105,15 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             .build();
 
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    private final boolean compactFileHashes;
+
+    public InMemoryTaskArtifactCache(boolean compactFileHashes) {
+        this.compactFileHashes = compactFileHashes;
+    }
+
+    public InMemoryTaskArtifactCache() {
+        this(Boolean.getBoolean(COMPACT_FILE_HASHES_PROPERTY));
+    }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
         final Cache<Object, Object> data = loadData(cacheId, cacheName);
@@ -151,10 +177,16 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             } else {
                 Integer maxSize = CACHE_CAPS.get(cacheName);
                 assert maxSize != null : "Unknown cache.";
-                LOG.info("Creating In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
-                LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-                theData = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener).build();
-                evictionListener.setCache(theData);
+                if (compactFileHashes && FILE_HASH_CACHES.contains(cacheName)) {
+                    maxSize *= COMPACT_CAP_MULTIPLIER;
+                    LOG.info("Creating compact In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
+                    theData = new CompactFileInfoCache(maxSize);
+                } else {
+                    LOG.info("Creating In-memory cache of {}: MaxSize{{}}", cacheId, maxSize);
+                    LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
+                    theData = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener).build();
+                    evictionListener.setCache(theData);
+                }
                 this.cache.put(cacheId, theData);
             }
         }
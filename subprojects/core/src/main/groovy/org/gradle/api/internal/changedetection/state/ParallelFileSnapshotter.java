@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Snapshots a batch of files, hashing the files whose cached snapshot is out of date on a bounded pool of worker threads.
+ *
+ * <p>The cached snapshots are read, and the new snapshots written back, in one pass each on the calling thread while holding the cache lock.
+ * The cache lock is not held while hashing, so other threads can use the task history cache in the meantime.</p>
+ */
+public class ParallelFileSnapshotter implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.snapshot.parallel";
+
+    /**
+     * The smallest number of files to hash on the worker pool. Smaller batches are hashed on the calling thread.
+     */
+    static final int MIN_PARALLEL_FILES = 32;
+
+    private final CachingFileSnapshotter snapshotter;
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
+    private StoppableExecutor executor;
+
+    public ParallelFileSnapshotter(CachingFileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, int maxThreads) {
+        this.snapshotter = snapshotter;
+        this.cacheAccess = cacheAccess;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns the snapshots of the given files, in the same order as the files.
+     */
+    public List<FileSnapshot> snapshot(final List<? extends FileTreeElement> files) {
+        final FileSnapshot[] snapshots = new FileSnapshot[files.size()];
+        final List<Integer> staleFiles = new ArrayList<Integer>();
+
+        cacheAccess.useCache("Read file snapshots", new Runnable() {
+            public void run() {
+                for (int i = 0; i < snapshots.length; i++) {
+                    FileSnapshot snapshot = snapshotter.getCachedSnapshot(files.get(i));
+                    if (snapshot == null) {
+                        staleFiles.add(i);
+                    } else {
+                        snapshots[i] = snapshot;
+                    }
+                }
+            }
+        });
+
+        if (staleFiles.isEmpty()) {
+            return Arrays.asList(snapshots);
+        }
+
+        final CachingFileSnapshotter.FileInfo[] hashes = new CachingFileSnapshotter.FileInfo[staleFiles.size()];
+        if (staleFiles.size() < MIN_PARALLEL_FILES || maxThreads <= 1) {
+            hash(files, staleFiles, 0, hashes);
+        } else {
+            hashInParallel(files, staleFiles, hashes);
+        }
+
+        cacheAccess.useCache("Write file snapshots", new Runnable() {
+            public void run() {
+                for (int i = 0; i < hashes.length; i++) {
+                    int index = staleFiles.get(i);
+                    snapshotter.cacheSnapshot(files.get(index), hashes[i]);
+                    snapshots[index] = hashes[i];
+                }
+            }
+        });
+
+        return Arrays.asList(snapshots);
+    }
+
+    private void hashInParallel(final List<? extends FileTreeElement> files, List<Integer> staleFiles, final CachingFileSnapshotter.FileInfo[] hashes) {
+        // Use a few batches per thread, so that a batch of large files does not hold up the others
+        int batchSize = Math.max(1, staleFiles.size() / (maxThreads * 4));
+        StoppableExecutor executor = getExecutor();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        int offset = 0;
+        for (final List<Integer> batch : Lists.partition(staleFiles, batchSize)) {
+            final int batchOffset = offset;
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() {
+                    hash(files, batch, batchOffset, hashes);
+                    return null;
+                }
+            }));
+            offset += batch.size();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+    }
+
+    private void hash(List<? extends FileTreeElement> files, List<Integer> indices, int offset, CachingFileSnapshotter.FileInfo[] hashes) {
+        for (int i = 0; i < indices.size(); i++) {
+            hashes[offset + i] = snapshotter.hash(files.get(indices.get(i)));
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("file hashing", maxThreads);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
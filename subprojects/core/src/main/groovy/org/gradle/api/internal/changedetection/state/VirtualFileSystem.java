@@ -0,0 +1,272 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskActionListener;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+
+import java.io.File;
+import java.util.*;
+
+import static org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotter.IncrementalFileSnapshot;
+
+/**
+ * A daemon wide, in-memory mirror of the snapshots of the directory trees used as task inputs and outputs. The directories are watched for changes,
+ * and the snapshot of a tree is discarded as soon as anything in the tree changes. Until then, snapshotting the tree again is a memory lookup,
+ * rather than a walk of the tree and a stat of every file.
+ *
+ * <p>Relies on the watch events arriving before the next build looks at the tree. Changes made by a task to its declared outputs are
+ * applied straight away, as the events for these changes will only arrive later.</p>
+ *
+ * <p>Only trees that are unfiltered or filtered by include and exclude patterns are kept, keyed by the patterns. Trees filtered by specs or closures
+ * are not kept, as these may refer to the classes of a build script and would keep them from being garbage collected.</p>
+ *
+ * <p>Each watcher holds operating system resources, so the number of watchers is bounded. When the limit is reached, all trees are
+ * discarded and a single watcher is started for all of the directories.</p>
+ */
+public class VirtualFileSystem implements TaskActionListener, Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.vfs.watch";
+    static final int MAX_WATCHERS = 16;
+    static final int MAX_ROOTS = 1000;
+    static final int MAX_TREES_PER_ROOT = 4;
+    private static final Logger LOGGER = Logging.getLogger(VirtualFileSystem.class);
+
+    private final FileWatcherFactory watcherFactory;
+    private final Map<String, Root> roots = new HashMap<String, Root>();
+    private final List<FileWatcher> watchers = new ArrayList<FileWatcher>();
+    private long lastVersion;
+    private boolean disabled;
+
+    public VirtualFileSystem(FileWatcherFactory watcherFactory) {
+        this.watcherFactory = watcherFactory;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns true when the snapshots of the given tree can be kept.
+     */
+    boolean canKeep(DirectoryFileTree tree) {
+        return key(tree.getPatterns()) != null;
+    }
+
+    /**
+     * Returns the snapshots of the files and directories of the given tree, or null when the tree has changed since it was last snapshotted.
+     */
+    @Nullable
+    synchronized Map<String, IncrementalFileSnapshot> getSnapshots(DirectoryFileTree tree) {
+        Root root = roots.get(tree.getDir().getAbsolutePath());
+        Object key = key(tree.getPatterns());
+        if (root == null || key == null) {
+            return null;
+        }
+        Map<String, IncrementalFileSnapshot> snapshots = root.trees.get(key);
+        // The directory itself is not watched, only its contents
+        if (snapshots == null || !tree.getDir().isDirectory()) {
+            return null;
+        }
+        return snapshots;
+    }
+
+    /**
+     * Starts watching the given directory, if not already watched. Must be called before the tree is walked, and the result passed to
+     * {@link #putSnapshots(DirectoryFileTree, long, Map)} once the snapshots are calculated.
+     *
+     * @return the version of the directory, or -1 if it cannot be watched.
+     */
+    synchronized long startWatching(File dir) {
+        String path = dir.getAbsolutePath();
+        Root root = roots.get(path);
+        if (root != null) {
+            return root.version;
+        }
+        if (disabled || roots.size() >= MAX_ROOTS || !dir.isDirectory()) {
+            return -1;
+        }
+        try {
+            if (watchers.size() < MAX_WATCHERS) {
+                watchers.add(watcherFactory.watch(FileSystemSubset.builder().add(dir).build(), onError(), listener()));
+            } else {
+                // Replace all watchers with a single one. Changes made while no watcher is running are lost, so discard everything
+                CompositeStoppable.stoppable(watchers).stop();
+                watchers.clear();
+                for (Root existing : roots.values()) {
+                    invalidate(existing);
+                }
+                FileSystemSubset.Builder builder = FileSystemSubset.builder();
+                for (Root existing : roots.values()) {
+                    builder.add(existing.dir);
+                }
+                builder.add(dir);
+                watchers.add(watcherFactory.watch(builder.build(), onError(), listener()));
+            }
+        } catch (Exception e) {
+            LOGGER.info("Cannot watch {} for changes, disabling the virtual file system.", dir, e);
+            disable();
+            return -1;
+        }
+        root = new Root(dir, ++lastVersion);
+        roots.put(path, root);
+        return root.version;
+    }
+
+    /**
+     * Remembers the snapshots of the given tree, unless the tree has changed since the given version.
+     */
+    synchronized void putSnapshots(DirectoryFileTree tree, long version, Map<String, IncrementalFileSnapshot> snapshots) {
+        Root root = roots.get(tree.getDir().getAbsolutePath());
+        Object key = key(tree.getPatterns());
+        if (root == null || root.version != version || key == null) {
+            return;
+        }
+        root.trees.put(key, Collections.unmodifiableMap(snapshots));
+    }
+
+    /**
+     * Discards the snapshots of any tree that contains one of the given files, or is contained in one of them.
+     */
+    public synchronized void invalidate(Iterable<File> files) {
+        for (File file : files) {
+            String path = file.getAbsolutePath();
+            for (Root root : roots.values()) {
+                if (isSameOrAncestor(root.path, path) || isSameOrAncestor(path, root.path)) {
+                    invalidate(root);
+                }
+            }
+        }
+    }
+
+    private void invalidate(Root root) {
+        // Versions are never reused, so that snapshots taken before a directory was deleted and watched again are not kept
+        root.version = ++lastVersion;
+        root.trees.clear();
+    }
+
+    public void beforeActions(Task task) {
+    }
+
+    public void afterActions(Task task) {
+        invalidate(task.getOutputs().getFiles());
+    }
+
+    public synchronized void stop() {
+        disable();
+    }
+
+    private void disable() {
+        disabled = true;
+        roots.clear();
+        try {
+            CompositeStoppable.stoppable(watchers).stop();
+        } finally {
+            watchers.clear();
+        }
+    }
+
+    private synchronized void onChange(FileWatcherEvent event) {
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || event.getFile() == null) {
+            // Events may have been lost
+            for (Root root : roots.values()) {
+                invalidate(root);
+            }
+            return;
+        }
+        String path = event.getFile().getAbsolutePath();
+        Iterator<Root> iterator = roots.values().iterator();
+        while (iterator.hasNext()) {
+            Root root = iterator.next();
+            if (event.getType() == FileWatcherEvent.Type.DELETE && isSameOrAncestor(path, root.path)) {
+                // The watch on the directory has gone with it, so watch it again when it is next used
+                invalidate(root);
+                iterator.remove();
+            } else if (isSameOrAncestor(root.path, path)) {
+                invalidate(root);
+            }
+        }
+    }
+
+    private synchronized void onError(Throwable failure) {
+        LOGGER.info("Failed to watch for file changes, disabling the virtual file system.", failure);
+        disable();
+    }
+
+    private FileWatcherListener listener() {
+        return new FileWatcherListener() {
+            public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+                VirtualFileSystem.this.onChange(event);
+            }
+        };
+    }
+
+    private Action<Throwable> onError() {
+        return new Action<Throwable>() {
+            public void execute(Throwable throwable) {
+                onError(throwable);
+            }
+        };
+    }
+
+    /**
+     * Returns the key for the trees with the given patterns, or null when the patterns include specs.
+     */
+    @Nullable
+    private static Object key(PatternSet patterns) {
+        if (patterns.getClass() != PatternSet.class || !patterns.getIncludeSpecs().isEmpty() || !patterns.getExcludeSpecs().isEmpty()) {
+            return null;
+        }
+        // Copy the patterns, as they are mutable
+        return Arrays.asList(ImmutableSet.copyOf(patterns.getIncludes()), ImmutableSet.copyOf(patterns.getExcludes()), patterns.isCaseSensitive());
+    }
+
+    private static boolean isSameOrAncestor(String ancestor, String path) {
+        return path.startsWith(ancestor) && (path.length() == ancestor.length() || path.charAt(ancestor.length()) == File.separatorChar);
+    }
+
+    private static class Root {
+        final File dir;
+        final String path;
+        final Map<Object, Map<String, IncrementalFileSnapshot>> trees = new LinkedHashMap<Object, Map<String, IncrementalFileSnapshot>>(MAX_TREES_PER_ROOT, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Map<String, IncrementalFileSnapshot>> eldest) {
+                return size() > MAX_TREES_PER_ROOT;
+            }
+        };
+        long version;
+
+        Root(File dir, long version) {
+            this.dir = dir;
+            this.path = dir.getAbsolutePath();
+            this.version = version;
+        }
+    }
+}
@@ -175,6 +175,11 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
     }
 
     static class DefaultDirectoryWalkerFactory implements Factory<DirectoryWalker> {
+        /**
+         * When set, directories are listed concurrently using a fork/join pool on Java 7 or later.
+         */
+        public static final String PARALLEL_WALK_PROPERTY = "org.gradle.files.parallelwalk";
+
         private final JavaVersion javaVersion;
         private final ClassLoader classLoader;
         private DirectoryWalker instance;
@@ -199,8 +204,9 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
 
         private DirectoryWalker createInstance() {
             if (javaVersion.isJava7Compatible() && Charset.defaultCharset().name().equals("UTF-8")) {
+                String className = Boolean.getBoolean(PARALLEL_WALK_PROPERTY) ? "ParallelDirectoryWalker" : "Jdk7DirectoryWalker";
                 try {
-                    Class clazz = classLoader.loadClass("org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker");
+                    Class clazz = classLoader.loadClass("org.gradle.api.internal.file.collections.jdk7." + className);
                     return Cast.uncheckedCast(DirectInstantiator.instantiate(clazz));
                 } catch (ClassNotFoundException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
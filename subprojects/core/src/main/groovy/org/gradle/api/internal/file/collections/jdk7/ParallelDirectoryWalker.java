@@ -0,0 +1,239 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections.jdk7;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.file.FileVisitDetailsWithAttributes;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link DirectoryFileTree.DirectoryWalker} which lists and stats the subdirectories of a tree concurrently using a fork/join pool.
+ *
+ * <p>Only the listing happens on the pool. The visitor is called on the calling thread, in the same order as {@link DirectoryFileTree.DefaultDirectoryWalker}: the files of a directory
+ * first, then each of its subdirectories depth-first. Listings of subdirectories are started as soon as their parent has been listed, so they are usually complete by the time
+ * the visitor reaches them.</p>
+ */
+public class ParallelDirectoryWalker implements DirectoryFileTree.DirectoryWalker {
+    private static final int MAX_VISIT_DEPTH = 512;
+    private final StringInterner relativePathStringInterner = new StringInterner();
+    private final ForkJoinPool pool;
+
+    public ParallelDirectoryWalker() {
+        // Listing is mostly waiting on the file system, so use more threads than there are processors
+        this(new ForkJoinPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors())));
+    }
+
+    ParallelDirectoryWalker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void walkDir(File rootDir, RelativePath rootPath, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, FileSystem fileSystem, boolean postfix) {
+        Path root = rootDir.toPath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(root, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not list contents of directory '%s'.", rootDir), e);
+        }
+        Context context = new Context(spec, stopFlag, fileSystem);
+        ListDirectory task = new ListDirectory(context, root, rootPath, new Ancestor(attributes.fileKey(), root, null), 1);
+        pool.execute(task);
+        try {
+            visit(task, visitor, stopFlag, postfix);
+        } finally {
+            // Stop any listing still in progress, for example when the visitor failed
+            context.finished = true;
+        }
+    }
+
+    private void visit(ListDirectory task, FileVisitor visitor, AtomicBoolean stopFlag, boolean postfix) {
+        DirectoryListing listing = task.join();
+        if (listing.failure != null) {
+            // Rethrow the original exception, rather than the copy that join() would create for an exception thrown by another thread
+            throw listing.failure;
+        }
+        for (int i = 0; !stopFlag.get() && i < listing.files.size(); i++) {
+            visitor.visitFile(listing.files.get(i));
+        }
+        for (int i = 0; !stopFlag.get() && i < listing.dirs.size(); i++) {
+            FileVisitDetails dir = listing.dirs.get(i);
+            ListDirectory subTask = listing.subTasks.get(i);
+            if (postfix) {
+                if (subTask != null) {
+                    visit(subTask, visitor, stopFlag, postfix);
+                }
+                visitor.visitDir(dir);
+            } else {
+                visitor.visitDir(dir);
+                if (subTask != null) {
+                    visit(subTask, visitor, stopFlag, postfix);
+                }
+            }
+        }
+    }
+
+    private static class Context {
+        final Spec<FileTreeElement> spec;
+        final AtomicBoolean stopFlag;
+        final FileSystem fileSystem;
+        volatile boolean finished;
+
+        Context(Spec<FileTreeElement> spec, AtomicBoolean stopFlag, FileSystem fileSystem) {
+            this.spec = spec;
+            this.stopFlag = stopFlag;
+            this.fileSystem = fileSystem;
+        }
+
+        boolean isStopped() {
+            return finished || stopFlag.get();
+        }
+    }
+
+    /**
+     * The chain of directories being walked from the root, used to detect cycles through symbolic links.
+     */
+    private static class Ancestor {
+        final Object fileKey;
+        final Path path;
+        final Ancestor parent;
+
+        Ancestor(Object fileKey, Path path, Ancestor parent) {
+            this.fileKey = fileKey;
+            this.path = path;
+            this.parent = parent;
+        }
+
+        boolean contains(Object fileKey, Path path) throws IOException {
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (fileKey != null && ancestor.fileKey != null) {
+                    if (fileKey.equals(ancestor.fileKey)) {
+                        return true;
+                    }
+                } else if (Files.isSameFile(path, ancestor.path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class DirectoryListing {
+        final List<FileVisitDetails> files = new ArrayList<FileVisitDetails>();
+        final List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
+        // The listing of each directory in dirs, or null when it is not walked
+        final List<ListDirectory> subTasks = new ArrayList<ListDirectory>();
+        RuntimeException failure;
+    }
+
+    private class ListDirectory extends RecursiveTask<DirectoryListing> {
+        private final Context context;
+        private final Path dir;
+        private final RelativePath path;
+        private final Ancestor ancestor;
+        private final int depth;
+
+        ListDirectory(Context context, Path dir, RelativePath path, Ancestor ancestor, int depth) {
+            this.context = context;
+            this.dir = dir;
+            this.path = path;
+            this.ancestor = ancestor;
+            this.depth = depth;
+        }
+
+        @Override
+        protected DirectoryListing compute() {
+            DirectoryListing listing = new DirectoryListing();
+            if (context.isStopped()) {
+                return listing;
+            }
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path child : stream) {
+                        if (context.isStopped()) {
+                            break;
+                        }
+                        visitChild(child, listing);
+                    }
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                listing.failure = new GradleException(String.format("Could not read directory path '%s'.", dir), e);
+            } catch (RuntimeException e) {
+                listing.failure = e;
+            }
+            return listing;
+        }
+
+        private void visitChild(Path child, DirectoryListing listing) throws IOException {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(child, BasicFileAttributes.class);
+            } catch (IOException e) {
+                if (Files.isSymbolicLink(child)) {
+                    throw new GradleException(String.format("Could not list contents of '%s'. Couldn't follow symbolic link.", child));
+                }
+                throw new GradleException(String.format("Could not read path '%s'.", child), e);
+            }
+            File file = child.toFile();
+            boolean isDirectory = attributes.isDirectory();
+            RelativePath childPath = path.append(!isDirectory, relativePathStringInterner.intern(file.getName()));
+            FileVisitDetails details = new FileVisitDetailsWithAttributes(file, childPath, context.stopFlag, context.fileSystem, context.fileSystem, isDirectory, attributes.lastModifiedTime().toMillis(), attributes.size());
+            if (!context.spec.isSatisfiedBy(details)) {
+                return;
+            }
+            if (!isDirectory) {
+                listing.files.add(details);
+                return;
+            }
+            if (ancestor.contains(attributes.fileKey(), child)) {
+                // A cycle through a symbolic link, skip it
+                return;
+            }
+            listing.dirs.add(details);
+            if (depth < MAX_VISIT_DEPTH) {
+                ListDirectory subTask = new ListDirectory(context, child, childPath, new Ancestor(attributes.fileKey(), child, ancestor), depth + 1);
+                subTask.fork();
+                listing.subTasks.add(subTask);
+            } else {
+                listing.subTasks.add(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+/**
+ * The algorithms that can be used to hash the contents of task input and output files.
+ * Each algorithm has its own file hash cache, so that hashes calculated by different algorithms are never mixed.
+ */
+public enum FileHashAlgorithm {
+    MD5("fileHashes") {
+        public Hasher createHasher() {
+            return new DefaultHasher();
+        }
+    },
+    MURMUR3("fileHashes-murmur3") {
+        public Hasher createHasher() {
+            return new Murmur3Hasher();
+        }
+    };
+
+    public static final String ALGORITHM_PROPERTY = "org.gradle.filehash.algorithm";
+
+    private final String cacheName;
+
+    FileHashAlgorithm(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public abstract Hasher createHasher();
+
+    /**
+     * The name of the cache that holds the file hashes calculated using this algorithm.
+     */
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * Returns the algorithm selected using the {@value #ALGORITHM_PROPERTY} system property, defaulting to MD5.
+     */
+    public static FileHashAlgorithm fromSystemProperty() {
+        String value = System.getProperty(ALGORITHM_PROPERTY);
+        if (value == null) {
+            return MD5;
+        }
+        for (FileHashAlgorithm algorithm : values()) {
+            if (algorithm.name().equalsIgnoreCase(value)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown file hash algorithm '%s' specified by system property '%s'.", value, ALGORITHM_PROPERTY));
+    }
+}
@@ -26,6 +26,9 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private boolean memoryMapped;
+    private boolean logStructured;
+    private boolean writeBehind;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +70,40 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
-}
\ No newline at end of file
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Specifies whether the cache file should be accessed through memory mapped regions, rather than read and written with a system call per block.
+     */
+    public PersistentIndexedCacheParameters<K, V> memoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+        return this;
+    }
+
+    public boolean isLogStructured() {
+        return logStructured;
+    }
+
+    /**
+     * Specifies whether the cache should be stored as an append-only log with an in-memory index, rather than as a BTree.
+     */
+    public PersistentIndexedCacheParameters<K, V> logStructured(boolean logStructured) {
+        this.logStructured = logStructured;
+        return this;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Specifies whether puts should be held in memory and written to the cache file in one pass, rather than written as they are made.
+     */
+    public PersistentIndexedCacheParameters<K, V> writeBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+        return this;
+    }
+}
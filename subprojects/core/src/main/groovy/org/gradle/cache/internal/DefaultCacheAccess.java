@@ -21,13 +21,17 @@ import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheOpenException;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
+import org.gradle.cache.internal.btree.FileBackedBlockStore;
+import org.gradle.cache.internal.btree.MappedFileBlockStore;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.cache.internal.logstructured.LogIndex;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
-import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
 import java.util.HashSet;
@@ -314,14 +318,17 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
-                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        // The log-structured store uses a different file format, so it cannot share a file with the BTree store
+        final File cacheFile = new File(baseDir, parameters.getCacheName() + (parameters.isLogStructured() ? ".log" : ".bin"));
+        // The cache is reopened each time the file lock is acquired, so keep the index of the log-structured store rather than rebuilding it each time
+        final LogIndex logIndex = parameters.isLogStructured() ? new LogIndex() : null;
+        Factory<CloseablePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<CloseablePersistentIndexedCache<K, V>>() {
+            public CloseablePersistentIndexedCache<K, V> create() {
+                return doCreateCache(cacheFile, parameters, logIndex);
             }
         };
 
-        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess, parameters.isWriteBehind());
         CacheDecorator decorator = parameters.getCacheDecorator();
         indexedCache = decorator == null ? indexedCache : decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache);
 
@@ -338,8 +345,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return indexedCache;
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    <K, V> CloseablePersistentIndexedCache<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters, LogIndex logIndex) {
+        if (parameters.isLogStructured()) {
+            return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer(), logIndex);
+        }
+        BlockStore backingStore = parameters.isMemoryMapped() ? new MappedFileBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, backingStore, parameters.getKeySerializer(), parameters.getValueSerializer());
     }
 
     private boolean onStartWork() {
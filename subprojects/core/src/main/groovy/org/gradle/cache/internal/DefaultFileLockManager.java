@@ -233,6 +233,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     }
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    // Let the processes waiting for this lock know straight away that they can try to acquire it
+                    fileLockContentionHandler.lockReleased(lockId);
+                }
+            });
             stoppable.add(new Stoppable() {
                 public void stop() {
                     lock = null;
@@ -272,6 +278,8 @@ public class DefaultFileLockManager implements FileLockManager {
                     if (informationRegionLock == null) {
                         throw new IllegalStateException(String.format("Unable to lock the information region for %s", displayName));
                     }
+                    // Start collecting waiters before publishing our port, so that no ping goes unanswered
+                    fileLockContentionHandler.lockAcquired(lockId);
                     // check that the length of the reserved region is enough for storing our content
                     try {
                         lockFileAccess.writeLockInfo(port, lockId, metaDataProvider.getProcessIdentifier(), operationDisplayName);
@@ -287,6 +295,7 @@ public class DefaultFileLockManager implements FileLockManager {
                 return lockState;
             } catch (Throwable t) {
                 stateRegionLock.release();
+                fileLockContentionHandler.lockReleased(lockId);
                 throw t;
             }
         }
@@ -313,17 +322,26 @@ public class DefaultFileLockManager implements FileLockManager {
                 if (fileLock != null) {
                     return fileLock;
                 }
+                boolean pinged = false;
+                long ownerLockId = 0;
                 if (port != -1) { //we don't like the assumption about the port very much
                     LockInfo lockInfo = readInformationRegion(System.currentTimeMillis()); //no need for timeout here, as we're already looping with timeout
                     if (lockInfo.port != -1) {
                         LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
                         fileLockContentionHandler.pingOwner(lockInfo.port, lockInfo.lockId, displayName);
+                        pinged = true;
+                        ownerLockId = lockInfo.lockId;
                     } else {
                         LOGGER.debug("The file lock is held by a different Gradle process. I was unable to read on which port the owner listens for lock access requests.");
                     }
                 }
                 //TODO SF we should inform on the progress/status bar that we're waiting
-                Thread.sleep(200L);
+                if (pinged) {
+                    // Retry as soon as the owner tells us it has released the lock. Owners running older versions never do, so keep polling as well
+                    fileLockContentionHandler.awaitRelease(ownerLockId, 200L);
+                } else {
+                    Thread.sleep(200L);
+                }
             } while (System.currentTimeMillis() < waitUntil);
             return null;
         }
@@ -16,21 +16,45 @@
 package org.gradle.cache.internal;
 
 import org.gradle.cache.PersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.internal.Factory;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link MultiProcessSafePersistentIndexedCache} that accesses the backing cache while holding the appropriate file lock.
+ *
+ * <p>When write-behind is enabled, puts are held in memory and written to the backing cache in one pass, in the order the keys were first put,
+ * at the end of the unit of work, when the cache is closed because the file lock is released, or when too many puts are pending.
+ * This avoids marking the cache file dirty and clean again for every put.</p>
+ */
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+    /**
+     * The largest number of puts to hold in memory before writing them to the backing cache.
+     */
+    static final int MAX_PENDING_PUTS = 10000;
+
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends CloseablePersistentIndexedCache<K, V>> factory;
+    private final boolean writeBehind;
+    private final Map<K, V> pendingPuts = new LinkedHashMap<K, V>();
+    private CloseablePersistentIndexedCache<K, V> cache;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends CloseablePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+        this(factory, fileAccess, false);
+    }
+
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends CloseablePersistentIndexedCache<K, V>> factory, FileAccess fileAccess, boolean writeBehind) {
         this.factory = factory;
         this.fileAccess = fileAccess;
+        this.writeBehind = writeBehind;
     }
 
     public V get(final K key) {
         final PersistentIndexedCache<K, V> cache = getCache();
+        if (pendingPuts.containsKey(key)) {
+            return pendingPuts.get(key);
+        }
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
@@ -44,6 +68,13 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     public void put(final K key, final V value) {
         final PersistentIndexedCache<K, V> cache = getCache();
+        if (writeBehind) {
+            pendingPuts.put(key, value);
+            if (pendingPuts.size() >= MAX_PENDING_PUTS) {
+                flush();
+            }
+            return;
+        }
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -55,6 +86,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     public void remove(final K key) {
         final PersistentIndexedCache<K, V> cache = getCache();
+        pendingPuts.remove(key);
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -68,6 +100,9 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
     }
 
     public void onEndWork(FileLock.State currentCacheState) {
+        if (cache != null) {
+            flush();
+        }
     }
 
     public void close() {
@@ -75,15 +110,43 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
             try {
                 fileAccess.writeFile(new Runnable() {
                     public void run() {
-                        cache.close();
+                        try {
+                            writePendingPuts();
+                        } finally {
+                            cache.close();
+                        }
                     }
                 });
             } finally {
                 cache = null;
+                pendingPuts.clear();
             }
         }
     }
 
+    private void flush() {
+        if (pendingPuts.isEmpty()) {
+            return;
+        }
+        try {
+            // Use writeFile because the cache can internally recover from datafile
+            // corruption, so we don't care at this level if it's corrupt
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    writePendingPuts();
+                }
+            });
+        } finally {
+            pendingPuts.clear();
+        }
+    }
+
+    private void writePendingPuts() {
+        for (Map.Entry<K, V> entry : pendingPuts.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue());
+        }
+    }
+
     private PersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
@@ -22,12 +22,15 @@ import java.io.*;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 public class FileLockCommunicator {
     private static final byte PROTOCOL_VERSION = 1;
+    // A release notification is a ping followed by this marker. Older versions read only the ping part, and ignore it as it is for a lock they don't hold
+    private static final byte RELEASED = 1;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -43,7 +46,7 @@ public class FileLockCommunicator {
 
     public void pingOwner(int ownerPort, long lockId, String displayName) {
         try {
-            byte[] bytesToSend = encode(lockId);
+            byte[] bytesToSend = encode(lockId, false);
             // Ping the owner via all available local addresses
             for (InetAddress address : addressFactory.findLocalAddresses()) {
                 socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, address, ownerPort));
@@ -53,12 +56,24 @@ public class FileLockCommunicator {
         }
     }
 
-    public long receive() throws GracefullyStoppedException {
+    /**
+     * Notifies a process that pinged this process for the given lock that the lock has been released, so that it can try to acquire it straight away.
+     */
+    public void notifyReleased(SocketAddress waiter, long lockId) {
         try {
-            byte[] bytes = new byte[9];
+            byte[] bytesToSend = encode(lockId, true);
+            socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, waiter));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to notify %s that lock %s was released", waiter, lockId), e);
+        }
+    }
+
+    public FileLockPacket receive() throws GracefullyStoppedException {
+        try {
+            byte[] bytes = new byte[10];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
-            return decode(bytes);
+            return decode(packet);
         } catch (IOException e) {
             if (!stopped) {
                 throw new RuntimeException(e);
@@ -72,22 +87,27 @@ public class FileLockCommunicator {
         socket.close();
     }
 
-    private static byte[] encode(long lockId) throws IOException {
+    private static byte[] encode(long lockId, boolean released) throws IOException {
         ByteArrayOutputStream packet = new ByteArrayOutputStream();
         DataOutputStream dataOutput = new DataOutputStream(packet);
         dataOutput.writeByte(PROTOCOL_VERSION);
         dataOutput.writeLong(lockId);
+        if (released) {
+            dataOutput.writeByte(RELEASED);
+        }
         dataOutput.flush();
         return packet.toByteArray();
     }
 
-    private static long decode(byte[] bytes) throws IOException {
-        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes));
+    private static FileLockPacket decode(DatagramPacket packet) throws IOException {
+        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()));
         byte version = dataInput.readByte();
         if (version != PROTOCOL_VERSION) {
             throw new IllegalArgumentException(String.format("Unexpected protocol version %s received in lock contention notification message", version));
         }
-        return dataInput.readLong();
+        long lockId = dataInput.readLong();
+        boolean released = packet.getLength() > 9 && dataInput.readByte() == RELEASED;
+        return new FileLockPacket(lockId, released, packet.getSocketAddress());
     }
 
     public int getPort() {
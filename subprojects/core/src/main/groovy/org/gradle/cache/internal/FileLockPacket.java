@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.net.SocketAddress;
+
+/**
+ * A message received by a {@link FileLockCommunicator}: either a request from another process for a lock held by this process, or a notification that a lock this process is waiting for has been released.
+ */
+public class FileLockPacket {
+    private final long lockId;
+    private final boolean released;
+    private final SocketAddress sender;
+
+    public FileLockPacket(long lockId, boolean released, SocketAddress sender) {
+        this.lockId = lockId;
+        this.released = released;
+        this.sender = sender;
+    }
+
+    public long getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Returns true when the sender has released the lock, false when the sender is asking for the lock to be released.
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * The address to notify when the lock requested by the sender has been released.
+     */
+    public SocketAddress getSender() {
+        return sender;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory mapped regions of the cache file, instead of seeking and reading or writing the file for each block.
+ * Uses the same file format as {@link FileBackedBlockStore}.
+ *
+ * <p>The file is mapped in regions of {@link #REGION_SIZE} bytes. While the store is open, the file grows a region at a time, so appending a block
+ * only remaps the last region when the block crosses into a new region. The padding after the data is truncated again when the store is closed.</p>
+ */
+public class MappedFileBlockStore extends AbstractFileBlockStore {
+    static final int REGION_SIZE = 4 * 1024 * 1024;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    // The length of the file, including the padding after the data
+    private long fileLength;
+
+    public MappedFileBlockStore(File cacheFile) {
+        super(cacheFile);
+    }
+
+    @Override
+    protected long openFile() throws IOException {
+        file = new RandomAccessFile(cacheFile, "rw");
+        channel = file.getChannel();
+        fileLength = file.length();
+        return fileLength;
+    }
+
+    @Override
+    protected void closeFile(long dataSize) throws IOException {
+        try {
+            if (unmapRegions() && fileLength > dataSize) {
+                file.setLength(dataSize);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    @Override
+    protected void truncateFile() throws IOException {
+        // When the regions cannot be unmapped, truncating fails on platforms that don't allow truncating mapped files
+        unmapRegions();
+        file.setLength(0);
+        fileLength = 0;
+    }
+
+    @Override
+    protected void growFile(long dataSize) throws IOException {
+        if (dataSize > fileLength) {
+            fileLength = (dataSize + REGION_SIZE - 1) / REGION_SIZE * REGION_SIZE;
+            file.setLength(fileLength);
+        }
+    }
+
+    @Override
+    protected InputStream openInputStream(long pos) {
+        return new RegionInputStream(pos);
+    }
+
+    @Override
+    protected OutputStream openOutputStream(long pos) {
+        return new RegionOutputStream(pos);
+    }
+
+    /**
+     * Returns the mapped region that contains the given position, which must be within the file.
+     */
+    private ByteBuffer regionAt(long pos) throws IOException {
+        int index = (int) (pos / REGION_SIZE);
+        long start = (long) index * REGION_SIZE;
+        long size = Math.min(REGION_SIZE, fileLength - start);
+        while (regions.size() <= index) {
+            regions.add(null);
+        }
+        MappedByteBuffer region = regions.get(index);
+        if (region == null || region.capacity() < size) {
+            // Only happens when a region is first used, or for the region that contained the end of a file that was not grown by this store
+            if (region != null) {
+                unmap(region);
+            }
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            regions.set(index, region);
+        }
+        ByteBuffer view = region.duplicate();
+        view.position((int) (pos - start));
+        return view;
+    }
+
+    /**
+     * Unmaps all regions, so that the file can be truncated. Returns false when some region could not be unmapped, and is only released by the garbage collector.
+     */
+    private boolean unmapRegions() {
+        boolean unmapped = true;
+        for (MappedByteBuffer region : regions) {
+            if (region != null) {
+                unmapped &= unmap(region);
+            }
+        }
+        regions.clear();
+        return unmapped;
+    }
+
+    private static boolean unmap(MappedByteBuffer region) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeType = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeType.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeType.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), region);
+            return true;
+        } catch (Exception e) {
+            // Fall through
+        }
+        try {
+            Method cleanerMethod = region.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(region);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private class RegionInputStream extends InputStream {
+        private long pos;
+
+        private RegionInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= fileLength) {
+                return -1;
+            }
+            int value = regionAt(pos).get() & 0xff;
+            pos++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (pos >= fileLength) {
+                return -1;
+            }
+            ByteBuffer region = regionAt(pos);
+            int count = Math.min(length, region.remaining());
+            region.get(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+    }
+
+    private class RegionOutputStream extends OutputStream {
+        private long pos;
+
+        private RegionOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (pos >= fileLength) {
+                    throw new EOFException(String.format("Unexpected write past the end of %s.", MappedFileBlockStore.this));
+                }
+                ByteBuffer region = regionAt(pos);
+                int count = Math.min(length, region.remaining());
+                region.put(bytes, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+    }
+}
@@ -19,21 +19,39 @@ package org.gradle.cache.internal.locklistener;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.FileLockCommunicator;
+import org.gradle.cache.internal.FileLockPacket;
 import org.gradle.cache.internal.GracefullyStoppedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
+import java.net.SocketAddress;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultFileLockContentionHandler implements FileLockContentionHandler, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockContentionHandler.class);
+    private static final int MAX_RELEASED_LOCKS = 100;
     private final Lock lock = new ReentrantLock();
+    private final Condition releaseReceived = lock.newCondition();
     private final Map<Long, Runnable> contendedActions = new HashMap<Long, Runnable>();
+    // The processes to notify when a lock held by this process is released
+    private final Map<Long, Set<SocketAddress>> waiters = new HashMap<Long, Set<SocketAddress>>();
+    // Release notifications received for locks held by other processes, until a waiting thread picks them up
+    private final Map<Long, Boolean> releasedLocks = new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_RELEASED_LOCKS;
+        }
+    };
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
 
@@ -62,15 +80,25 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
             private void doRun() {
                 while (true) {
-                    long lockId;
+                    FileLockPacket packet;
                     try {
-                        lockId = communicator.receive();
+                        packet = communicator.receive();
                     } catch (GracefullyStoppedException e) {
                         return;
                     }
+                    long lockId = packet.getLockId();
                     lock.lock();
                     Runnable action;
                     try {
+                        if (packet.isReleased()) {
+                            releasedLocks.put(lockId, Boolean.TRUE);
+                            releaseReceived.signalAll();
+                            continue;
+                        }
+                        Set<SocketAddress> lockWaiters = waiters.get(lockId);
+                        if (lockWaiters != null) {
+                            lockWaiters.add(packet.getSender());
+                        }
                         action = contendedActions.get(lockId);
                         if (action == null) {
                             //received access request for lock that is already closed
@@ -92,10 +120,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (executor == null) {
-                executor = executorFactory.create("File lock request listener");
-                executor.execute(listener());
-            }
+            startListening();
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
             }
@@ -105,10 +130,71 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         }
     }
 
+    private void startListening() {
+        if (executor == null) {
+            executor = executorFactory.create("File lock request listener");
+            executor.execute(listener());
+        }
+    }
+
     public void pingOwner(int port, long lockId, String displayName) {
         getCommunicator().pingOwner(port, lockId, displayName);
     }
 
+    public void lockAcquired(long lockId) {
+        lock.lock();
+        try {
+            if (stopped || communicator == null) {
+                // Not listening for requests, so nobody to notify
+                return;
+            }
+            startListening();
+            waiters.put(lockId, new LinkedHashSet<SocketAddress>());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lockReleased(long lockId) {
+        Set<SocketAddress> lockWaiters;
+        lock.lock();
+        try {
+            lockWaiters = waiters.remove(lockId);
+            if (stopped || lockWaiters == null) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (SocketAddress waiter : lockWaiters) {
+            try {
+                communicator.notifyReleased(waiter, lockId);
+            } catch (Exception e) {
+                // The waiter will find out on its next attempt to acquire the lock
+                LOGGER.debug("Could not notify waiter of lock release.", e);
+            }
+        }
+    }
+
+    public boolean awaitRelease(long lockId, long timeoutMs) throws InterruptedException {
+        long waitUntil = System.currentTimeMillis() + timeoutMs;
+        lock.lock();
+        try {
+            getCommunicator();
+            startListening();
+            while (releasedLocks.remove(lockId) == null) {
+                long remaining = waitUntil - System.currentTimeMillis();
+                if (remaining <= 0 || stopped) {
+                    return false;
+                }
+                releaseReceived.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private void assertNotStopped() {
         if (stopped) {
             throw new IllegalStateException(
@@ -130,6 +216,8 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         try {
             stopped = true;
             contendedActions.clear();
+            waiters.clear();
+            releaseReceived.signalAll();
             if (communicator != null) {
                 communicator.stop();
             }
@@ -24,4 +24,21 @@ public interface FileLockContentionHandler {
     int reservePort();
 
     void pingOwner(int port, long lockId, String displayName);
+
+    /**
+     * Called when this process has acquired the given lock. Processes that ping this process for the lock from now on are notified when it is released.
+     */
+    void lockAcquired(long lockId);
+
+    /**
+     * Called when this process has released the given lock. Notifies the processes waiting for the lock.
+     */
+    void lockReleased(long lockId);
+
+    /**
+     * Waits until the owner of the given lock notifies that it has released the lock, or the timeout expires.
+     *
+     * @return true if the lock was released, false if the timeout expired.
+     */
+    boolean awaitRelease(long lockId, long timeoutMs) throws InterruptedException;
 }
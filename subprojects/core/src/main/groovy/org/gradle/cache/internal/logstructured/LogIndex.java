@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.cache.internal.logstructured;
+
+import java.util.Arrays;
+
+/**
+ * The in-memory index of a {@link LogStructuredPersistentIndexedCache}, which maps the hash of each key to the position of the latest record for that key.
+ * Keys with the same hash have separate entries, which are told apart by comparing the keys stored in their records.
+ *
+ * <p>An index can be passed from one instance of a cache to the next, for example when the cache is closed and reopened as the file lock moves between processes.
+ * The index remembers which log file it was built from and how much of that file it covers, so that a new instance only needs to scan the records appended
+ * since then.</p>
+ */
+public class LogIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = -1;
+
+    private long[] hashes;
+    private long[] positions;
+    private int size;
+    private long generation;
+    private long length;
+    private int recordCount;
+
+    public LogIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns true when this index was built from the given generation of the log and covers no more than the given length of it.
+     */
+    boolean isValidFor(long generation, long fileLength) {
+        return this.generation != 0 && this.generation == generation && length <= fileLength;
+    }
+
+    /**
+     * Marks this index as covering the given length of the given generation of the log.
+     */
+    void validate(long generation, long length, int recordCount) {
+        this.generation = generation;
+        this.length = length;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Marks this index as not matching any log, for example while a cache is modifying it.
+     */
+    void invalidate() {
+        generation = 0;
+    }
+
+    void clear() {
+        allocate(INITIAL_CAPACITY);
+        generation = 0;
+        length = 0;
+        recordCount = 0;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the first entry with the given hash, or -1 when there is none.
+     */
+    int first(long hash) {
+        return find(hash, slot(hash));
+    }
+
+    /**
+     * Returns the entry after the given entry with the same hash, or -1 when there is none.
+     */
+    int next(long hash, int entry) {
+        return find(hash, (entry + 1) & (positions.length - 1));
+    }
+
+    long position(int entry) {
+        return positions[entry];
+    }
+
+    void setPosition(int entry, long position) {
+        positions[entry] = position;
+    }
+
+    void add(long hash, long position) {
+        if ((size + 1) * 2 > positions.length) {
+            long[] oldHashes = hashes;
+            long[] oldPositions = positions;
+            allocate(positions.length * 2);
+            for (int i = 0; i < oldPositions.length; i++) {
+                if (oldPositions[i] != EMPTY) {
+                    insert(oldHashes[i], oldPositions[i]);
+                }
+            }
+        }
+        insert(hash, position);
+    }
+
+    /**
+     * Removes the given entry. The other entries may move.
+     */
+    void remove(int entry) {
+        int mask = positions.length - 1;
+        int hole = entry;
+        int current = entry;
+        while (true) {
+            current = (current + 1) & mask;
+            if (positions[current] == EMPTY) {
+                break;
+            }
+            // Move the entry into the hole, unless its probe sequence starts after the hole
+            int home = slot(hashes[current]);
+            boolean canMove = current > hole ? home <= hole || home > current : home <= hole && home > current;
+            if (canMove) {
+                hashes[hole] = hashes[current];
+                positions[hole] = positions[current];
+                hole = current;
+            }
+        }
+        positions[hole] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Returns the positions of all entries, in ascending order.
+     */
+    long[] sortedPositions() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long position : positions) {
+            if (position != EMPTY) {
+                result[count++] = position;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Moves every entry to a new position, where the entry at {@code oldPositions[i]} moves to {@code newPositions[i]}.
+     *
+     * @param oldPositions The current positions of all entries, in ascending order, as returned by {@link #sortedPositions()}.
+     */
+    void relocate(long[] oldPositions, long[] newPositions) {
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] != EMPTY) {
+                positions[i] = newPositions[Arrays.binarySearch(oldPositions, positions[i])];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        positions = new long[capacity];
+        Arrays.fill(positions, EMPTY);
+        size = 0;
+    }
+
+    private void insert(long hash, long position) {
+        int mask = positions.length - 1;
+        int current = slot(hash);
+        while (positions[current] != EMPTY) {
+            current = (current + 1) & mask;
+        }
+        hashes[current] = hash;
+        positions[current] = position;
+        size++;
+    }
+
+    private int find(long hash, int start) {
+        int mask = positions.length - 1;
+        for (int current = start; positions[current] != EMPTY; current = (current + 1) & mask) {
+            if (hashes[current] == hash) {
+                return current;
+            }
+        }
+        return -1;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (positions.length - 1);
+    }
+}
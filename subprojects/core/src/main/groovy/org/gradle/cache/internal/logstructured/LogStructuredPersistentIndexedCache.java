@@ -0,0 +1,472 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link org.gradle.cache.PersistentIndexedCache} that appends each update to the end of a log file, and keeps an in-memory index from each key to the position
+ * of the latest record for that key. Updates are buffered in memory and appended in batches.
+ *
+ * <p>The index is built by scanning the log when the cache is opened. The log ends at the first record that is incomplete or does not match its checksum,
+ * for example because a process crashed while appending it, and the file is truncated there. When most of the records in the log have been replaced or removed,
+ * the live records are copied to a new file which replaces the log when the cache is closed.</p>
+ *
+ * <p>The log starts with a header that identifies the generation of the file, which changes each time the log is compacted. When the cache is given the
+ * {@link LogIndex} of a previous instance and the log is still the same generation, only the records appended since the previous instance was closed are scanned.</p>
+ *
+ * <p>The index is keyed by a hash of the serialized key. Each record contains the serialized key, which is compared on lookup, so that keys with the same hash
+ * do not replace each other.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    private static final int DEFAULT_MIN_COMPACTION_RECORDS = 1000;
+    private static final int MAGIC = 0x474c4f47;
+    // Magic number and generation
+    private static final int FILE_HEADER_SIZE = 12;
+    private static final byte VALUE = 1;
+    private static final byte REMOVED = 0;
+    // Record length and checksum
+    private static final int RECORD_OVERHEAD = 8;
+    // Key hash, key length and value flag
+    private static final int BODY_HEADER_SIZE = 13;
+    private static final int KEY_OFFSET = 12;
+    // Enough for most records, so that a record is usually read with a single read
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final File cacheFile;
+    private final File compactedFile;
+    private final File replacedFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int minCompactionRecords;
+    private final LogIndex index;
+    private final Buffer pending = new Buffer();
+    private final DataOutputStream pendingOutput = new DataOutputStream(pending);
+    private final CRC32 checksum = new CRC32();
+    private final Random random = new Random();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private RandomAccessFile file;
+    private long generation;
+    private long flushedLength;
+    private int recordCount;
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, new LogIndex());
+    }
+
+    /**
+     * @param index The index to use. When it was built by a previous instance for the same file, only the records appended since are scanned.
+     */
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, LogIndex index) {
+        this(cacheFile, keySerializer, valueSerializer, index, DEFAULT_MIN_COMPACTION_RECORDS);
+    }
+
+    /**
+     * @param minCompactionRecords The number of records the log must contain before it is considered for compaction.
+     */
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, LogIndex index, int minCompactionRecords) {
+        this.cacheFile = cacheFile;
+        this.compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        this.replacedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".old");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.index = index;
+        this.minCompactionRecords = minCompactionRecords;
+        try {
+            open();
+        } catch (Exception e) {
+            index.clear();
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        cacheFile.getParentFile().mkdirs();
+        recoverCompaction();
+        file = new RandomAccessFile(cacheFile, "rw");
+        long fileLength = file.length();
+        generation = fileLength >= FILE_HEADER_SIZE ? readFileHeader() : 0;
+        if (generation == 0) {
+            if (fileLength > 0) {
+                LOGGER.warn(String.format("%s does not start with a valid header. Discarding the file.", this));
+            }
+            generation = newGeneration();
+            file.setLength(0);
+            file.seek(0);
+            writeFileHeader(file, generation);
+            fileLength = FILE_HEADER_SIZE;
+        }
+
+        long start;
+        if (index.isValidFor(generation, fileLength)) {
+            start = index.getLength();
+            recordCount = index.getRecordCount();
+        } else {
+            index.clear();
+            start = FILE_HEADER_SIZE;
+            recordCount = 0;
+        }
+        // The index does not match the file while it is being changed
+        index.invalidate();
+
+        flushedLength = fileLength;
+        flushedLength = scan(start, fileLength);
+        if (flushedLength < fileLength) {
+            LOGGER.warn(String.format("%s has an incomplete or corrupt record at offset %s. Discarding the rest of the file.", this, flushedLength));
+            file.setLength(flushedLength);
+        }
+    }
+
+    /**
+     * Finishes replacing the log with a compacted file, when a previous compaction was interrupted. The compacted file is complete once the log has been
+     * moved aside, so it is discarded when the log is still in place.
+     */
+    private void recoverCompaction() throws IOException {
+        if (compactedFile.exists()) {
+            if (cacheFile.exists()) {
+                if (!compactedFile.delete()) {
+                    throw new IOException(String.format("Could not delete incomplete compacted file %s.", compactedFile));
+                }
+            } else if (!compactedFile.renameTo(cacheFile)) {
+                throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile, compactedFile));
+            }
+        }
+        if (replacedFile.exists() && !replacedFile.delete()) {
+            throw new IOException(String.format("Could not delete replaced file %s.", replacedFile));
+        }
+    }
+
+    /**
+     * Returns the generation of the log, or 0 when the file header is not valid.
+     */
+    private long readFileHeader() throws IOException {
+        file.seek(0);
+        if (file.readInt() != MAGIC) {
+            return 0;
+        }
+        return file.readLong();
+    }
+
+    private static void writeFileHeader(DataOutput output, long generation) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeLong(generation);
+    }
+
+    private long newGeneration() {
+        long generation = 0;
+        while (generation == 0) {
+            generation = random.nextLong();
+        }
+        return generation;
+    }
+
+    /**
+     * Adds the records of the log from the given position to the index, and returns the end of the valid part of the log.
+     */
+    private long scan(long start, long fileLength) throws IOException {
+        long pos = start;
+        FileInputStream inputStream = new FileInputStream(cacheFile);
+        try {
+            inputStream.getChannel().position(start);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+            while (pos + RECORD_OVERHEAD + BODY_HEADER_SIZE <= fileLength) {
+                int length = input.readInt();
+                if (length < BODY_HEADER_SIZE || pos + RECORD_OVERHEAD + length > fileLength) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                input.readFully(body);
+                if (input.readInt() != checksum(body)) {
+                    break;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                long hash = buffer.getLong();
+                int keyLength = buffer.getInt();
+                if (keyLength < 0 || keyLength > length - BODY_HEADER_SIZE) {
+                    break;
+                }
+                byte[] keyBytes = Arrays.copyOfRange(body, KEY_OFFSET, KEY_OFFSET + keyLength);
+                int entry = find(hash, keyBytes);
+                if (body[KEY_OFFSET + keyLength] == VALUE) {
+                    if (entry >= 0) {
+                        index.setPosition(entry, pos);
+                    } else {
+                        index.add(hash, pos);
+                    }
+                } else if (entry >= 0) {
+                    index.remove(entry);
+                }
+                recordCount++;
+                pos += RECORD_OVERHEAD + length;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return pos;
+    }
+
+    public V get(K key) {
+        try {
+            byte[] keyBytes = serialize(key);
+            long hash = hash(keyBytes);
+            for (int entry = index.first(hash); entry >= 0; entry = index.next(hash, entry)) {
+                ByteBuffer body = readBody(index.position(entry));
+                if (hasKey(body, keyBytes)) {
+                    int valueOffset = BODY_HEADER_SIZE + keyBytes.length;
+                    KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(body.array(), body.arrayOffset() + valueOffset, body.remaining() - valueOffset));
+                    return valueSerializer.read(decoder);
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(key);
+            long hash = hash(keyBytes);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(body);
+            writeBodyHeader(output, hash, keyBytes, VALUE);
+            KryoBackedEncoder encoder = new KryoBackedEncoder(output);
+            valueSerializer.write(encoder, value);
+            encoder.flush();
+            int entry = find(hash, keyBytes);
+            long pos = append(body.toByteArray());
+            if (entry >= 0) {
+                index.setPosition(entry, pos);
+            } else {
+                index.add(hash, pos);
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    public void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(key);
+            long hash = hash(keyBytes);
+            int entry = find(hash, keyBytes);
+            if (entry < 0) {
+                return;
+            }
+            index.remove(entry);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            writeBodyHeader(new DataOutputStream(body), hash, keyBytes, REMOVED);
+            append(body.toByteArray());
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            try {
+                flush();
+                if (recordCount >= minCompactionRecords && index.size() * 2 < recordCount) {
+                    compact();
+                }
+                index.validate(generation, flushedLength, recordCount);
+            } finally {
+                file.close();
+            }
+        } catch (Exception e) {
+            index.clear();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the live records to a new file, and replaces the log with it.
+     */
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {} from {} to {} records", this, recordCount, index.size());
+        long newGeneration = newGeneration();
+        long[] oldPositions = index.sortedPositions();
+        long[] newPositions = new long[oldPositions.length];
+        long pos = FILE_HEADER_SIZE;
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+        try {
+            writeFileHeader(output, newGeneration);
+            for (int i = 0; i < oldPositions.length; i++) {
+                ByteBuffer body = readBody(oldPositions[i]);
+                output.writeInt(body.remaining());
+                output.write(body.array(), body.arrayOffset(), body.remaining());
+                output.writeInt(checksum(body.array(), body.arrayOffset(), body.remaining()));
+                newPositions[i] = pos;
+                pos += RECORD_OVERHEAD + body.remaining();
+            }
+        } finally {
+            output.close();
+        }
+        file.close();
+        if (!compactedFile.renameTo(cacheFile)) {
+            // Some platforms do not rename over an existing file, so move the log aside first. An interrupted replacement is finished when the cache is next opened.
+            if (!cacheFile.renameTo(replacedFile) || !compactedFile.renameTo(cacheFile)) {
+                throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile, compactedFile));
+            }
+            replacedFile.delete();
+        }
+        index.relocate(oldPositions, newPositions);
+        generation = newGeneration;
+        flushedLength = pos;
+        recordCount = oldPositions.length;
+    }
+
+    private void writeBodyHeader(DataOutputStream output, long hash, byte[] keyBytes, byte flag) throws IOException {
+        output.writeLong(hash);
+        output.writeInt(keyBytes.length);
+        output.write(keyBytes);
+        output.writeByte(flag);
+    }
+
+    /**
+     * Appends a record with the given body to the log, returning the position of the record.
+     */
+    private long append(byte[] body) throws IOException {
+        long pos = flushedLength + pending.size();
+        pendingOutput.writeInt(body.length);
+        pendingOutput.write(body);
+        pendingOutput.writeInt(checksum(body));
+        recordCount++;
+        if (pending.size() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+        return pos;
+    }
+
+    private void flush() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        file.seek(flushedLength);
+        file.write(pending.buffer(), 0, pending.size());
+        flushedLength += pending.size();
+        pending.reset();
+    }
+
+    /**
+     * Returns the index entry for the given key, or -1 when the key is not in the index.
+     */
+    private int find(long hash, byte[] keyBytes) throws IOException {
+        for (int entry = index.first(hash); entry >= 0; entry = index.next(hash, entry)) {
+            if (hasKey(readBody(index.position(entry)), keyBytes)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the body of the record at the given position, which may not have been flushed yet. The returned buffer is only valid until the next read.
+     */
+    private ByteBuffer readBody(long pos) throws IOException {
+        if (pos >= flushedLength) {
+            int offset = (int) (pos - flushedLength);
+            int length = ByteBuffer.wrap(pending.buffer()).getInt(offset);
+            return ByteBuffer.wrap(pending.buffer(), offset + 4, length).slice();
+        }
+        // Read the length and, usually, the whole record with a single positioned read
+        FileChannel channel = file.getChannel();
+        ByteBuffer buffer = readBuffer;
+        buffer.clear();
+        read(channel, buffer, pos, 4);
+        int length = buffer.getInt(0);
+        if (4 + length > buffer.capacity()) {
+            buffer.flip();
+            buffer = ByteBuffer.allocate(4 + length).put(buffer);
+        }
+        buffer.limit(4 + length);
+        read(channel, buffer, pos, 4 + length);
+        buffer.position(4);
+        return buffer.slice();
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long pos, int minLength) throws IOException {
+        while (buffer.position() < minLength) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private boolean hasKey(ByteBuffer body, byte[] keyBytes) {
+        int keyLength = body.getInt(8);
+        if (keyLength != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (body.get(KEY_OFFSET + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] serialize(K key) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        keySerializer.write(encoder, key);
+        encoder.flush();
+        return outputStream.toByteArray();
+    }
+
+    long hash(byte[] keyBytes) {
+        return Hashing.murmur3_128().hashBytes(keyBytes).asLong();
+    }
+
+    private int checksum(byte[] body) {
+        return checksum(body, 0, body.length);
+    }
+
+    private int checksum(byte[] bytes, int offset, int length) {
+        checksum.reset();
+        checksum.update(bytes, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
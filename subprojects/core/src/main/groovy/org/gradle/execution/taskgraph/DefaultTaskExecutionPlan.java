@@ -18,7 +18,6 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
@@ -41,7 +40,6 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -62,12 +60,29 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition planCompleted = lock.newCondition();
+    private int waitingWorkers;
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Set<TaskInfo> executionQueue = new LinkedHashSet<TaskInfo>();
+    private final Map<TaskInfo, Integer> executionOrder = new HashMap<TaskInfo, Integer>();
+    private final SetMultimap<TaskInfo, TaskInfo> dependents = LinkedHashMultimap.create();
+    // The estimated length of the longest chain of tasks starting at each task, when prioritizing by critical path
+    private final Map<TaskInfo, Long> criticalPathLengths = new HashMap<TaskInfo, Long>();
+    // The queued tasks that are ready to run and whose dependencies are complete, by critical path length (when known) and then in execution plan order
+    private final TreeSet<TaskInfo> readyQueue = new TreeSet<TaskInfo>(new Comparator<TaskInfo>() {
+        public int compare(TaskInfo o1, TaskInfo o2) {
+            Long length1 = criticalPathLengths.get(o1);
+            Long length2 = criticalPathLengths.get(o2);
+            if (length1 != null && length2 != null && !length1.equals(length2)) {
+                return length2.compareTo(length1);
+            }
+            return executionOrder.get(o1).compareTo(executionOrder.get(o2));
+        }
+    });
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -77,6 +92,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
+    private final OutputPathIndex<TaskInternal> runningTaskOutputs = new OutputPathIndex<TaskInternal>();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
 
@@ -315,6 +331,107 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        initializeReadyQueue();
+    }
+
+    private void initializeReadyQueue() {
+        executionOrder.clear();
+        dependents.clear();
+        readyQueue.clear();
+        criticalPathLengths.clear();
+        for (TaskInfo taskInfo : executionQueue) {
+            executionOrder.put(taskInfo, executionOrder.size());
+            for (TaskInfo dependency : Iterables.concat(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors())) {
+                dependents.put(dependency, taskInfo);
+            }
+        }
+        for (TaskInfo taskInfo : executionQueue) {
+            maybeAddToReadyQueue(taskInfo);
+        }
+    }
+
+    /**
+     * Prioritizes the tasks of this plan by the estimated length of the longest chain of tasks that starts at each task, so that the tasks on the critical path start as early as possible.
+     * Tasks without an estimated duration are assumed to take the average of the estimated durations. Tasks with the same estimate are started in execution plan order.
+     */
+    public void prioritizeByCriticalPath(Map<? extends Task, Long> estimatedDurations) {
+        lock.lock();
+        try {
+            if (estimatedDurations.isEmpty()) {
+                return;
+            }
+            long totalDuration = 0;
+            for (Long duration : estimatedDurations.values()) {
+                totalDuration += duration;
+            }
+            // The ready queue is ordered by path length, so must be rebuilt when the lengths change
+            List<TaskInfo> readyTasks = new ArrayList<TaskInfo>(readyQueue);
+            readyQueue.clear();
+            criticalPathLengths.clear();
+            criticalPathLengths.putAll(pathLengths(estimatedDurations, totalDuration / estimatedDurations.size(), true));
+            readyQueue.addAll(readyTasks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the length of the longest chain of dependent tasks in this plan, given the duration of each task. Tasks without a duration are assumed to take no time.
+     */
+    public long getCriticalPathLength(Map<? extends Task, Long> durations) {
+        lock.lock();
+        try {
+            long criticalPathLength = 0;
+            for (Long pathLength : pathLengths(durations, 0, false).values()) {
+                criticalPathLength = Math.max(criticalPathLength, pathLength);
+            }
+            return criticalPathLength;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calculates the length of the longest chain of tasks that starts at each task and continues through the tasks that run after it.
+     * Visits the tasks in reverse execution plan order, so that each task is visited after all the tasks that run after it.
+     */
+    private Map<TaskInfo, Long> pathLengths(Map<? extends Task, Long> durations, long defaultDuration, boolean includeShouldRunAfter) {
+        Map<TaskInfo, Long> pathLengths = new HashMap<TaskInfo, Long>();
+        Map<TaskInfo, Long> longestDependentPaths = new HashMap<TaskInfo, Long>();
+        for (TaskInfo taskInfo : Lists.reverse(new ArrayList<TaskInfo>(executionPlan.values()))) {
+            Long duration = durations.get(taskInfo.getTask());
+            Long longestDependentPath = longestDependentPaths.get(taskInfo);
+            long pathLength = (duration == null ? defaultDuration : duration) + (longestDependentPath == null ? 0 : longestDependentPath);
+            pathLengths.put(taskInfo, pathLength);
+
+            Iterable<TaskInfo> predecessors = Iterables.concat(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors());
+            if (includeShouldRunAfter) {
+                // Not a hard ordering, but prefer to start the tasks that should run first
+                predecessors = Iterables.concat(predecessors, taskInfo.getShouldSuccessors());
+            }
+            for (TaskInfo predecessor : predecessors) {
+                Long current = longestDependentPaths.get(predecessor);
+                if (current == null || current < pathLength) {
+                    longestDependentPaths.put(predecessor, pathLength);
+                }
+            }
+        }
+        return pathLengths;
+    }
+
+    private void maybeAddToReadyQueue(TaskInfo taskInfo) {
+        if (taskInfo.isReady() && executionQueue.contains(taskInfo) && taskInfo.allDependenciesComplete()) {
+            readyQueue.add(taskInfo);
+        }
+    }
+
+    /**
+     * Called when the given task has completed, to queue those tasks that were waiting only for it.
+     */
+    private void dependencyComplete(TaskInfo taskInfo) {
+        for (TaskInfo dependent : dependents.get(taskInfo)) {
+            maybeAddToReadyQueue(dependent);
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -436,11 +553,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             entryTasks.clear();
             executionPlan.clear();
             executionQueue.clear();
+            executionOrder.clear();
+            dependents.clear();
+            readyQueue.clear();
+            criticalPathLengths.clear();
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
+            runningTaskOutputs.clear();
             runningTasks.clear();
         } finally {
             lock.unlock();
@@ -468,26 +590,18 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                         tasksCancelled = true;
                     }
                 }
-                TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
-                while (iterator.hasNext()) {
-                    TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
-                        break;
-                    }
-                }
-                if (allTasksComplete) {
-                    return null;
-                }
+                TaskInfo nextMatching = nextReadyTask();
                 if (nextMatching == null) {
+                    if (allQueuedTasksComplete()) {
+                        return null;
+                    }
+                    waitingWorkers++;
                     try {
-                        condition.await();
+                        taskAvailable.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        waitingWorkers--;
                     }
                 } else {
                     if (nextMatching.allDependenciesSuccessful()) {
@@ -496,7 +610,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                         return nextMatching;
                     } else {
                         nextMatching.skipExecution();
-                        condition.signalAll();
+                        dependencyComplete(nextMatching);
+                        signalAll();
                     }
                 }
             }
@@ -505,6 +620,55 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    @Nullable
+    private TaskInfo nextReadyTask() {
+        Iterator<TaskInfo> iterator = readyQueue.iterator();
+        while (iterator.hasNext()) {
+            TaskInfo taskInfo = iterator.next();
+            if (!taskInfo.isReady() || !taskInfo.allDependenciesComplete()) {
+                // Skipped, or a dependency has since been enforced to run. The task is queued again when the dependency completes
+                iterator.remove();
+                continue;
+            }
+            if (canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
+                iterator.remove();
+                executionQueue.remove(taskInfo);
+                return taskInfo;
+            }
+        }
+        return null;
+    }
+
+    private boolean allQueuedTasksComplete() {
+        Iterator<TaskInfo> iterator = executionQueue.iterator();
+        while (iterator.hasNext()) {
+            TaskInfo taskInfo = iterator.next();
+            if (!taskInfo.isComplete()) {
+                return false;
+            }
+            if (!taskInfo.isMustNotRun()) {
+                // Skipped, so will never run
+                iterator.remove();
+            }
+        }
+        return true;
+    }
+
+    private void signalWorkers(int readyTasks) {
+        if (readyTasks >= waitingWorkers) {
+            taskAvailable.signalAll();
+        } else {
+            for (int i = 0; i < readyTasks; i++) {
+                taskAvailable.signal();
+            }
+        }
+    }
+
+    private void signalAll() {
+        taskAvailable.signalAll();
+        planCompleted.signalAll();
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -552,41 +716,20 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     @Nullable
     private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
-        if (runningTasks.isEmpty()) {
+        if (runningTaskOutputs.isEmpty()) {
             return null;
         }
 
         for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlap(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
             }
         }
 
         return null;
     }
 
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
-        }
-
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
-        }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
-    }
-
     boolean isParallelizable(TaskInternal task) {
         if (intraProjectParallelization) {
             Boolean safe = isParallelSafeCache.get(task);
@@ -621,6 +764,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        runningTaskOutputs.add(task, canonicalizedOutputPaths(task));
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -630,6 +774,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
+        runningTaskOutputs.remove(task, canonicalizedOutputPaths(task));
         canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
@@ -645,7 +790,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            dependencyComplete(taskInfo);
+            if (runningTasks.isEmpty()) {
+                signalAll();
+            } else {
+                // Wake up only as many workers as there are tasks that may now be able to run
+                signalWorkers(readyQueue.size());
+            }
         } finally {
             lock.unlock();
         }
@@ -665,6 +816,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         if (node.isMustNotRun() || node.isRequired()) {
             node.enforceRun();
+            maybeAddToReadyQueue(node);
         }
     }
 
@@ -694,9 +846,13 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                dependencyComplete(taskInfo);
                 aborted = true;
             }
         }
+        if (aborted) {
+            signalAll();
+        }
         return aborted;
     }
 
@@ -705,7 +861,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    planCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
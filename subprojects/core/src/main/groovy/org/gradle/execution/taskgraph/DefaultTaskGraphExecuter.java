@@ -18,6 +18,7 @@ package org.gradle.execution.taskgraph;
 
 import groovy.lang.Closure;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.execution.TaskExecutionListener;
@@ -46,9 +47,14 @@ import org.slf4j.LoggerFactory;
 
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
+
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalpath";
+
     private static Logger logger = LoggerFactory.getLogger(DefaultTaskGraphExecuter.class);
 
     private enum TaskGraphState {
@@ -58,6 +64,8 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final TaskPlanExecutor taskPlanExecutor;
     // This currently needs to be lazy, as it uses state that is not available when the graph is created
     private final Factory<? extends TaskExecuter> taskExecuter;
+    private final Factory<? extends TaskDurationHistory> taskDurationHistory;
+    private final boolean criticalPathPrioritization;
     private final TimeProvider timeProvider;
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
@@ -66,9 +74,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final BuildOperationExecutor buildOperationExecutor;
     private TaskGraphState taskGraphState = TaskGraphState.EMPTY;
 
-    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, Factory<? extends TaskDurationHistory> taskDurationHistory,
+                                    BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor, boolean criticalPathPrioritization) {
         this.taskPlanExecutor = taskPlanExecutor;
         this.taskExecuter = taskExecuter;
+        this.taskDurationHistory = taskDurationHistory;
+        this.criticalPathPrioritization = criticalPathPrioritization;
         this.timeProvider = timeProvider;
         this.buildOperationExecutor = buildOperationExecutor;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
@@ -77,6 +88,11 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         taskExecutionPlan = new DefaultTaskExecutionPlan(cancellationToken);
     }
 
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, TaskPlanExecutor taskPlanExecutor, Factory<? extends TaskExecuter> taskExecuter, Factory<? extends TaskDurationHistory> taskDurationHistory,
+                                    BuildCancellationToken cancellationToken, TimeProvider timeProvider, BuildOperationExecutor buildOperationExecutor) {
+        this(listenerManager, taskPlanExecutor, taskExecuter, taskDurationHistory, cancellationToken, timeProvider, buildOperationExecutor, Boolean.getBoolean(CRITICAL_PATH_TOGGLE));
+    }
+
     public void useFailureHandler(TaskFailureHandler handler) {
         taskExecutionPlan.useFailureHandler(handler);
     }
@@ -106,14 +122,40 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         ensurePopulated();
 
         graphListeners.getSource().graphPopulated(this);
+        TaskDurationHistory durationHistory = null;
+        Map<Task, Long> taskDurations = null;
+        if (criticalPathPrioritization) {
+            durationHistory = taskDurationHistory.create();
+            taskExecutionPlan.prioritizeByCriticalPath(durationHistory.getPreviousDurations(taskExecutionPlan.getTasks()));
+            taskDurations = new ConcurrentHashMap<Task, Long>();
+        }
+        long startTime = timeProvider.getCurrentTime();
         try {
-            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperationId()));
+            taskPlanExecutor.process(taskExecutionPlan, new EventFiringTaskWorker(taskExecuter.create(), buildOperationExecutor.getCurrentOperationId(), taskDurations));
             logger.debug("Timing: Executing the DAG took " + clock.getTime());
         } finally {
+            if (durationHistory != null) {
+                durationHistory.recordDurations(taskDurations);
+                logParallelism(taskDurations, timeProvider.getCurrentTime() - startTime);
+            }
             taskExecutionPlan.clear();
         }
     }
 
+    private void logParallelism(Map<Task, Long> taskDurations, long elapsedTime) {
+        long totalDuration = 0;
+        for (Long duration : taskDurations.values()) {
+            totalDuration += duration;
+        }
+        long criticalPathLength = taskExecutionPlan.getCriticalPathLength(taskDurations);
+        if (elapsedTime <= 0 || criticalPathLength <= 0) {
+            return;
+        }
+        logger.info(String.format("Executed %d tasks that did work in %s, with %s of task work. Achieved parallelism %.2f, ideal parallelism %.2f (critical path %s).",
+            taskDurations.size(), Clock.prettyTime(elapsedTime), Clock.prettyTime(totalDuration),
+            (double) totalDuration / elapsedTime, (double) totalDuration / criticalPathLength, Clock.prettyTime(criticalPathLength)));
+    }
+
     public void addTaskExecutionGraphListener(TaskExecutionGraphListener listener) {
         graphListeners.add(listener);
     }
@@ -185,10 +227,12 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private class EventFiringTaskWorker implements Action<TaskInternal> {
         private final TaskExecuter taskExecuter;
         private final Object parentOperationId;
+        private final Map<Task, Long> taskDurations;
 
-        public EventFiringTaskWorker(TaskExecuter taskExecuter, Object parentOperationId) {
+        public EventFiringTaskWorker(TaskExecuter taskExecuter, Object parentOperationId, @Nullable Map<Task, Long> taskDurations) {
             this.taskExecuter = taskExecuter;
             this.parentOperationId = parentOperationId;
+            this.taskDurations = taskDurations;
         }
 
         @Override
@@ -204,6 +248,10 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                 taskListeners.getSource().afterExecute(task, state);
             } finally {
                 long endTime = timeProvider.getCurrentTime();
+                // Only tasks that did work tell how long the task takes, up-to-date and skipped tasks would overwrite that with ~0ms
+                if (taskDurations != null && state.getDidWork() && !state.getSkipped()) {
+                    taskDurations.put(task, endTime - startTime);
+                }
                 internalTaskListeners.getSource().afterExecute(taskOperation, new OperationResult(startTime, endTime, task.getState().getFailure()));
             }
         }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.Pair;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchical index of the output paths of a set of tasks, which finds the task with an output that overlaps a given path in time proportional to the depth of the path.
+ * Two paths overlap when they are the same, or one is an ancestor of the other. Paths are expected to be canonical.
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+class OutputPathIndex<T> {
+    private final Node<T> root = new Node<T>();
+
+    public void add(T owner, Iterable<String> paths) {
+        for (String path : paths) {
+            Node<T> node = root;
+            node.ownersInSubtree++;
+            for (String segment : segments(path)) {
+                Node<T> child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node<T>();
+                    node.children.put(segment, child);
+                }
+                node = child;
+                node.ownersInSubtree++;
+            }
+            node.owners.add(owner);
+        }
+    }
+
+    public void remove(T owner, Iterable<String> paths) {
+        for (String path : paths) {
+            List<Node<T>> nodes = new ArrayList<Node<T>>();
+            Node<T> node = root;
+            List<String> segments = segments(path);
+            for (String segment : segments) {
+                nodes.add(node);
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+            }
+            if (node == null || !node.owners.remove(owner)) {
+                continue;
+            }
+            node.ownersInSubtree--;
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                Node<T> parent = nodes.get(i);
+                parent.ownersInSubtree--;
+                if (node.ownersInSubtree == 0) {
+                    parent.children.remove(segments.get(i));
+                }
+                node = parent;
+            }
+        }
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.ownersInSubtree = 0;
+    }
+
+    public boolean isEmpty() {
+        return root.ownersInSubtree == 0;
+    }
+
+    /**
+     * Returns some owner of a path that overlaps the given path, along with the shorter of the two overlapping paths. Returns null when there is no such owner.
+     */
+    @Nullable
+    public Pair<T, String> findOverlap(String path) {
+        Node<T> node = root;
+        List<String> segments = segments(path);
+        for (int i = 0; i < segments.size(); i++) {
+            if (!node.owners.isEmpty()) {
+                // An ancestor of the path
+                return Pair.of(node.owners.get(0), join(segments.subList(0, i), path));
+            }
+            node = node.children.get(segments.get(i));
+            if (node == null) {
+                return null;
+            }
+        }
+
+        if (node.ownersInSubtree == 0) {
+            return null;
+        }
+        // The path itself or one of its descendants
+        while (node.owners.isEmpty()) {
+            node = node.children.values().iterator().next();
+        }
+        return Pair.of(node.owners.get(0), path);
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int end = path.indexOf(File.separatorChar, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static String join(List<String> segments, String originalPath) {
+        StringBuilder builder = new StringBuilder();
+        if (originalPath.startsWith(File.separator)) {
+            builder.append(File.separatorChar);
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (i > 0) {
+                builder.append(File.separatorChar);
+            }
+            builder.append(segments.get(i));
+        }
+        return builder.toString();
+    }
+
+    private static class Node<T> {
+        final Map<String, Node<T>> children = new HashMap<String, Node<T>>();
+        final List<T> owners = new ArrayList<T>(1);
+        int ownersInSubtree;
+    }
+}
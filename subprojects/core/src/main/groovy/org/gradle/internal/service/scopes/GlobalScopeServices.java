@@ -22,9 +22,10 @@ import org.gradle.api.internal.*;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.VirtualFileSystem;
 import org.gradle.api.internal.classpath.*;
 import org.gradle.api.internal.file.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.internal.initialization.loadercache.*;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -66,6 +67,7 @@ import org.gradle.model.internal.manage.schema.extract.*;
 import org.gradle.model.internal.persist.AlwaysNewModelRegistryStore;
 import org.gradle.model.internal.persist.ModelRegistryStore;
 import org.gradle.model.internal.persist.ReusingModelRegistryStore;
+import org.gradle.process.internal.WorkerHostPool;
 
 import java.util.List;
 
@@ -163,6 +165,10 @@ public class GlobalScopeServices {
         return messagingServices.get(MessagingServer.class);
     }
 
+    WorkerHostPool createWorkerHostPool() {
+        return new WorkerHostPool();
+    }
+
     ClassGenerator createClassGenerator() {
         return new AsmBackedClassGenerator();
     }
@@ -209,7 +215,7 @@ public class GlobalScopeServices {
 
     ClassPathSnapshotter createClassPathSnapshotter(GradleBuildEnvironment environment, StringInterner stringInterner) {
         if (environment.isLongLivingProcess()) {
-            CachingFileSnapshotter fileSnapshotter = new CachingFileSnapshotter(new DefaultHasher(), new NonThreadsafeInMemoryStore(), stringInterner);
+            CachingFileSnapshotter fileSnapshotter = new CachingFileSnapshotter(FileHashAlgorithm.fromSystemProperty().createHasher(), new NonThreadsafeInMemoryStore(), stringInterner);
             return new HashClassPathSnapshotter(fileSnapshotter);
         } else {
             return new FileClassPathSnapshotter();
@@ -259,6 +265,10 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory);
     }
 
+    VirtualFileSystem createVirtualFileSystem(FileWatcherFactory fileWatcherFactory) {
+        return new VirtualFileSystem(fileWatcherFactory);
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
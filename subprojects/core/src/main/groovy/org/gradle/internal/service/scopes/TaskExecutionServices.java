@@ -23,12 +23,13 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.CacheDecorator;
+import org.gradle.execution.taskgraph.TaskDurationHistory;
 import org.gradle.execution.taskgraph.TaskPlanExecutor;
 import org.gradle.execution.taskgraph.TaskPlanExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -81,12 +82,24 @@ public class TaskExecutionServices {
         return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
     }
 
-    FileTreeElementSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
+    CachingFileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+        FileHashAlgorithm hashAlgorithm = FileHashAlgorithm.fromSystemProperty();
+        return new CachingFileSnapshotter(hashAlgorithm.createHasher(), hashAlgorithm.getCacheName(), cacheAccess, stringInterner);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileTreeElementSnapshotter fileSnapshotter, StringInterner stringInterner) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
+    ParallelFileSnapshotter createParallelFileSnapshotter(CachingFileSnapshotter fileSnapshotter, TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new ParallelFileSnapshotter(fileSnapshotter, cacheAccess, executorFactory, startParameter.getMaxWorkerCount());
+    }
+
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileTreeElementSnapshotter fileSnapshotter, ParallelFileSnapshotter parallelFileSnapshotter, StringInterner stringInterner,
+                                                                  VirtualFileSystem virtualFileSystem, GradleBuildEnvironment environment, ListenerManager listenerManager) {
+        // The virtual file system is only useful when it outlives the build
+        boolean useVirtualFileSystem = VirtualFileSystem.isEnabled() && environment.isLongLivingProcess();
+        if (useVirtualFileSystem) {
+            listenerManager.addListener(virtualFileSystem);
+        }
+        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner, ParallelFileSnapshotter.isEnabled() ? parallelFileSnapshotter : null,
+            useVirtualFileSystem ? virtualFileSystem : null);
 
         FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, stringInterner);
 
@@ -112,6 +125,10 @@ public class TaskExecutionServices {
         );
     }
 
+    TaskDurationHistory createTaskDurationHistory(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CacheBackedTaskDurationHistory(cacheAccess);
+    }
+
     TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
         return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
     }
@@ -17,6 +17,8 @@
 package org.gradle.process.internal;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.Transformer;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.logging.LogLevel;
@@ -27,14 +29,21 @@ import org.gradle.messaging.remote.Address;
 import org.gradle.messaging.remote.ConnectionAcceptor;
 import org.gradle.messaging.remote.MessagingServer;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.child.ActionExecutionWorker;
 import org.gradle.process.internal.child.ApplicationClassesInIsolatedClassLoaderWorkerFactory;
 import org.gradle.process.internal.child.ApplicationClassesInSystemClassLoaderWorkerFactory;
 import org.gradle.process.internal.child.WorkerFactory;
+import org.gradle.process.internal.child.WorkerHostAction;
+import org.gradle.process.internal.child.WorkerSessionSpec;
+import org.gradle.util.GUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -46,16 +55,27 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
     private final FileResolver resolver;
     private final IdGenerator<?> idGenerator;
     private final File gradleUserHomeDir;
+    private final WorkerHostPool workerHostPool;
 
     public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
                                        ClassPathRegistry classPathRegistry, FileResolver resolver,
                                        IdGenerator<?> idGenerator, File gradleUserHomeDir) {
+        this(workerLogLevel, server, classPathRegistry, resolver, idGenerator, gradleUserHomeDir, null);
+    }
+
+    /**
+     * @param workerHostPool The pool of reusable worker processes to run reusable worker actions in. When null, each worker action runs in a new worker process.
+     */
+    public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
+                                       ClassPathRegistry classPathRegistry, FileResolver resolver,
+                                       IdGenerator<?> idGenerator, File gradleUserHomeDir, @Nullable WorkerHostPool workerHostPool) {
         this.workerLogLevel = workerLogLevel;
         this.server = server;
         this.classPathRegistry = classPathRegistry;
         this.resolver = resolver;
         this.idGenerator = idGenerator;
         this.gradleUserHomeDir = gradleUserHomeDir;
+        this.workerHostPool = workerHostPool;
     }
 
     public WorkerProcessBuilder create() {
@@ -74,7 +94,13 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
             if (getWorker() == null) {
                 throw new IllegalStateException("No worker action specified for this worker process.");
             }
+            if (isReusable() && workerHostPool != null) {
+                return buildReusable();
+            }
+            return buildProcess(null);
+        }
 
+        private WorkerProcess buildProcess(@Nullable ExecHandleListener listener) {
             final DefaultWorkerProcess workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
             ConnectionAcceptor acceptor = server.accept(new Action<ObjectConnection>() {
                 public void execute(ObjectConnection connection) {
@@ -106,11 +132,65 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
             workerFactory.prepareJavaCommand(javaCommand);
             javaCommand.setDisplayName(displayName);
             javaCommand.args("'" + displayName + "'");
+            if (listener != null) {
+                javaCommand.listener(listener);
+            }
             ExecHandle execHandle = javaCommand.build();
 
             workerProcess.setExecHandle(execHandle);
 
             return workerProcess;
         }
+
+        private WorkerProcess buildReusable() {
+            final Object id = idGenerator.generateId();
+            final String displayName = getBaseName() + " " + id;
+            final List<URL> implementationClassPath = ClasspathUtil.getClasspath(getWorker().getClass().getClassLoader());
+            final List<URI> applicationClassPath = new ArrayList<URI>();
+            for (File file : getApplicationClasspath()) {
+                applicationClassPath.add(file.toURI());
+            }
+
+            LOGGER.debug("Creating {} to run in a reusable worker process", displayName);
+            LOGGER.debug("Using application classpath {}", getApplicationClasspath());
+            LOGGER.debug("Using implementation classpath {}", implementationClassPath);
+
+            Transformer<WorkerSessionSpec, Address> sessionSpecFactory = new Transformer<WorkerSessionSpec, Address>() {
+                public WorkerSessionSpec transform(Address serverAddress) {
+                    ActionExecutionWorker worker = new ActionExecutionWorker(getWorker(), id, displayName, serverAddress, getGradleUserHomeDir());
+                    return new WorkerSessionSpec(displayName, applicationClassPath, getSharedPackages(), implementationClassPath, GUtil.serialize(worker));
+                }
+            };
+            final Object hostKey = getHostKey();
+            Factory<WorkerHost> hostFactory = new Factory<WorkerHost>() {
+                public WorkerHost create() {
+                    return startHost(hostKey);
+                }
+            };
+            return new ReusableWorkerProcess(displayName, server, workerHostPool, hostKey, hostFactory, sessionSpecFactory, 120, TimeUnit.SECONDS);
+        }
+
+        /**
+         * A reusable worker process can be used by any worker action with the same Java command and logging configuration.
+         */
+        private Object getHostKey() {
+            JavaExecHandleBuilder javaCommand = getJavaCommand();
+            return Arrays.asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getWorkingDir(), javaCommand.getEnvironment(), getLogLevel(), getGradleUserHomeDir());
+        }
+
+        private WorkerHost startHost(Object hostKey) {
+            DefaultWorkerProcessBuilder hostBuilder = new DefaultWorkerProcessBuilder();
+            hostBuilder.setBaseName("Gradle Reusable Worker");
+            hostBuilder.setLogLevel(getLogLevel());
+            hostBuilder.setGradleUserHomeDir(getGradleUserHomeDir());
+            hostBuilder.worker(new WorkerHostAction());
+            getJavaCommand().copyTo(hostBuilder.getJavaCommand());
+
+            WorkerHost host = new WorkerHost(hostKey);
+            WorkerProcess hostProcess = hostBuilder.buildProcess(host);
+            hostProcess.start();
+            host.attach(hostProcess);
+            return host;
+        }
     }
 }
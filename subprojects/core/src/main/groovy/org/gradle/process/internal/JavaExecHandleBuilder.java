@@ -204,7 +204,10 @@ public class JavaExecHandleBuilder extends AbstractExecHandleBuilder implements
     }
 
     public JavaForkOptions copyTo(JavaForkOptions options) {
-        throw new UnsupportedOperationException();
+        javaOptions.copyTo(options);
+        // The executable, working directory and environment of this builder take precedence over those of the Java options
+        super.copyTo(options);
+        return this;
     }
 
     public ExecHandle build() {
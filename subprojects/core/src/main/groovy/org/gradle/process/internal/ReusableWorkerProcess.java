@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal;
+
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.ConnectionAcceptor;
+import org.gradle.messaging.remote.MessagingServer;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.child.WorkerSessionSpec;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * A worker process whose worker action runs as a session of a reusable worker process. The reusable worker process is taken from a {@link WorkerHostPool}, or started when
+ * the pool contains no suitable worker process, and is returned to the pool when the session completes successfully.
+ */
+class ReusableWorkerProcess implements WorkerProcess {
+    private final String displayName;
+    private final MessagingServer server;
+    private final WorkerHostPool hostPool;
+    private final Object hostKey;
+    private final Factory<WorkerHost> hostFactory;
+    private final Transformer<WorkerSessionSpec, Address> sessionSpecFactory;
+    private final long connectTimeout;
+    private WorkerHost host;
+    private ConnectionAcceptor acceptor;
+    private ObjectConnection connection;
+
+    ReusableWorkerProcess(String displayName, MessagingServer server, WorkerHostPool hostPool, Object hostKey, Factory<WorkerHost> hostFactory,
+                          Transformer<WorkerSessionSpec, Address> sessionSpecFactory, int connectTimeoutValue, TimeUnit connectTimeoutUnits) {
+        this.displayName = displayName;
+        this.server = server;
+        this.hostPool = hostPool;
+        this.hostKey = hostKey;
+        this.hostFactory = hostFactory;
+        this.sessionSpecFactory = sessionSpecFactory;
+        this.connectTimeout = connectTimeoutUnits.toMillis(connectTimeoutValue);
+    }
+
+    public void start() {
+        host = hostPool.take(hostKey);
+        if (host == null) {
+            host = hostFactory.create();
+        }
+
+        final WorkerHost target = host;
+        acceptor = server.accept(new Action<ObjectConnection>() {
+            public void execute(ObjectConnection connection) {
+                target.onSessionConnect(connection);
+            }
+        });
+        try {
+            connection = host.startSession(sessionSpecFactory.transform(acceptor.getAddress()), connectTimeout);
+        } catch (Throwable t) {
+            CompositeStoppable.stoppable(acceptor, host).stop();
+            throw UncheckedException.throwAsUncheckedException(t);
+        }
+        acceptor.requestStop();
+    }
+
+    public ObjectConnection getConnection() {
+        return connection;
+    }
+
+    public ExecResult waitForStop() {
+        String failure;
+        try {
+            failure = host.awaitSessionCompletion();
+        } finally {
+            CompositeStoppable.stoppable(acceptor, connection).stop();
+            acceptor = null;
+            connection = null;
+        }
+        if (failure != null) {
+            host.stop();
+            throw new ExecException(format("%s failed: %s", displayName, failure));
+        }
+        hostPool.release(host);
+        return new CompletedSessionResult();
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    private static class CompletedSessionResult implements ExecResult {
+        public int getExitValue() {
+            return 0;
+        }
+
+        public ExecResult assertNormalExitValue() {
+            return this;
+        }
+
+        public ExecResult rethrowFailure() {
+            return this;
+        }
+    }
+}
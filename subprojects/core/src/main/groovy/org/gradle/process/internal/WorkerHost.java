@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.child.RemoteWorkerHost;
+import org.gradle.process.internal.child.WorkerHostListener;
+import org.gradle.process.internal.child.WorkerSessionSpec;
+
+import java.util.Date;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.String.format;
+
+/**
+ * The server side of a reusable worker process, which runs one session at a time. See {@link org.gradle.process.internal.child.WorkerHostAction}.
+ */
+class WorkerHost implements WorkerHostListener, ExecHandleListener, Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(WorkerHost.class);
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final Object key;
+    private WorkerProcess process;
+    private RemoteWorkerHost remoteHost;
+    private boolean running = true;
+    private boolean sessionRunning;
+    private String sessionFailure;
+    private ObjectConnection sessionConnection;
+
+    WorkerHost(Object key) {
+        this.key = key;
+    }
+
+    /**
+     * The key of the worker processes that can be used in place of this worker process.
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Attaches this host to the given started worker process.
+     */
+    public void attach(WorkerProcess process) {
+        this.process = process;
+        ObjectConnection connection = process.getConnection();
+        connection.addIncoming(WorkerHostListener.class, this);
+        remoteHost = connection.addOutgoing(RemoteWorkerHost.class);
+        connection.connect();
+    }
+
+    public boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts the given session, and waits for its worker action to connect to the server.
+     */
+    public ObjectConnection startSession(WorkerSessionSpec spec, long connectTimeout) {
+        lock.lock();
+        try {
+            sessionRunning = true;
+            sessionFailure = null;
+            sessionConnection = null;
+        } finally {
+            lock.unlock();
+        }
+
+        remoteHost.runSession(spec);
+
+        Date connectExpiry = new Date(System.currentTimeMillis() + connectTimeout);
+        lock.lock();
+        try {
+            while (sessionConnection == null && sessionRunning && running) {
+                try {
+                    if (!condition.awaitUntil(connectExpiry)) {
+                        throw new ExecException(format("Unable to connect to %s. The connection attempt hit a timeout after %.1f seconds.", spec.getDisplayName(), ((double) connectTimeout) / 1000));
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            if (sessionConnection == null) {
+                throw new ExecException(format("Could not start %s: %s", spec.getDisplayName(), running ? sessionFailure : "the reusable worker process stopped unexpectedly."));
+            }
+            return sessionConnection;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when the worker action of the current session connects to the server.
+     */
+    public void onSessionConnect(ObjectConnection connection) {
+        lock.lock();
+        try {
+            sessionConnection = connection;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the current session to complete.
+     *
+     * @return A description of the failure of the session, or null when the session completed successfully.
+     */
+    @Nullable
+    public String awaitSessionCompletion() {
+        lock.lock();
+        try {
+            while (sessionRunning && running) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            return sessionRunning ? "the reusable worker process stopped unexpectedly." : sessionFailure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sessionCompleted(@Nullable String failure) {
+        lock.lock();
+        try {
+            sessionRunning = false;
+            sessionFailure = failure;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void executionStarted(ExecHandle execHandle) {
+    }
+
+    public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+        lock.lock();
+        try {
+            running = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        if (process == null) {
+            return;
+        }
+        boolean stopped;
+        boolean idle;
+        lock.lock();
+        try {
+            stopped = !running;
+            idle = !sessionRunning;
+        } finally {
+            lock.unlock();
+        }
+        if (!stopped) {
+            remoteHost.stop();
+        }
+        if (!stopped && !idle) {
+            // The worker process stops once the current session has completed, which may never happen, so do not wait
+            return;
+        }
+        try {
+            process.waitForStop();
+        } catch (ExecException e) {
+            LOGGER.debug("Reusable worker process failed.", e);
+        }
+    }
+}
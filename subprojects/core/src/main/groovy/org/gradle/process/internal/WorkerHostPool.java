@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The idle reusable worker processes, which are kept for the lifetime of the build process. When this is a daemon, a worker process can be reused by later builds.
+ *
+ * <p>The most recently used worker processes are kept, up to a limit.</p>
+ */
+public class WorkerHostPool implements Stoppable {
+    private static final int MAX_IDLE_HOSTS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final LinkedList<WorkerHost> idleHosts = new LinkedList<WorkerHost>();
+
+    /**
+     * Removes and returns a running idle worker process with the given key, or returns null when there is no such worker process.
+     */
+    @Nullable
+    WorkerHost take(Object key) {
+        List<WorkerHost> stoppedHosts = new ArrayList<WorkerHost>();
+        WorkerHost match = null;
+        synchronized (this) {
+            Iterator<WorkerHost> iterator = idleHosts.iterator();
+            while (iterator.hasNext()) {
+                WorkerHost host = iterator.next();
+                if (!host.isRunning()) {
+                    iterator.remove();
+                    stoppedHosts.add(host);
+                } else if (host.getKey().equals(key)) {
+                    iterator.remove();
+                    match = host;
+                    break;
+                }
+            }
+        }
+        CompositeStoppable.stoppable(stoppedHosts).stop();
+        return match;
+    }
+
+    /**
+     * Adds the given worker process, which has completed its session, to this pool. Stops the least recently used worker process when there are too many.
+     */
+    void release(WorkerHost host) {
+        WorkerHost evicted = null;
+        synchronized (this) {
+            idleHosts.addFirst(host);
+            if (idleHosts.size() > MAX_IDLE_HOSTS) {
+                evicted = idleHosts.removeLast();
+            }
+        }
+        if (evicted != null) {
+            evicted.stop();
+        }
+    }
+
+    public void stop() {
+        List<WorkerHost> hosts;
+        synchronized (this) {
+            hosts = new ArrayList<WorkerHost>(idleHosts);
+            idleHosts.clear();
+        }
+        CompositeStoppable.stoppable(hosts).stop();
+    }
+}
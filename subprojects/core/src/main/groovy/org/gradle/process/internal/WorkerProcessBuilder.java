@@ -42,6 +42,7 @@ public abstract class WorkerProcessBuilder {
     private Action<? super WorkerProcessContext> action;
     private LogLevel logLevel = LogLevel.LIFECYCLE;
     private boolean loadApplicationInSystemClassLoader;
+    private boolean reusable;
     private String baseName = "Gradle Worker";
     private File gradleUserHomeDir;
 
@@ -110,6 +111,18 @@ public abstract class WorkerProcessBuilder {
         this.loadApplicationInSystemClassLoader = loadApplicationInSystemClassLoader;
     }
 
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    /**
+     * Allows the worker action to run in a worker process that is reused by other worker actions, when supported. Such a worker process has the same Java command as this worker process,
+     * and the application classes are loaded into an isolated ClassLoader that is discarded when the worker action completes.
+     */
+    public void setReusable(boolean reusable) {
+        this.reusable = reusable;
+    }
+
     public File getGradleUserHomeDir() {
         return gradleUserHomeDir;
     }
@@ -57,12 +57,7 @@ public class ImplementationClassLoaderWorker implements Action<WorkerContext>, S
         LoggingManagerInternal loggingManager = createLoggingManager();
         loggingManager.setLevel(logLevel).start();
 
-        FilteringClassLoader filteredWorkerClassLoader = new FilteringClassLoader(getClass().getClassLoader());
-        filteredWorkerClassLoader.allowPackage("org.slf4j");
-        filteredWorkerClassLoader.allowClass(Logger.class);
-        filteredWorkerClassLoader.allowClass(LogLevel.class);
-        filteredWorkerClassLoader.allowClass(Action.class);
-        filteredWorkerClassLoader.allowClass(WorkerContext.class);
+        FilteringClassLoader filteredWorkerClassLoader = createFilteredWorkerClassLoader(getClass().getClassLoader());
 
         ClassLoader applicationClassLoader = workerContext.getApplicationClassLoader();
         FilteringClassLoader filteredApplication = new FilteringClassLoader(applicationClassLoader);
@@ -87,6 +82,19 @@ public class ImplementationClassLoaderWorker implements Action<WorkerContext>, S
         action.execute(workerContext);
     }
 
+    /**
+     * Creates a ClassLoader that makes the classes of the given infrastructure ClassLoader that are shared with the worker action visible.
+     */
+    static FilteringClassLoader createFilteredWorkerClassLoader(ClassLoader infrastructureClassLoader) {
+        FilteringClassLoader filteredWorkerClassLoader = new FilteringClassLoader(infrastructureClassLoader);
+        filteredWorkerClassLoader.allowPackage("org.slf4j");
+        filteredWorkerClassLoader.allowClass(Logger.class);
+        filteredWorkerClassLoader.allowClass(LogLevel.class);
+        filteredWorkerClassLoader.allowClass(Action.class);
+        filteredWorkerClassLoader.allowClass(WorkerContext.class);
+        return filteredWorkerClassLoader;
+    }
+
     LoggingManagerInternal createLoggingManager() {
         return LoggingServiceRegistry.newCommandLineProcessLogging().newInstance(LoggingManagerInternal.class);
     }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.child;
+
+/**
+ * The control interface of a reusable worker process, called by the server process.
+ */
+public interface RemoteWorkerHost {
+    /**
+     * Runs the given session. Does not block. Notifies {@link WorkerHostListener#sessionCompleted(String)} when the session has completed.
+     */
+    void runSession(WorkerSessionSpec spec);
+
+    /**
+     * Stops the worker process once the current session, if any, has completed. Does not block.
+     */
+    void stop();
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.child;
+
+import org.gradle.api.Action;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.CachingClassLoader;
+import org.gradle.internal.classloader.DefaultClassLoaderFactory;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classloader.MutableURLClassLoader;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>The worker action of a reusable worker process. Runs a sequence of sessions until stopped, each of which executes a worker action with its own
+ * application and implementation ClassLoader, and its own connection to the server process.</p>
+ *
+ * <p>The ClassLoaders of a session are created in the same way as {@link ImplementationClassLoaderWorker} creates them for a worker process, except
+ * that the application classes are always loaded in an isolated ClassLoader. The system properties are restored once a session has completed.</p>
+ */
+public class WorkerHostAction implements Action<WorkerProcessContext>, RemoteWorkerHost, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerHostAction.class);
+    private transient CountDownLatch stopped;
+    private transient WorkerHostListener listener;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        stopped = new CountDownLatch(1);
+
+        ObjectConnection connection = workerProcessContext.getServerConnection();
+        listener = connection.addOutgoing(WorkerHostListener.class);
+        connection.addIncoming(RemoteWorkerHost.class, this);
+        connection.connect();
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    public void runSession(WorkerSessionSpec spec) {
+        LOGGER.debug("Starting {}.", spec.getDisplayName());
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ClassLoader applicationClassLoader = null;
+        ClassLoader implementationClassLoader = null;
+        String failure = null;
+        try {
+            applicationClassLoader = new DefaultClassLoaderFactory().createIsolatedClassLoader(spec.getApplicationClassPath());
+            implementationClassLoader = createImplementationClassLoader(spec, applicationClassLoader);
+            run(spec, applicationClassLoader, implementationClassLoader);
+        } catch (Throwable t) {
+            LOGGER.error(String.format("Failed to run %s.", spec.getDisplayName()), t);
+            failure = t.toString();
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            System.setProperties(systemProperties);
+            // Release the jars of the implementation and application classpaths, where supported
+            CompositeStoppable.stoppable(implementationClassLoader, applicationClassLoader).stop();
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+        LOGGER.debug("Completed {}.", spec.getDisplayName());
+        listener.sessionCompleted(failure);
+    }
+
+    private ClassLoader createImplementationClassLoader(WorkerSessionSpec spec, ClassLoader applicationClassLoader) {
+        FilteringClassLoader filteredWorkerClassLoader = ImplementationClassLoaderWorker.createFilteredWorkerClassLoader(WorkerContext.class.getClassLoader());
+        FilteringClassLoader filteredApplication = new FilteringClassLoader(applicationClassLoader);
+        for (String sharedPackage : spec.getSharedPackages()) {
+            filteredApplication.allowPackage(sharedPackage);
+        }
+        MutableURLClassLoader implementationClassLoader = new MutableURLClassLoader(new CachingClassLoader(new MultiParentClassLoader(filteredApplication, filteredWorkerClassLoader)));
+        implementationClassLoader.addURLs(spec.getImplementationClassPath());
+        return implementationClassLoader;
+    }
+
+    private void run(WorkerSessionSpec spec, final ClassLoader applicationClassLoader, ClassLoader implementationClassLoader) throws Exception {
+        ObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(spec.getSerializedWorker()), implementationClassLoader);
+        Action<WorkerContext> action = Cast.uncheckedCast(instr.readObject());
+        action.execute(new WorkerContext() {
+            public ClassLoader getApplicationClassLoader() {
+                return applicationClassLoader;
+            }
+        });
+    }
+
+    public void stop() {
+        stopped.countDown();
+    }
+}
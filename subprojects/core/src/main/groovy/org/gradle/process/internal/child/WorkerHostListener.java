@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.child;
+
+import org.gradle.api.Nullable;
+
+/**
+ * Receives notifications from a reusable worker process, in the server process.
+ */
+public interface WorkerHostListener {
+    /**
+     * Called when a session has completed.
+     *
+     * @param failure A description of the failure of the session, or null when the session completed successfully.
+     */
+    void sessionCompleted(@Nullable String failure);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.child;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The details of a worker action to run in a reusable worker process.
+ */
+public class WorkerSessionSpec implements Serializable {
+    private final String displayName;
+    private final List<URI> applicationClassPath;
+    private final List<String> sharedPackages;
+    private final List<URL> implementationClassPath;
+    private final byte[] serializedWorker;
+
+    /**
+     * @param serializedWorker The serialized {@link ActionExecutionWorker} to run.
+     */
+    public WorkerSessionSpec(String displayName, Collection<URI> applicationClassPath, Collection<String> sharedPackages, Collection<URL> implementationClassPath, byte[] serializedWorker) {
+        this.displayName = displayName;
+        this.applicationClassPath = new ArrayList<URI>(applicationClassPath);
+        this.sharedPackages = new ArrayList<String>(sharedPackages);
+        this.implementationClassPath = new ArrayList<URL>(implementationClassPath);
+        this.serializedWorker = serializedWorker;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public List<URI> getApplicationClassPath() {
+        return applicationClassPath;
+    }
+
+    public List<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    public List<URL> getImplementationClassPath() {
+        return implementationClassPath;
+    }
+
+    public byte[] getSerializedWorker() {
+        return serializedWorker;
+    }
+}
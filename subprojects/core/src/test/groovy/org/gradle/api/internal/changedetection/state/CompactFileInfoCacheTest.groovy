@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import spock.lang.Specification
+
+class CompactFileInfoCacheTest extends Specification {
+    def cache = new CompactFileInfoCache(100)
+
+    def "returns cached file info"() {
+        def hash = (0..<16).collect { it as byte } as byte[]
+
+        when:
+        cache.put("/some/file", new CachingFileSnapshotter.FileInfo(hash, 12, 34))
+        def result = cache.getIfPresent("/some/file")
+
+        then:
+        result.hash == hash
+        result.length == 12
+        result.timestamp == 34
+        cache.size() == 1
+        cache.getIfPresent("/other/file") == null
+    }
+
+    def "replaces cached file info"() {
+        when:
+        cache.put("/some/file", fileInfo(1))
+        cache.put("/some/file", fileInfo(2))
+
+        then:
+        cache.getIfPresent("/some/file").length == 2
+        cache.size() == 1
+    }
+
+    def "removes entry when some other value is put"() {
+        given:
+        cache.put("/some/file", fileInfo(1))
+
+        when:
+        cache.put("/some/file", value)
+
+        then:
+        cache.getIfPresent("/some/file") == null
+        cache.size() == 0
+
+        where:
+        value << [new Object(), new CachingFileSnapshotter.FileInfo(new byte[20], 1, 1)]
+    }
+
+    def "distinguishes paths that share a directory or a file name"() {
+        when:
+        cache.put("/some/file", fileInfo(1))
+        cache.put("/some/other", fileInfo(2))
+        cache.put("/other/file", fileInfo(3))
+        cache.put("/some/dir/file", fileInfo(4))
+        cache.put("file", fileInfo(5))
+
+        then:
+        cache.getIfPresent("/some/file").length == 1
+        cache.getIfPresent("/some/other").length == 2
+        cache.getIfPresent("/other/file").length == 3
+        cache.getIfPresent("/some/dir/file").length == 4
+        cache.getIfPresent("file").length == 5
+        cache.getIfPresent("/some/fil") == null
+        cache.getIfPresent("/some/dir") == null
+        cache.size() == 5
+
+        when:
+        cache.invalidate("/some/file")
+        cache.invalidate("/some/other")
+        cache.put("/some/file", fileInfo(6))
+
+        then:
+        cache.getIfPresent("/some/file").length == 6
+        cache.getIfPresent("/some/other") == null
+        cache.getIfPresent("/other/file").length == 3
+    }
+
+    def "does not create a new value for each hit"() {
+        given:
+        cache.put("/some/file", fileInfo(1))
+        cache.put("/some/other", fileInfo(2))
+
+        expect:
+        cache.getIfPresent("/some/file").is(cache.getIfPresent("/some/file"))
+        cache.getIfPresent("/some/other").is(cache.getIfPresent("/some/other"))
+    }
+
+    def "can remove entries"() {
+        given:
+        (0..<50).each { cache.put("/file" + it, fileInfo(it)) }
+
+        when:
+        (0..<50).step(2) { cache.invalidate("/file" + it) }
+
+        then:
+        cache.size() == 25
+        (0..<50).every { cache.getIfPresent("/file" + it)?.length == (it % 2 == 0 ? null : it) }
+
+        when:
+        cache.invalidateAll()
+
+        then:
+        cache.size() == 0
+        cache.getIfPresent("/file1") == null
+    }
+
+    def "grows as entries are added"() {
+        def cache = new CompactFileInfoCache(10000)
+
+        when:
+        (0..<5000).each { cache.put("/file" + it, fileInfo(it)) }
+
+        then:
+        cache.size() == 5000
+        (0..<5000).every { cache.getIfPresent("/file" + it).length == it }
+    }
+
+    def "evicts entries that have not been used recently when full"() {
+        given:
+        (0..<100).each { cache.put("/file" + it, fileInfo(it)) }
+        // Clears the referenced flag of all entries, then evicts one of them
+        cache.put("/file100", fileInfo(100))
+        def used = (0..<100).find { cache.getIfPresent("/file" + it) != null }
+
+        when:
+        (101..<150).each { cache.put("/file" + it, fileInfo(it)) }
+
+        then:
+        cache.size() == 100
+        cache.getIfPresent("/file" + used) != null
+        cache.getIfPresent("/file149") != null
+        cache.stats().evictionCount() == 50
+    }
+
+    def fileInfo(int value) {
+        return new CachingFileSnapshotter.FileInfo(new byte[16], value, value)
+    }
+}
@@ -18,7 +18,11 @@ package org.gradle.api.internal.changedetection.state
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTreeElement
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.FileTreeAdapter
 import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherFactory
 import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -228,6 +232,32 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         1 * listener.added(file.path)
     }
 
+    def reusesSnapshotOfDirectoryTreeFromVirtualFileSystemUntilTreeChanges() {
+        given:
+        def watcherFactory = Mock(FileWatcherFactory)
+        def virtualFileSystem = new VirtualFileSystem(watcherFactory)
+        def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new StringInterner(), null, virtualFileSystem)
+        TestFile dir = tmpDir.createDir('dir')
+        TestFile file = dir.createFile('file')
+        def tree = new FileTreeAdapter(new DirectoryFileTree(dir))
+
+        when:
+        def original = snapshotter.snapshot(tree)
+        file.write('new content')
+        snapshotter.snapshot(tree).iterateChangesSince(original).next(listener)
+
+        then:
+        1 * watcherFactory.watch(_, _, _) >> Stub(FileWatcher)
+        0 * listener._
+
+        when:
+        virtualFileSystem.invalidate([file])
+        snapshotter.snapshot(tree).iterateChangesSince(original).next(listener)
+
+        then:
+        1 * listener.changed(file.path)
+    }
+
     def diffAddsAddedFilesToSnapshot() {
         TestFile file = tmpDir.createFile('file')
 
@@ -133,4 +133,30 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "uses compact cache for file hashes when enabled"() {
+        def cacheFactory = new InMemoryTaskArtifactCache(true)
+        def fileInfo = new CachingFileSnapshotter.FileInfo(new byte[16], 1, 2)
+
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", target)
+
+        when:
+        cache.put("/some/file", fileInfo)
+
+        then:
+        1 * target.put("/some/file", fileInfo)
+        0 * target._
+
+        when:
+        def result = cache.get("/some/file")
+
+        then:
+        result instanceof CachingFileSnapshotter.FileInfo
+        result.hash == fileInfo.hash
+        result.length == 1
+        result.timestamp == 2
+
+        and:
+        0 * target._
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.FileTreeElement
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class ParallelFileSnapshotterTest extends Specification {
+    def fileSnapshotter = Mock(CachingFileSnapshotter)
+    def cacheAccess = Mock(TaskArtifactStateCacheAccess)
+    def executorFactory = new DefaultExecutorFactory()
+    def snapshotter = new ParallelFileSnapshotter(fileSnapshotter, cacheAccess, executorFactory, 4)
+
+    def setup() {
+        _ * cacheAccess.useCache(_, _) >> { String name, Runnable action -> action.run() }
+    }
+
+    def cleanup() {
+        snapshotter.stop()
+        executorFactory.stop()
+    }
+
+    def "uses cached snapshots of unchanged files"() {
+        def file = Stub(FileTreeElement)
+        def cached = new CachingFileSnapshotter.FileInfo("hash".bytes, 1, 2)
+
+        when:
+        def result = snapshotter.snapshot([file])
+
+        then:
+        result == [cached]
+
+        and:
+        1 * fileSnapshotter.getCachedSnapshot(file) >> cached
+        0 * fileSnapshotter._
+    }
+
+    def "hashes changed files and writes the new snapshots back to the cache"() {
+        def files = (0..<100).collect { Stub(FileTreeElement) }
+        def hashes = files.collect { new CachingFileSnapshotter.FileInfo(it.toString().bytes, 1, 2) }
+
+        when:
+        def result = snapshotter.snapshot(files)
+
+        then:
+        result == hashes
+
+        and:
+        100 * fileSnapshotter.getCachedSnapshot(_) >> { FileTreeElement file -> files.indexOf(file) % 2 == 0 ? hashes[files.indexOf(file)] : null }
+        50 * fileSnapshotter.hash(_) >> { FileTreeElement file -> hashes[files.indexOf(file)] }
+        50 * fileSnapshotter.cacheSnapshot(_, _) >> { FileTreeElement file, CachingFileSnapshotter.FileInfo info ->
+            assert hashes[files.indexOf(file)] == info
+        }
+        0 * fileSnapshotter._
+    }
+
+    def "propagates failure to hash a file"() {
+        def files = (0..<100).collect { Stub(FileTreeElement) }
+        def failure = new RuntimeException("broken")
+
+        given:
+        fileSnapshotter.getCachedSnapshot(_) >> null
+        fileSnapshotter.hash(_) >> { throw failure }
+
+        when:
+        snapshotter.snapshot(files)
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+}
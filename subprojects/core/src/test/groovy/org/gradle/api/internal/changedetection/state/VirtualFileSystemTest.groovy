@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Action
+import org.gradle.api.Task
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.tasks.TaskOutputs
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.filewatch.FileWatcherListener
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@UsesNativeServices
+class VirtualFileSystemTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def watcherFactory = Mock(FileWatcherFactory)
+    def watcher = Mock(FileWatcher)
+    def virtualFileSystem = new VirtualFileSystem(watcherFactory)
+    FileWatcherListener watchListener
+    Action<? super Throwable> onError
+    TestFile dir
+    DirectoryFileTree tree
+    def snapshots = [foo: new DefaultFileCollectionSnapshotter.DirSnapshot()]
+
+    def setup() {
+        dir = tmpDir.createDir("dir")
+        tree = new DirectoryFileTree(dir)
+        _ * watcherFactory.watch(_, _, _) >> { subset, errorAction, listener ->
+            onError = errorAction
+            watchListener = listener
+            watcher
+        }
+    }
+
+    def "has no snapshots for tree that was never snapshotted"() {
+        expect:
+        virtualFileSystem.getSnapshots(tree) == null
+    }
+
+    def "returns snapshots of unchanged tree"() {
+        when:
+        def version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(tree, version, snapshots)
+
+        then:
+        1 * watcherFactory.watch(_, _, _) >> watcher
+        virtualFileSystem.getSnapshots(tree) == snapshots
+        virtualFileSystem.getSnapshots(new DirectoryFileTree(dir)) == snapshots
+    }
+
+    def "keeps snapshots per set of patterns"() {
+        def filteredTree = new DirectoryFileTree(dir, new PatternSet().include("**/*.java"))
+        def filteredSnapshots = [bar: new DefaultFileCollectionSnapshotter.DirSnapshot()]
+
+        when:
+        def version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(tree, version, snapshots)
+
+        then:
+        1 * watcherFactory.watch(_, _, _) >> watcher
+        virtualFileSystem.getSnapshots(filteredTree) == null
+
+        when:
+        version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(filteredTree, version, filteredSnapshots)
+
+        then:
+        0 * watcherFactory._
+        virtualFileSystem.getSnapshots(tree) == snapshots
+        virtualFileSystem.getSnapshots(filteredTree) == filteredSnapshots
+    }
+
+    def "finds snapshots of tree with the same include and exclude patterns"() {
+        def filteredTree = new DirectoryFileTree(dir, new PatternSet().include("**/*.java", "**/*.groovy").exclude("**/Test*"))
+        def sameTree = new DirectoryFileTree(dir, new PatternSet().include("**/*.groovy", "**/*.java").exclude("**/Test*"))
+
+        when:
+        def version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(filteredTree, version, snapshots)
+
+        then:
+        virtualFileSystem.canKeep(filteredTree)
+        virtualFileSystem.getSnapshots(sameTree) == snapshots
+        virtualFileSystem.getSnapshots(new DirectoryFileTree(dir, new PatternSet().include("**/*.java"))) == null
+    }
+
+    def "does not keep snapshots of tree filtered by a spec"() {
+        def filteredTree = new DirectoryFileTree(dir, new PatternSet().include({ true }))
+
+        when:
+        def version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(filteredTree, version, snapshots)
+
+        then:
+        !virtualFileSystem.canKeep(filteredTree)
+        virtualFileSystem.getSnapshots(filteredTree) == null
+    }
+
+    def "discards snapshots when something in the tree changes"() {
+        given:
+        watching()
+
+        when:
+        watchListener.onChange(watcher, FileWatcherEvent.modify(dir.file("sub/file")))
+
+        then:
+        virtualFileSystem.getSnapshots(tree) == null
+    }
+
+    def "keeps snapshots when something outside the tree changes"() {
+        given:
+        watching()
+
+        when:
+        watchListener.onChange(watcher, FileWatcherEvent.create(tmpDir.file("dir2/file")))
+
+        then:
+        virtualFileSystem.getSnapshots(tree) == snapshots
+    }
+
+    def "discards all snapshots when events may have been lost"() {
+        given:
+        watching()
+
+        when:
+        watchListener.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        virtualFileSystem.getSnapshots(tree) == null
+    }
+
+    def "does not keep snapshots taken while the tree changed"() {
+        when:
+        def version = virtualFileSystem.startWatching(dir)
+        watchListener.onChange(watcher, FileWatcherEvent.create(dir.file("file")))
+        virtualFileSystem.putSnapshots(tree, version, snapshots)
+
+        then:
+        virtualFileSystem.getSnapshots(tree) == null
+    }
+
+    def "watches directory again after it has been deleted"() {
+        given:
+        watching()
+
+        when:
+        watchListener.onChange(watcher, FileWatcherEvent.delete(dir))
+        def version = virtualFileSystem.startWatching(dir)
+        virtualFileSystem.putSnapshots(tree, version, snapshots)
+
+        then:
+        1 * watcherFactory.watch(_, _, _) >> Mock(FileWatcher)
+        virtualFileSystem.getSnapshots(tree) == snapshots
+    }
+
+    def "discards snapshots of trees that overlap the outputs of a task"() {
+        def task = Stub(Task)
+        def outputs = Stub(TaskOutputs)
+        task.outputs >> outputs
+        outputs.files >> new SimpleFileCollection(dir.file("sub"))
+
+        given:
+        watching()
+
+        when:
+        virtualFileSystem.afterActions(task)
+
+        then:
+        virtualFileSystem.getSnapshots(tree) == null
+    }
+
+    def "replaces watchers with a single one when there are too many"() {
+        def dirs = (0..VirtualFileSystem.MAX_WATCHERS).collect { tmpDir.createDir("dir$it") }
+        def trees = dirs.collect { new DirectoryFileTree(it) }
+
+        when:
+        VirtualFileSystem.MAX_WATCHERS.times {
+            virtualFileSystem.putSnapshots(trees[it], virtualFileSystem.startWatching(dirs[it]), snapshots)
+        }
+
+        then:
+        VirtualFileSystem.MAX_WATCHERS * watcherFactory.watch(_, _, _) >> watcher
+        trees.take(VirtualFileSystem.MAX_WATCHERS).every { virtualFileSystem.getSnapshots(it) == snapshots }
+
+        when:
+        virtualFileSystem.startWatching(dirs.last())
+
+        then:
+        VirtualFileSystem.MAX_WATCHERS * watcher.stop()
+        1 * watcherFactory.watch({ it.roots*.absolutePath.toSet() == dirs*.absolutePath.toSet() }, _, _) >> Mock(FileWatcher)
+        trees.every { virtualFileSystem.getSnapshots(it) == null }
+    }
+
+    def "stops using snapshots when watching fails"() {
+        given:
+        watching()
+
+        when:
+        onError.execute(new RuntimeException())
+
+        then:
+        1 * watcher.stop()
+        virtualFileSystem.getSnapshots(tree) == null
+        virtualFileSystem.startWatching(dir) == -1
+        0 * watcherFactory._
+    }
+
+    def "stopping stops the watchers"() {
+        given:
+        watching()
+
+        when:
+        virtualFileSystem.stop()
+
+        then:
+        1 * watcher.stop()
+    }
+
+    private void watching() {
+        virtualFileSystem.putSnapshots(tree, virtualFileSystem.startWatching(dir), snapshots)
+        assert virtualFileSystem.getSnapshots(tree) == snapshots
+    }
+}
@@ -102,7 +102,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         !visited.contains(doesNotExist.absolutePath)
 
         where:
-        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker()]
     }
 
     def "both DirectoryWalker implementations return same set of files and attributes"() {
@@ -180,7 +180,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker()]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -211,7 +211,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker()]
     }
 
     @Requires(TestPrecondition.SYMLINKS)
@@ -240,7 +240,7 @@ class Jdk7DirectoryWalkerTest extends Specification {
         link.delete()
 
         where:
-        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker()]
+        walkerInstance << [new DirectoryFileTree.DefaultDirectoryWalker(), new Jdk7DirectoryWalker(), new ParallelDirectoryWalker()]
     }
 
 
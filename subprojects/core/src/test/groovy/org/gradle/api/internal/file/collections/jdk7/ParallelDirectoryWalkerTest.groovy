@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.collections.jdk7
+
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.internal.file.collections.DirectoryFileTree
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.SetSystemProperties
+import org.gradle.util.TestPrecondition
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.Charset
+
+@Requires(TestPrecondition.JDK7_OR_LATER)
+@UsesNativeServices
+class ParallelDirectoryWalkerTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def walker = new ParallelDirectoryWalker()
+
+    def cleanup() {
+        Charset.defaultCharset = null // clear cache
+    }
+
+    def "is selected when parallel walking is enabled"() {
+        given:
+        System.setProperty("file.encoding", "UTF-8")
+        Charset.defaultCharset = null
+        System.setProperty(DirectoryFileTree.DefaultDirectoryWalkerFactory.PARALLEL_WALK_PROPERTY, "true")
+        def directoryWalkerFactory = new DirectoryFileTree(tmpDir.createDir("root")).directoryWalkerFactory
+        directoryWalkerFactory.reset()
+
+        expect:
+        directoryWalkerFactory.create() instanceof ParallelDirectoryWalker
+    }
+
+    @Unroll
+    def "visits the same files and directories as the default walker - postfix: #postfix"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateTree(rootDir, 3)
+
+        when:
+        def visitedWithParallelWalker = walk(rootDir, walker, postfix)
+        def visitedWithDefaultWalker = walk(rootDir, new DirectoryFileTree.DefaultDirectoryWalker(), postfix)
+
+        then:
+        visitedWithParallelWalker.size() == 104
+        visitedWithParallelWalker as Set == visitedWithDefaultWalker as Set
+
+        where:
+        postfix << [false, true]
+    }
+
+    def "visits the files of a directory before its subdirectories and a directory before its contents"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateTree(rootDir, 3)
+
+        when:
+        def visited = walk(rootDir, walker, false)
+
+        then:
+        visited.eachWithIndex { String path, int index ->
+            def parent = parentOf(path)
+            if (parent) {
+                assert visited.indexOf("dir:$parent".toString()) < index
+            }
+            if (path.startsWith("dir:")) {
+                assert visited.findIndexOf(index) { it.startsWith("file:") && parentOf(it) == parent } < 0
+            }
+        }
+    }
+
+    def "visits a directory after its contents when postfix"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateTree(rootDir, 3)
+
+        when:
+        def visited = walk(rootDir, walker, true)
+
+        then:
+        visited.eachWithIndex { String path, int index ->
+            def parent = parentOf(path)
+            if (parent) {
+                assert visited.indexOf("dir:$parent".toString()) > index
+            }
+        }
+    }
+
+    def "stops walking when visitor requests it"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        generateTree(rootDir, 3)
+        def visited = []
+        def fileVisitor = [
+            visitFile: { FileVisitDetails details -> visited << details; details.stopVisiting() },
+            visitDir: { visited << it }
+        ] as FileVisitor
+
+        when:
+        new DirectoryFileTree(rootDir, new PatternSet(), { walker } as Factory).visit(fileVisitor)
+
+        then:
+        visited.size() == 1
+    }
+
+    def "only walks directories that match the patterns"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        rootDir.createFile("a/b/1.txt")
+        rootDir.createFile("a/c/2.txt")
+        def patterns = new PatternSet()
+        patterns.exclude("a/c")
+
+        when:
+        def fileTree = new DirectoryFileTree(rootDir, patterns, { walker } as Factory)
+        def visited = []
+        fileTree.visit([visitFile: { visited << it.path }, visitDir: { visited << it.path }] as FileVisitor)
+
+        then:
+        visited == ["a", "a/b", "a/b/1.txt"]
+    }
+
+    private static String parentOf(String visited) {
+        def path = visited.substring(visited.indexOf(':') + 1)
+        def separator = path.lastIndexOf('/')
+        return separator < 0 ? null : path.substring(0, separator)
+    }
+
+    private static void generateTree(TestFile dir, int depth) {
+        4.times { dir.createFile("file$it") << ("x" * it) }
+        if (depth > 1) {
+            4.times { generateTree(dir.createDir("dir$it"), depth - 1) }
+        }
+    }
+
+    private static List<String> walk(File rootDir, DirectoryFileTree.DirectoryWalker walkerInstance, boolean postfix) {
+        def fileTree = new DirectoryFileTree(rootDir, new PatternSet(), { walkerInstance } as Factory)
+        if (postfix) {
+            fileTree = fileTree.postfix()
+        }
+        def visited = []
+        fileTree.visit([visitFile: { visited << "file:$it.path".toString() }, visitDir: { visited << "dir:$it.path".toString() }] as FileVisitor)
+        visited
+    }
+}
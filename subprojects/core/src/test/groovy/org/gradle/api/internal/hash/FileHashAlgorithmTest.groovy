@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class FileHashAlgorithmTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def "uses MD5 by default"() {
+        expect:
+        FileHashAlgorithm.fromSystemProperty() == FileHashAlgorithm.MD5
+        FileHashAlgorithm.MD5.cacheName == "fileHashes"
+    }
+
+    def "can select algorithm using system property"() {
+        when:
+        System.setProperty(FileHashAlgorithm.ALGORITHM_PROPERTY, "murmur3")
+
+        then:
+        FileHashAlgorithm.fromSystemProperty() == FileHashAlgorithm.MURMUR3
+    }
+
+    def "fails on unknown algorithm"() {
+        when:
+        System.setProperty(FileHashAlgorithm.ALGORITHM_PROPERTY, "crc32")
+        FileHashAlgorithm.fromSystemProperty()
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown file hash algorithm 'crc32' specified by system property 'org.gradle.filehash.algorithm'."
+    }
+
+    def "algorithms use distinct caches"() {
+        expect:
+        FileHashAlgorithm.values()*.cacheName.unique().size() == FileHashAlgorithm.values().length
+    }
+
+    @Unroll
+    def "#algorithm hasher produces a 128 bit hash that changes with file content"() {
+        def file = tmpDir.file("file")
+        def hasher = algorithm.createHasher()
+
+        when:
+        file.text = "content"
+        def hash1 = hasher.hash(file)
+        def hash2 = hasher.hash(file)
+        file.text = "other content"
+        def hash3 = hasher.hash(file)
+
+        then:
+        hash1 == hash2
+        hash1 != hash3
+        new BigInteger(1, hash1).bitLength() <= 128
+
+        where:
+        algorithm << FileHashAlgorithm.values()
+    }
+}
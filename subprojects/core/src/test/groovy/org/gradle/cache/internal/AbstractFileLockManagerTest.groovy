@@ -457,6 +457,29 @@ abstract class AbstractFileLockManagerTest extends Specification {
         lock?.close()
     }
 
+    def "notifies contention handler when exclusive lock is acquired and released"() {
+        def handler = Mock(FileLockContentionHandler)
+        def customManager = new DefaultFileLockManager(metaDataProvider, 5000, handler, generator)
+
+        when:
+        def lock = customManager.lock(testFile, options().withMode(Exclusive), "foo", "operation")
+
+        then:
+        1 * handler.reservePort() >> 34
+        1 * handler.lockAcquired(678L)
+        0 * handler._
+
+        when:
+        lock.close()
+
+        then:
+        1 * handler.stop(678L)
+
+        then:
+        1 * handler.lockReleased(678L)
+        0 * handler._
+    }
+
     def "require exclusive lock for writing"() {
         given:
         def lock = createLock(Shared)
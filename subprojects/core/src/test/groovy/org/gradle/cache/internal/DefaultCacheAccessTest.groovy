@@ -17,8 +17,8 @@ package org.gradle.cache.internal
 
 import org.gradle.cache.PersistentIndexedCacheParameters
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.cache.internal.logstructured.LogIndex
 import org.gradle.internal.Factory
-import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -40,7 +40,7 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     private DefaultCacheAccess newAccess() {
         new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction) {
             @Override
-            def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+            def <K, V> CloseablePersistentIndexedCache<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters, LogIndex logIndex) {
                 return backingCache
             }
         }
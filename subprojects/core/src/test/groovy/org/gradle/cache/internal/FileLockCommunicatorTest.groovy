@@ -46,7 +46,7 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
 
     def "can receive lock id"() {
         start {
-            receivedId = communicator.receive()
+            receivedId = communicator.receive().lockId
         }
 
         poll {
@@ -62,6 +62,33 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
         }
     }
 
+    def "can receive release notification from owner"() {
+        def owner = new FileLockCommunicator(new InetAddressFactory())
+        FileLockPacket ping = null
+        FileLockPacket release = null
+        start {
+            ping = owner.receive()
+            owner.notifyReleased(ping.sender, ping.lockId)
+        }
+        start {
+            release = communicator.receive()
+        }
+
+        when:
+        communicator.pingOwner(owner.getPort(), 155, "lock")
+
+        then:
+        poll {
+            assert release != null
+        }
+        !ping.released
+        release.released
+        release.lockId == 155
+
+        cleanup:
+        owner.stop()
+    }
+
     def "may not receive after the stop"() {
         communicator.stop()
         when:
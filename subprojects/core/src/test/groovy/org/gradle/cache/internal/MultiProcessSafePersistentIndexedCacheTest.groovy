@@ -22,7 +22,7 @@ import spock.lang.Specification
 class MultiProcessSafePersistentIndexedCacheTest extends Specification {
     final FileAccess fileAccess = Mock()
     final Factory<BTreePersistentIndexedCache<String, String>> factory = Mock()
-    final cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+    def cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
     final BTreePersistentIndexedCache<String, String> backingCache = Mock()
     
     def "opens cache on first access"() {
@@ -128,6 +128,103 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "holds puts in memory until the end of the unit of work when write-behind is enabled"() {
+        given:
+        cache = writeBehindCache()
+        cacheOpened()
+
+        when:
+        cache.put("b", "value b")
+        cache.put("c", "value c")
+        cache.put("a", "value a")
+        cache.put("b", "updated b")
+
+        then:
+        0 * _._
+
+        when:
+        def result = cache.get("b")
+
+        then:
+        result == "updated b"
+        0 * _._
+
+        when:
+        cache.onEndWork(Stub(FileLock.State))
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+
+        then:
+        1 * backingCache.put("a", "value a")
+
+        then:
+        1 * backingCache.put("b", "updated b")
+
+        then:
+        1 * backingCache.put("c", "value c")
+        0 * _._
+    }
+
+    def "discards pending put when entry is removed"() {
+        given:
+        cache = writeBehindCache()
+        cacheOpened()
+
+        when:
+        cache.put("key", "value")
+        cache.remove("key")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.remove("key")
+        0 * _._
+
+        when:
+        cache.onEndWork(Stub(FileLock.State))
+
+        then:
+        0 * _._
+    }
+
+    def "writes pending puts when cache is closed"() {
+        given:
+        cache = writeBehindCache()
+        cacheOpened()
+        cache.put("key", "value")
+
+        when:
+        cache.close()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+
+        then:
+        1 * backingCache.put("key", "value")
+
+        then:
+        1 * backingCache.close()
+        0 * _._
+    }
+
+    def "writes pending puts when too many are held in memory"() {
+        given:
+        cache = writeBehindCache()
+        cacheOpened()
+
+        when:
+        DefaultMultiProcessSafePersistentIndexedCache.MAX_PENDING_PUTS.times { cache.put("key" + it, "value") }
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        DefaultMultiProcessSafePersistentIndexedCache.MAX_PENDING_PUTS * backingCache.put(_, "value")
+        0 * _._
+    }
+
+    def writeBehindCache() {
+        new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess, true)
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+    def serializer = new DefaultSerializer<String>()
+
+    def "can add, update and remove entries"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+        cache.put("key1", "updated")
+        cache.remove("key2")
+
+        then:
+        cache.get("key0") == "value0"
+        cache.get("key1") == "updated"
+        cache.get("key2") == null
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "entries written through memory mapped regions can be read from the file and vice versa"() {
+        when:
+        def cache = mappedCache()
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+        cache.close()
+        cache = new BTreePersistentIndexedCache<String, String>(cacheFile, new FileBackedBlockStore(cacheFile), serializer, serializer, (short) 4, 100)
+
+        then:
+        (0..<100).every { cache.get("key" + it) == "value" + it }
+
+        when:
+        cache.put("key100", "value100")
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<101).every { cache.get("key" + it) == "value" + it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "maps additional regions as the file grows"() {
+        def value = "x" * 100000
+        def cache = mappedCache()
+
+        when:
+        (0..<100).each { cache.put("key" + it, value + it) }
+
+        then:
+        cacheFile.length() > 2 * MappedFileBlockStore.REGION_SIZE
+        (0..<100).every { cache.get("key" + it) == value + it }
+        cache.verify()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "grows the file in whole regions and truncates the padding on close"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+
+        then:
+        cacheFile.length() == MappedFileBlockStore.REGION_SIZE
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.length() > 0
+        cacheFile.length() < MappedFileBlockStore.REGION_SIZE
+    }
+
+    def "can clear the file while regions are mapped"() {
+        def store = new MappedFileBlockStore(cacheFile)
+        def cache = new BTreePersistentIndexedCache<String, String>(cacheFile, store, serializer, serializer, (short) 4, 100)
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+
+        when:
+        store.clear()
+
+        then:
+        cacheFile.length() == 0
+
+        cleanup:
+        store.close()
+    }
+
+    def mappedCache() {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, new MappedFileBlockStore(cacheFile), serializer, serializer, (short) 4, 100)
+    }
+}
@@ -121,6 +121,58 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         poll { assert executed.get() }
     }
 
+    def "notifies waiters when lock is released"() {
+        def released = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+        client.pingOwner(port, 10, "lock 1")
+        start {
+            released.set(client.awaitRelease(10, 5000))
+        }
+        sleep(300) //so that the ping is received
+        handler.lockReleased(10)
+
+        then:
+        poll {
+            assert released.get()
+        }
+    }
+
+    def "waiting for release times out when lock is not released"() {
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+        client.pingOwner(port, 10, "lock 1")
+
+        then:
+        !client.awaitRelease(10, 300)
+    }
+
+    def "does not notify waiters of a different lock"() {
+        when:
+        int port = handler.reservePort()
+        handler.lockAcquired(10)
+        handler.lockAcquired(11)
+        client.pingOwner(port, 10, "lock 1")
+        sleep(300) //so that the ping is received
+        handler.lockReleased(11)
+
+        then:
+        !client.awaitRelease(10, 300)
+    }
+
+    def "releasing a lock that was not acquired is safe"() {
+        when:
+        handler.lockReleased(10)
+        handler.reservePort()
+        handler.lockReleased(10)
+
+        then:
+        noExceptionThrown()
+    }
+
     def "reserving port is safely reentrant"() {
         when:
         int port = handler.reservePort()
@@ -150,6 +202,20 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         0 * factory._
     }
 
+    def "acquiring a lock starts the thread"() {
+        def factory = Mock(ExecutorFactory)
+        handler = new DefaultFileLockContentionHandler(factory, addressFactory)
+
+        when:
+        handler.reservePort()
+        handler.lockAcquired(10)
+        handler.lockAcquired(11)
+
+        then:
+        1 * factory.create(_ as String) >> Mock(StoppableExecutor)
+        0 * factory._
+    }
+
     def "stopping the handler stops the executor"() {
         def factory = Mock(ExecutorFactory)
         def executor = Mock(StoppableExecutor)
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+    def serializer = new DefaultSerializer<String>()
+
+    def "can add, update and remove entries"() {
+        def cache = newCache()
+
+        when:
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+        cache.put("key1", "updated")
+        cache.remove("key2")
+        cache.remove("unknown")
+
+        then:
+        cache.get("key0") == "value0"
+        cache.get("key1") == "updated"
+        cache.get("key2") == null
+        cache.get("unknown") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "entries are available after the cache is reopened"() {
+        when:
+        def cache = newCache()
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+        cache.remove("key2")
+        cache.close()
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key2") == null
+        (3..<100).every { cache.get("key" + it) == "value" + it }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "can read records that are larger than the read buffer"() {
+        def large = "abc" * 3000
+
+        when:
+        def cache = newCache()
+        (0..<50).each { cache.put("key" + it, it % 5 == 0 ? large + it : "value" + it) }
+
+        then:
+        (0..<50).every { cache.get("key" + it) == (it % 5 == 0 ? large + it : "value" + it) }
+
+        when:
+        cache.close()
+        cache = newCache()
+
+        then:
+        (0..<50).every { cache.get("key" + it) == (it % 5 == 0 ? large + it : "value" + it) }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards incomplete record at the end of the file"() {
+        given:
+        def cache = newCache()
+        cache.put("key1", "value1")
+        cache.close()
+        def length = cacheFile.length()
+        cache = newCache()
+        cache.put("key2", "value2")
+        cache.close()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.setLength(cacheFile.length() - 2)
+        file.close()
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key2") == null
+        cacheFile.length() == length
+
+        when:
+        cache.put("key3", "value3")
+        cache.close()
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key3") == "value3"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards records from the first corrupt record onwards"() {
+        given:
+        def cache = newCache()
+        cache.put("key1", "value1")
+        cache.close()
+        def length = cacheFile.length()
+        cache = newCache()
+        cache.put("key2", "value2")
+        cache.put("key3", "value3")
+        cache.close()
+
+        when:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.seek(length + 10)
+        file.write(0xff)
+        file.close()
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key2") == null
+        cache.get("key3") == null
+        cacheFile.length() == length
+
+        cleanup:
+        cache.close()
+    }
+
+    def "compacts log when most records are stale"() {
+        given:
+        def cache = newCache(10)
+        (0..<10).each { cache.put("key" + it, "value" + it) }
+        cache.close()
+        def length = cacheFile.length()
+
+        when:
+        cache = newCache(10)
+        20.times { n -> (0..<10).each { cache.put("key" + it, "value" + it + "-" + n) } }
+        (5..<10).each { cache.remove("key" + it) }
+        cache.close()
+
+        then:
+        cacheFile.length() < length
+        !new File(cacheFile.parentFile, cacheFile.name + ".compact").exists()
+
+        when:
+        cache = newCache(10)
+
+        then:
+        (0..<5).every { cache.get("key" + it) == "value" + it + "-19" }
+        (5..<10).every { cache.get("key" + it) == null }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "does not compact log when most records are live"() {
+        given:
+        def cache = newCache(10)
+        (0..<100).each { cache.put("key" + it, "value" + it) }
+        cache.close()
+        def length = cacheFile.length()
+
+        when:
+        cache = newCache(10)
+        (0..<10).each { cache.put("key" + it, "updated" + it) }
+        cache.close()
+
+        then:
+        cacheFile.length() > length
+    }
+
+    def "keeps separate entries for keys whose hashes collide"() {
+        given:
+        def cache = new LogStructuredPersistentIndexedCache<String, String>(cacheFile, serializer, serializer, new LogIndex()) {
+            long hash(byte[] keyBytes) {
+                return 12
+            }
+        }
+
+        when:
+        (0..<10).each { cache.put("key" + it, "value" + it) }
+        cache.put("key1", "updated")
+        cache.remove("key2")
+
+        then:
+        cache.get("key0") == "value0"
+        cache.get("key1") == "updated"
+        cache.get("key2") == null
+        (3..<10).every { cache.get("key" + it) == "value" + it }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reuses index when reopened and picks up records appended by other instances"() {
+        given:
+        def index = new LogIndex()
+        def cache = newCache(1000, index)
+        cache.put("key1", "value1")
+        cache.put("key2", "value2")
+        cache.close()
+
+        when:
+        def other = newCache()
+        other.put("key2", "updated")
+        other.put("key3", "value3")
+        other.close()
+        cache = newCache(1000, index)
+
+        then:
+        cache.get("key1") == "value1"
+        cache.get("key2") == "updated"
+        cache.get("key3") == "value3"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "rebuilds index when the log has been compacted by another instance"() {
+        given:
+        def index = new LogIndex()
+        def cache = newCache(10, index)
+        (0..<10).each { cache.put("key" + it, "value" + it) }
+        cache.close()
+
+        when:
+        def other = newCache(10)
+        5.times { n -> (0..<10).each { other.put("key" + it, "value" + it + "-" + n) } }
+        other.remove("key9")
+        other.close()
+        cache = newCache(10, index)
+
+        then:
+        (0..<9).every { cache.get("key" + it) == "value" + it + "-4" }
+        cache.get("key9") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "keeps index valid after compacting the log"() {
+        given:
+        def index = new LogIndex()
+        def cache = newCache(10, index)
+        5.times { n -> (0..<10).each { cache.put("key" + it, "value" + it + "-" + n) } }
+        cache.close()
+
+        when:
+        cache = newCache(10, index)
+
+        then:
+        (0..<10).every { cache.get("key" + it) == "value" + it + "-4" }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "finishes replacing the log when a compaction was interrupted"() {
+        given:
+        def cache = newCache()
+        cache.put("key1", "value1")
+        cache.close()
+        def compactedFile = new File(cacheFile.parentFile, cacheFile.name + ".compact")
+        cacheFile.renameTo(compactedFile)
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        !compactedFile.exists()
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards incomplete compacted file"() {
+        given:
+        def cache = newCache()
+        cache.put("key1", "value1")
+        cache.close()
+        def compactedFile = new File(cacheFile.parentFile, cacheFile.name + ".compact")
+        compactedFile.text = "incomplete"
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("key1") == "value1"
+        !compactedFile.exists()
+
+        cleanup:
+        cache.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> newCache(int minCompactionRecords = 1000, LogIndex index = new LogIndex()) {
+        return new LogStructuredPersistentIndexedCache<String, String>(cacheFile, serializer, serializer, index, minCompactionRecords)
+    }
+}
@@ -24,6 +24,7 @@ import org.gradle.api.tasks.Delete
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.ParallelizableTask
+import org.gradle.execution.TaskFailureHandler
 import org.gradle.initialization.BuildCancellationToken
 import org.gradle.internal.nativeintegration.filesystem.FileSystem
 import org.gradle.test.fixtures.ConcurrentTestUtil
@@ -49,6 +50,7 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
 
     List<TaskInfo> startedTasks = []
     List<Thread> blockedThreads = []
+    List<TaskInfo> tasksReceivedByWaitingWorkers = Collections.synchronizedList([])
 
     void cleanup() {
         completeAllStartedTasks()
@@ -68,6 +70,22 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         blockedThreads << blockedThread { executionPlan.taskComplete(executionPlan.getTaskToExecute()) }
     }
 
+    Thread waitingWorker() {
+        def thread = blockedThread { tasksReceivedByWaitingWorkers << executionPlan.getTaskToExecute() }
+        blockedThreads << thread
+        thread
+    }
+
+    void waitingWorkersReceive(Task... tasks) {
+        ConcurrentTestUtil.poll(3, 0.01) {
+            assert tasksReceivedByWaitingWorkers*.task as Set == tasks as Set
+        }
+    }
+
+    void completeTasksReceivedByWaitingWorkers() {
+        tasksReceivedByWaitingWorkers.findAll { it != null }.each { executionPlan.taskComplete(it) }
+    }
+
     void completeAllStartedTasks() {
         startedTasks.each { executionPlan.taskComplete(it) }
         startedTasks.clear()
@@ -176,6 +194,144 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "task becomes available for execution when its last dependency completes"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a, b)
+
+        when:
+        addToGraphAndPopulate(c)
+        startTasks(2)
+        def worker = waitingWorker()
+        executionPlan.taskComplete(startedTasks.find { it.task == a })
+
+        then:
+        ConcurrentTestUtil.poll(3, 0.01) {
+            assert worker.state == Thread.State.WAITING
+        }
+        tasksReceivedByWaitingWorkers.empty
+
+        when:
+        executionPlan.taskComplete(startedTasks.find { it.task == b })
+        startedTasks.clear()
+
+        then:
+        waitingWorkersReceive(c)
+
+        cleanup:
+        completeTasksReceivedByWaitingWorkers()
+    }
+
+    def "wakes up as many waiting workers as there are tasks that became available"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+        Task d = root.task("d", type: Parallel).dependsOn(a)
+        Task e = root.task("e", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(c, d, e)
+        startTasks(2)
+        3.times { waitingWorker() }
+        executionPlan.taskComplete(startedTasks.find { it.task == a })
+
+        then:
+        waitingWorkersReceive(c, d)
+        blockedThreads.count { it.state == Thread.State.WAITING } == 1
+
+        when:
+        executionPlan.taskComplete(startedTasks.find { it.task == b })
+        startedTasks.clear()
+
+        then:
+        waitingWorkersReceive(c, d, e)
+
+        when:
+        completeTasksReceivedByWaitingWorkers()
+
+        then:
+        allBlockedThreadsFinish()
+    }
+
+    def "waiting workers finish when the last running task completes"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+
+        when:
+        addToGraphAndPopulate(a)
+        startTasks(1)
+        2.times { waitingWorker() }
+        completeAllStartedTasks()
+
+        then:
+        allBlockedThreadsFinish()
+        tasksReceivedByWaitingWorkers == [null, null]
+    }
+
+    def "task that must run after a running task becomes available for execution when that task completes"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).mustRunAfter(a)
+
+        when:
+        addToGraphAndPopulate(a, b, c)
+        startTasks(2)
+
+        then:
+        startedTasks*.task as Set == [a, b] as Set
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        executionPlan.taskComplete(startedTasks.find { it.task == a })
+        startedTasks.removeAll { it.task == a }
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
+    def "continues with tasks that do not depend on a failed task when failure handler does not abort execution"() {
+        given:
+        def failure = new RuntimeException("broken")
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel).dependsOn(a)
+        Task c = root.task("c", type: Parallel)
+        Task d = root.task("d", type: Parallel).dependsOn(c)
+        executionPlan.useFailureHandler({} as TaskFailureHandler)
+
+        when:
+        addToGraphAndPopulate(b, d)
+        startTasks(2)
+        waitingWorker()
+        a.state.executed(failure)
+        executionPlan.taskComplete(startedTasks.find { it.task == a })
+
+        then:
+        startedTasks*.task as Set == [a, c] as Set
+        ConcurrentTestUtil.poll(3, 0.01) {
+            assert blockedThreads[0].state == Thread.State.WAITING
+        }
+        tasksReceivedByWaitingWorkers.empty
+
+        when:
+        executionPlan.taskComplete(startedTasks.find { it.task == c })
+        startedTasks.clear()
+
+        then:
+        waitingWorkersReceive(d)
+
+        when:
+        completeTasksReceivedByWaitingWorkers()
+        executionPlan.awaitCompletion()
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        executionPlan.getTaskToExecute() == null
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
@@ -865,6 +865,47 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         t3.task.project != t4.task.project
     }
 
+    def "starts ready tasks with the longest estimated critical path first"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        addToGraphAndPopulate([a, c])
+
+        when:
+        executionPlan.prioritizeByCriticalPath([(a): 10L, (b): 1L, (c): 20L])
+
+        then:
+        executedTasks == [b, c, a]
+    }
+
+    def "starts ready tasks in execution plan order when no durations are known"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        addToGraphAndPopulate([a, c])
+
+        when:
+        executionPlan.prioritizeByCriticalPath([:])
+
+        then:
+        executedTasks == [a, b, c]
+    }
+
+    def "calculates the length of the critical path"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", mustRunAfter: [a])
+        addToGraphAndPopulate([a, c, d])
+
+        expect:
+        executionPlan.getCriticalPathLength([(a): 10L, (b): 1L, (c): 20L, (d): 15L]) == 25L
+        executionPlan.getCriticalPathLength([(b): 1L, (c): 20L]) == 21L
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
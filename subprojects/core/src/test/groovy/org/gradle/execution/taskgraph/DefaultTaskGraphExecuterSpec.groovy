@@ -41,7 +41,8 @@ class DefaultTaskGraphExecuterSpec extends Specification {
     def project = ProjectBuilder.builder().build()
     def listenerManager = new DefaultListenerManager()
     def executer = Mock(TaskExecuter)
-    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor))
+    def durationHistory = Mock(TaskDurationHistory)
+    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), Factories.constant(durationHistory), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor))
 
     def "notifies task listener as tasks are executed"() {
         def listener = Mock(TaskExecutionListener)
@@ -263,12 +264,71 @@ class DefaultTaskGraphExecuterSpec extends Specification {
         noExceptionThrown()
     }
 
-    def task(String name) {
+    def "does not use task duration history when critical path prioritization is disabled"() {
+        def a = task("a")
+
+        when:
+        taskExecuter.addTasks([a])
+        taskExecuter.execute()
+
+        then:
+        1 * executer.execute(a, a.state, _)
+        0 * durationHistory._
+    }
+
+    def "starts tasks on the critical path first and records task durations when critical path prioritization is enabled"() {
+        def timeProvider = Stub(TimeProvider)
+        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), Factories.constant(durationHistory), cancellationToken, timeProvider, Stub(BuildOperationExecutor), true)
+        def a = task("a")
+        def b = task("b")
+
+        given:
+        timeProvider.currentTime >>> [0, 100, 105, 120, 130, 200]
+
+        when:
+        taskExecuter.addTasks([a, b])
+        taskExecuter.execute()
+
+        then:
+        1 * durationHistory.getPreviousDurations([a, b]) >> [(a): 5L, (b): 10L]
+
+        then:
+        1 * executer.execute(b, b.state, _)
+
+        then:
+        1 * executer.execute(a, a.state, _)
+
+        then:
+        1 * durationHistory.recordDurations([(b): 5L, (a): 10L])
+        0 * durationHistory._
+    }
+
+    def "does not record durations of tasks that did no work"() {
+        def timeProvider = Stub(TimeProvider)
+        def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), Factories.constant(durationHistory), cancellationToken, timeProvider, Stub(BuildOperationExecutor), true)
+        def a = task("a", false)
+        def b = task("b")
+
+        given:
+        timeProvider.currentTime >>> [0, 100, 105, 120, 130, 200]
+
+        when:
+        taskExecuter.addTasks([a, b])
+        taskExecuter.execute()
+
+        then:
+        1 * durationHistory.getPreviousDurations([a, b]) >> [:]
+        1 * durationHistory.recordDurations({ it.keySet() == [b] as Set })
+        0 * durationHistory._
+    }
+
+    def task(String name, boolean didWork = true) {
         def mock = Mock(TaskInternal)
         _ * mock.name >> name
         _ * mock.project >> project
         _ * mock.state >> Stub(TaskStateInternal) {
             getFailure() >> null
+            getDidWork() >> didWork
         }
         _ * mock.taskDependencies >> Stub(TaskDependency)
         _ * mock.finalizedBy >> Stub(TaskDependency)
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.internal.Pair
+import spock.lang.Specification
+
+class OutputPathIndexTest extends Specification {
+    def index = new OutputPathIndex<String>()
+
+    def "finds owner of same, ancestor or descendant path"() {
+        given:
+        index.add("a", [path("build", "classes"), path("out")])
+        index.add("b", [path("build", "libs", "b.jar")])
+
+        expect:
+        index.findOverlap(path("build", "classes")) == Pair.of("a", path("build", "classes"))
+        index.findOverlap(path("build", "classes", "Foo.class")) == Pair.of("a", path("build", "classes"))
+        index.findOverlap(path("build", "libs")) == Pair.of("b", path("build", "libs"))
+        index.findOverlap(path("out")) == Pair.of("a", path("out"))
+    }
+
+    def "does not match siblings or paths sharing a name prefix"() {
+        given:
+        index.add("a", [path("build", "classes")])
+
+        expect:
+        index.findOverlap(path("build", "classes2")) == null
+        index.findOverlap(path("build", "resources")) == null
+        index.findOverlap(path("other")) == null
+    }
+
+    def "removed paths no longer overlap"() {
+        given:
+        index.add("a", [path("build", "classes")])
+        index.add("b", [path("build", "libs")])
+
+        when:
+        index.remove("a", [path("build", "classes")])
+
+        then:
+        !index.isEmpty()
+        index.findOverlap(path("build", "classes")) == null
+        index.findOverlap(path("build")) == Pair.of("b", path("build"))
+
+        when:
+        index.remove("b", [path("build", "libs")])
+
+        then:
+        index.isEmpty()
+        index.findOverlap(path("build")) == null
+    }
+
+    def "clear removes all paths"() {
+        given:
+        index.add("a", [path("build")])
+
+        when:
+        index.clear()
+
+        then:
+        index.isEmpty()
+        index.findOverlap(path("build")) == null
+    }
+
+    private static String path(String... segments) {
+        File.separator + segments.join(File.separator)
+    }
+}
@@ -30,6 +30,7 @@ import org.gradle.internal.classpath.ClassPath
 import org.gradle.internal.service.ServiceRegistry
 import org.gradle.messaging.remote.MessagingServer
 import org.gradle.process.internal.DefaultWorkerProcessFactory
+import org.gradle.process.internal.WorkerHostPool
 import org.gradle.process.internal.WorkerProcessBuilder
 import org.gradle.process.internal.child.WorkerProcessClassPathProvider
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -65,6 +66,7 @@ class BuildSessionScopeServicesTest extends Specification {
     def "provides a WorkerProcessBuilder factory"() {
         setup:
         expectParentServiceLocated(MessagingServer)
+        expectParentServiceLocated(WorkerHostPool)
 
         expect:
         registry.getFactory(WorkerProcessBuilder) instanceof DefaultWorkerProcessFactory
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal
+
+import spock.lang.Specification
+
+class WorkerHostPoolTest extends Specification {
+    def pool = new WorkerHostPool()
+
+    def "returns null when there is no idle host with the given key"() {
+        def host = host("a")
+        pool.release(host)
+
+        expect:
+        pool.take("b") == null
+    }
+
+    def "reuses idle host with the given key"() {
+        def host1 = host("a")
+        def host2 = host("b")
+        pool.release(host1)
+        pool.release(host2)
+
+        expect:
+        pool.take("a") == host1
+        pool.take("a") == null
+        pool.take("b") == host2
+    }
+
+    def "discards idle hosts that are no longer running"() {
+        def host = Mock(WorkerHost)
+        pool.release(host)
+
+        when:
+        def result = pool.take("a")
+
+        then:
+        result == null
+        1 * host.isRunning() >> false
+        1 * host.stop()
+        0 * host._
+
+        when:
+        result = pool.take("a")
+
+        then:
+        result == null
+        0 * host._
+    }
+
+    def "stops idle hosts on stop"() {
+        def host1 = host("a")
+        def host2 = host("b")
+        pool.release(host1)
+        pool.release(host2)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * host1.stop()
+        1 * host2.stop()
+
+        when:
+        def result = pool.take("a")
+
+        then:
+        result == null
+    }
+
+    private WorkerHost host(String key) {
+        def host = Mock(WorkerHost)
+        _ * host.isRunning() >> true
+        _ * host.getKey() >> key
+        return host
+    }
+}
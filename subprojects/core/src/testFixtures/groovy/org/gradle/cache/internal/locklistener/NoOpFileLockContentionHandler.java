@@ -28,4 +28,13 @@ public class NoOpFileLockContentionHandler implements FileLockContentionHandler
 
     public void pingOwner(int port, long lockId, String displayName) {
     }
+
+    public void lockAcquired(long lockId) {}
+
+    public void lockReleased(long lockId) {}
+
+    public boolean awaitRelease(long lockId, long timeoutMs) throws InterruptedException {
+        Thread.sleep(timeoutMs);
+        return false;
+    }
 }
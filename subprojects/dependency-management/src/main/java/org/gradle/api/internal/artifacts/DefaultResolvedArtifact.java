@@ -90,7 +90,11 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return artifact.getClassifier();
     }
 
-    public File getFile() {
+    public synchronized boolean isResolved() {
+        return artifactSource == null;
+    }
+
+    public synchronized File getFile() {
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
@@ -23,6 +23,7 @@ import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.*;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.CrossBuildModuleMetaDataCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.*;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleArtifactsCache;
@@ -36,6 +37,9 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProject
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ParallelComponentMetaDataPrefetcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ParallelArtifactDownloader;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
@@ -51,6 +55,7 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -66,8 +71,8 @@ import org.gradle.util.BuildCommencedTimeProvider;
  * The set of dependency management services that are created per build.
  */
 class DependencyManagementBuildScopeServices {
-    InMemoryCachedRepositoryFactory createInMemoryDependencyMetadataCache() {
-        return new InMemoryCachedRepositoryFactory();
+    InMemoryCachedRepositoryFactory createInMemoryDependencyMetadataCache(CrossBuildModuleMetaDataCache crossBuildCache, BuildCommencedTimeProvider timeProvider) {
+        return new InMemoryCachedRepositoryFactory(CrossBuildModuleMetaDataCache.isEnabled() ? crossBuildCache : null, timeProvider);
     }
 
     DependencyManagementServices createDependencyManagementServices(ServiceRegistry parent) {
@@ -202,11 +207,27 @@ class DependencyManagementBuildScopeServices {
             versionComparator);
     }
 
+    ParallelComponentMetaDataPrefetcher createComponentMetaDataPrefetcher(ExecutorFactory executorFactory, StartParameter startParameter, CacheLockingManager cacheLockingManager,
+                                                                          IvyContextManager ivyContextManager) {
+        return new ParallelComponentMetaDataPrefetcher(executorFactory, startParameter.getMaxWorkerCount(), cacheLockingManager, ivyContextManager);
+    }
+
+    ParallelArtifactDownloader createArtifactDownloader(ExecutorFactory executorFactory, StartParameter startParameter, CacheLockingManager cacheLockingManager,
+                                                        ProgressLoggerFactory progressLoggerFactory) {
+        return new ParallelArtifactDownloader(executorFactory, startParameter.getMaxWorkerCount(), cacheLockingManager, progressLoggerFactory);
+    }
+
+    ResolvedGraphCache createResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme) {
+        return new ResolvedGraphCache(cacheLockingManager, timeProvider, versionSelectorScheme);
+    }
+
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory,
                                                                 DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager,
                                                                 IvyContextManager ivyContextManager,
                                                                 VersionComparator versionComparator,
+                                                                ParallelComponentMetaDataPrefetcher metaDataPrefetcher,
+                                                                ResolvedGraphCache graphCache,
                                                                 ServiceRegistry serviceRegistry) {
         DefaultArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
@@ -214,7 +235,9 @@ class DependencyManagementBuildScopeServices {
             dependencyDescriptorFactory,
             cacheLockingManager,
             ivyContextManager,
-            versionComparator
+            versionComparator,
+            ParallelComponentMetaDataPrefetcher.isEnabled() ? metaDataPrefetcher : null,
+            ResolvedGraphCache.isEnabled() ? graphCache : null
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
@@ -23,10 +23,15 @@ import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.Module;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.model.IvyArtifactName;
 import org.gradle.util.GUtil;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,6 +40,16 @@ import static java.util.Collections.emptyMap;
 public class IvyUtil {
 
     private static final Object MODULE_ID_LOCK = new Object(); //see GRADLE-3027
+    private static final Field DEPENDENCY_CONFIGURATIONS_FIELD;
+
+    static {
+        try {
+            DEPENDENCY_CONFIGURATIONS_FIELD = DefaultDependencyDescriptor.class.getDeclaredField("confs");
+        } catch (NoSuchFieldException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        DEPENDENCY_CONFIGURATIONS_FIELD.setAccessible(true);
+    }
 
     public static ModuleRevisionId createModuleRevisionId(Module module) {
         return createModuleRevisionId(module.getGroup(), module.getName(), module.getVersion());
@@ -105,4 +120,24 @@ public class IvyUtil {
     private static void addArtifact(DefaultModuleDescriptor moduleDescriptor, String name, String type, String extension, Map<String, String> extraAttributes) {
         moduleDescriptor.addArtifact(ModuleDescriptor.DEFAULT_CONFIGURATION, new MDArtifact(moduleDescriptor, name, type, extension, null, extraAttributes));
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the raw configuration mappings of the given dependency, keyed by module configuration.
+     */
+    public static Map<String, List<String>> getConfigurationMappings(DependencyDescriptor dependency) {
+        if (dependency instanceof DefaultDependencyDescriptor) {
+            // The `getDependencyConfigurations()` implementation for DefaultDependencyDescriptor does some interpretation of the RHS of the configuration
+            // mappings, and gets it wrong for mappings such as '*->@' or '*->#'. So, instead, reach into the descriptor and get the raw mappings out.
+            try {
+                return (Map<String, List<String>>) DEPENDENCY_CONFIGURATIONS_FIELD.get(dependency);
+            } catch (IllegalAccessException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        Map<String, List<String>> configurationMappings = new LinkedHashMap<String, List<String>>();
+        for (String moduleConfiguration : dependency.getModuleConfigurations()) {
+            configurationMappings.put(moduleConfiguration, Arrays.asList(dependency.getDependencyConfigurations(moduleConfiguration)));
+        }
+        return configurationMappings;
+    }
+}
@@ -22,28 +22,16 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.util.extendable.ExtendableItem;
 import org.gradle.api.Transformer;
 import org.gradle.api.UncheckedIOException;
-import org.gradle.internal.UncheckedException;
 import org.gradle.internal.component.external.model.IvyModuleArtifactPublishMetaData;
 import org.gradle.internal.xml.SimpleXmlWriter;
 import org.gradle.util.CollectionUtils;
 
 import java.io.*;
-import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 public class IvyXmlModuleDescriptorWriter implements IvyModuleDescriptorWriter {
     public static final String IVY_DATE_PATTERN = "yyyyMMddHHmmss";
-    private final Field dependencyConfigField;
-
-    public IvyXmlModuleDescriptorWriter() {
-        try {
-            dependencyConfigField = DefaultDependencyDescriptor.class.getDeclaredField("confs");
-        } catch (NoSuchFieldException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
-        }
-        dependencyConfigField.setAccessible(true);
-    }
 
     @Override
     public void write(ModuleDescriptor md, File output) {
@@ -153,21 +141,7 @@ public class IvyXmlModuleDescriptorWriter implements IvyModuleDescriptorWriter {
         StringBuilder confs = new StringBuilder();
         String[] modConfs = dep.getModuleConfigurations();
 
-        Map<String, List<String>> configMappings;
-        if (dep instanceof DefaultDependencyDescriptor) {
-            // The `getDependencyConfigurations()` implementation for DefaultDependencyDescriptor does some interpretation of the RHS of the configuration
-            // mappings, and gets it wrong for mappings such as '*->@' pr '*->#'. So, instead, reach into the descriptor and get the raw mappings out.
-            try {
-                configMappings = (Map<String, List<String>>) dependencyConfigField.get(dep);
-            } catch (IllegalAccessException e) {
-                throw UncheckedException.throwAsUncheckedException(e);
-            }
-        } else {
-            configMappings = new HashMap<String, List<String>>();
-            for (String modConf : modConfs) {
-                configMappings.put(modConf, Arrays.asList(dep.getDependencyConfigurations(modConfs)));
-            }
-        }
+        Map<String, List<String>> configMappings = IvyUtil.getConfigurationMappings(dep);
 
         for (int j = 0; j < modConfs.length; j++) {
             List<String> depConfs = configMappings.get(modConfs[j]);
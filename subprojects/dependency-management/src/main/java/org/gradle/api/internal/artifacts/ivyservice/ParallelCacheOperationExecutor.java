@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a set of operations concurrently using a bounded pool of threads, where each operation runs with the artifact cache lock held.
+ *
+ * <p>The calling thread must hold the artifact cache lock. The lock is released while waiting for the operations, so that the operations only run concurrently
+ * while they are not using the cache, for example while they are making remote requests.</p>
+ */
+public class ParallelCacheOperationExecutor implements Stoppable {
+    private static final Action<Runnable> RUN_WORKER = new Action<Runnable>() {
+        public void execute(Runnable worker) {
+            worker.run();
+        }
+    };
+
+    private final StoppableExecutor executor;
+    private final int maxConcurrentOperations;
+    private final CacheLockingManager cacheLockingManager;
+
+    public ParallelCacheOperationExecutor(ExecutorFactory executorFactory, String displayName, int maxConcurrentOperations, CacheLockingManager cacheLockingManager) {
+        this.executor = executorFactory.create(displayName, maxConcurrentOperations);
+        this.maxConcurrentOperations = maxConcurrentOperations;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    /**
+     * Runs the given operations and blocks until they have all completed. Rethrows the first failure once all operations have completed.
+     *
+     * @param operationDisplayName The display name used when acquiring the cache lock for an operation.
+     * @param waitDisplayName The display name used when releasing the cache lock to wait for the operations.
+     */
+    public void runAll(Collection<? extends Runnable> operations, String operationDisplayName, String waitDisplayName) {
+        runAll(operations, operationDisplayName, waitDisplayName, RUN_WORKER);
+    }
+
+    /**
+     * Runs the given operations and blocks until they have all completed. Rethrows the first failure once all operations have completed.
+     *
+     * <p>A fixed number of workers take the operations from a shared queue. Each worker is run using the given action, which can set up state that
+     * is shared by the operations that the worker runs.</p>
+     *
+     * @param operationDisplayName The display name used when acquiring the cache lock for an operation.
+     * @param waitDisplayName The display name used when releasing the cache lock to wait for the operations.
+     */
+    public void runAll(Collection<? extends Runnable> operations, final String operationDisplayName, String waitDisplayName, final Action<? super Runnable> workerAction) {
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>(operations);
+        int workerCount = Math.min(maxConcurrentOperations, operations.size());
+        final List<Future<?>> workers = new ArrayList<Future<?>>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(executor.submit(new Runnable() {
+                public void run() {
+                    workerAction.execute(new Runnable() {
+                        public void run() {
+                            Runnable operation;
+                            while ((operation = queue.poll()) != null) {
+                                cacheLockingManager.useCache(operationDisplayName, operation);
+                            }
+                        }
+                    });
+                }
+            }));
+        }
+
+        cacheLockingManager.longRunningOperation(waitDisplayName, new Runnable() {
+            public void run() {
+                waitFor(workers);
+            }
+        });
+    }
+
+    private static void waitFor(List<Future<?>> workers) {
+        Throwable failure = null;
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A wrapper around a {@link ModuleComponentRepository} that limits the number of artifacts that can be downloaded from the repository concurrently.
+ *
+ * <p>The limit is only applied to artifact downloads, as resolving meta-data can request other meta-data from the same repository, for example a parent POM.
+ * This wrapper should be applied inside the wrapper that releases the cache lock, so that threads do not hold the lock while waiting.</p>
+ */
+public class ConnectionLimitingModuleComponentRepository extends BaseModuleComponentRepository {
+    public ConnectionLimitingModuleComponentRepository(ModuleComponentRepository delegate, Semaphore connections) {
+        super(delegate, delegate.getLocalAccess(), new ConnectionLimitingRepositoryAccess(delegate.getRemoteAccess(), connections));
+    }
+
+    private static class ConnectionLimitingRepositoryAccess extends BaseModuleComponentRepositoryAccess {
+        private final Semaphore connections;
+
+        public ConnectionLimitingRepositoryAccess(ModuleComponentRepositoryAccess delegate, Semaphore connections) {
+            super(delegate);
+            this.connections = connections;
+        }
+
+        @Override
+        public String toString() {
+            return "connection limited > " + getDelegate().toString();
+        }
+
+        @Override
+        public void resolveArtifact(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+            try {
+                connections.acquire();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            try {
+                super.resolveArtifact(artifact, moduleSource, result);
+            } finally {
+                connections.release();
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionS
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultComponentSelectionRules;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ParallelArtifactDownloader;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.artifacts.repositories.resolver.ExternalResourceResolver;
 import org.gradle.api.internal.component.ArtifactType;
@@ -43,6 +44,9 @@ import org.gradle.internal.resource.cached.CachedArtifactIndex;
 import org.gradle.util.BuildCommencedTimeProvider;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
 public class ResolveIvyFactory {
     private final ModuleVersionsCache moduleVersionsCache;
@@ -55,6 +59,7 @@ public class ResolveIvyFactory {
     private final InMemoryCachedRepositoryFactory inMemoryCache;
     private final VersionSelectorScheme versionSelectorScheme;
     private final VersionComparator versionComparator;
+    private final ConcurrentMap<String, Semaphore> artifactDownloadConnections = new ConcurrentHashMap<String, Semaphore>();
 
     public ResolveIvyFactory(ModuleVersionsCache moduleVersionsCache, ModuleMetaDataCache moduleMetaDataCache, ModuleArtifactsCache moduleArtifactsCache,
                              CachedArtifactIndex artifactAtRepositoryCachedResolutionIndex,
@@ -98,6 +103,9 @@ public class ResolveIvyFactory {
             if (baseRepository.isLocal()) {
                 moduleComponentRepository = new LocalModuleComponentRepository(baseRepository, metadataProcessor);
             } else {
+                if (ParallelArtifactDownloader.isEnabled()) {
+                    moduleComponentRepository = new ConnectionLimitingModuleComponentRepository(moduleComponentRepository, artifactDownloadConnections(baseRepository.getId()));
+                }
                 moduleComponentRepository = new CacheLockReleasingModuleComponentsRepository(moduleComponentRepository, cacheLockingManager);
                 moduleComponentRepository = startParameterResolutionOverride.overrideModuleVersionRepository(moduleComponentRepository);
                 moduleComponentRepository = new CachingModuleComponentRepository(moduleComponentRepository, moduleVersionsCache, moduleMetaDataCache, moduleArtifactsCache, artifactAtRepositoryCachedResolutionIndex,
@@ -107,7 +115,12 @@ public class ResolveIvyFactory {
             if (baseRepository.isDynamicResolveMode()) {
                 moduleComponentRepository = IvyDynamicResolveModuleComponentRepositoryAccess.wrap(moduleComponentRepository);
             }
-            moduleComponentRepository = inMemoryCache.cached(moduleComponentRepository);
+            if (baseRepository.isLocal() || metadataProcessor.hasRules()) {
+                moduleComponentRepository = inMemoryCache.cached(moduleComponentRepository);
+            } else {
+                // Meta-data of remote repositories is the same for every build, so can be kept across builds
+                moduleComponentRepository = inMemoryCache.cached(moduleComponentRepository, cachePolicy);
+            }
             moduleComponentRepository = new ErrorHandlingModuleComponentRepository(moduleComponentRepository);
 
             moduleResolver.add(moduleComponentRepository);
@@ -117,6 +130,15 @@ public class ResolveIvyFactory {
         return moduleResolver;
     }
 
+    private Semaphore artifactDownloadConnections(String repositoryId) {
+        Semaphore connections = artifactDownloadConnections.get(repositoryId);
+        if (connections == null) {
+            artifactDownloadConnections.putIfAbsent(repositoryId, new Semaphore(ParallelArtifactDownloader.getMaxConnectionsPerRepository()));
+            connections = artifactDownloadConnections.get(repositoryId);
+        }
+        return connections;
+    }
+
     /**
      * Provides access to the top-level resolver chain for looking up parent modules when parsing module descriptor files.
      */
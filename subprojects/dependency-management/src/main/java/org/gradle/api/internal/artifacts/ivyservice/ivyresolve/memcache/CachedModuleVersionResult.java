@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
 
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetaData;
 import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
 
@@ -23,6 +25,12 @@ import static org.gradle.internal.resolve.result.BuildableModuleComponentMetaDat
 import static org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult.State.Resolved;
 
 class CachedModuleVersionResult {
+    // Rough estimates of the heap retained by the parts of a cached module descriptor, in bytes
+    private static final int BASE_SIZE = 2048;
+    private static final int DEPENDENCY_SIZE = 512;
+    private static final int CONFIGURATION_SIZE = 256;
+    private static final int ARTIFACT_SIZE = 256;
+
     private final BuildableModuleComponentMetaDataResolveResult.State state;
     private final boolean authoritative;
     private final MutableModuleComponentResolveMetaData metaData;
@@ -45,7 +53,44 @@ class CachedModuleVersionResult {
         return state == Missing || state == Resolved;
     }
 
+    public boolean isMissing() {
+        return state == Missing;
+    }
+
+    public boolean isAuthoritative() {
+        return authoritative;
+    }
+
+    public boolean isChanging() {
+        return metaData != null && metaData.isChanging();
+    }
+
+    public ModuleVersionIdentifier getId() {
+        return metaData == null ? null : metaData.getId();
+    }
+
+    /**
+     * Estimates the heap retained by this result, in bytes.
+     */
+    public int estimateRetainedSize() {
+        ModuleDescriptor descriptor = metaData == null ? null : metaData.getDescriptor();
+        if (descriptor == null) {
+            return BASE_SIZE;
+        }
+        return BASE_SIZE
+                + DEPENDENCY_SIZE * descriptor.getDependencies().length
+                + CONFIGURATION_SIZE * descriptor.getConfigurations().length
+                + ARTIFACT_SIZE * descriptor.getAllArtifacts().length;
+    }
+
     public void supply(BuildableModuleComponentMetaDataResolveResult result) {
+        supply(result, authoritative);
+    }
+
+    /**
+     * Supplies the cached data, overriding whether the result is authoritative.
+     */
+    public void supply(BuildableModuleComponentMetaDataResolveResult result, boolean authoritative) {
         assert isCacheable() : "Results are not cacheable, cannot supply the results.";
         if (state == Resolved) {
             MutableModuleComponentResolveMetaData metaData = this.metaData.copy();
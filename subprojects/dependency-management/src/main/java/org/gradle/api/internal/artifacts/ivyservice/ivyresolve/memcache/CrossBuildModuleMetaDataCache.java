@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+
+/**
+ * Keeps the module meta-data resolved from remote repositories in memory for the lifetime of the process, so that the builds run by a daemon
+ * don't need to load the same meta-data from the file store over and over again.
+ *
+ * <p>The cache is bounded by the estimated heap retained by the cached meta-data. When the bound is reached, the least recently used entries are
+ * evicted first. Entries are validated against the cache policy of the build that uses them, see {@link CrossBuildRepositoryMetaDataCache}.</p>
+ */
+public class CrossBuildModuleMetaDataCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.resolution.memorycache.crossbuild";
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.resolution.memorycache.crossbuild.maxsize";
+
+    // Used for results whose age is unknown, for example results loaded from the file store
+    static final long UNKNOWN_TIMESTAMP = -1;
+
+    // Share of the max heap that the cache may retain when no size is given, in percent
+    private static final int DEFAULT_HEAP_SHARE = 10;
+    private static final long MB = 1024 * 1024;
+
+    private final Cache<Key, Entry> entries;
+
+    public CrossBuildModuleMetaDataCache() {
+        this(getMaxSize());
+    }
+
+    CrossBuildModuleMetaDataCache(long maxSize) {
+        entries = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher(new Weigher<Key, Entry>() {
+                    public int weigh(Key key, Entry entry) {
+                        return entry.size;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * The max size of the cache in bytes, configured in MB.
+     */
+    private static long getMaxSize() {
+        Long maxSize = Long.getLong(MAX_SIZE_PROPERTY);
+        if (maxSize != null) {
+            return Math.max(0, maxSize) * MB;
+        }
+        return Runtime.getRuntime().maxMemory() / 100 * DEFAULT_HEAP_SHARE;
+    }
+
+    Entry get(String repositoryId, ModuleComponentIdentifier component) {
+        return entries.getIfPresent(new Key(repositoryId, component));
+    }
+
+    void put(String repositoryId, ModuleComponentIdentifier component, CachedModuleVersionResult result, long timestamp) {
+        entries.put(new Key(repositoryId, component), new Entry(result, timestamp));
+    }
+
+    void invalidate(String repositoryId, ModuleComponentIdentifier component) {
+        entries.invalidate(new Key(repositoryId, component));
+    }
+
+    long getEvictionCount() {
+        return entries.stats().evictionCount();
+    }
+
+    long size() {
+        return entries.size();
+    }
+
+    static class Entry {
+        final CachedModuleVersionResult result;
+        final long timestamp;
+        final int size;
+
+        Entry(CachedModuleVersionResult result, long timestamp) {
+            this.result = result;
+            this.timestamp = timestamp;
+            this.size = result.estimateRetainedSize();
+        }
+
+        long getAgeMillis(long currentTime) {
+            return timestamp == UNKNOWN_TIMESTAMP ? Long.MAX_VALUE : currentTime - timestamp;
+        }
+    }
+
+    private static class Key {
+        private final String repositoryId;
+        private final ModuleComponentIdentifier component;
+
+        private Key(String repositoryId, ModuleComponentIdentifier component) {
+            this.repositoryId = repositoryId;
+            this.component = component;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return repositoryId.equals(other.repositoryId) && component.equals(other.component);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(repositoryId, component);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
+
+import org.gradle.api.artifacts.ResolvedModuleVersion;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult;
+import org.gradle.util.BuildCommencedTimeProvider;
+
+/**
+ * The view of a single repository onto the {@link CrossBuildModuleMetaDataCache}, for the current build.
+ *
+ * <p>A cached result is only supplied when the cache policy of the current build would also accept it from the file store, so cache timeouts and
+ * {@code --refresh-dependencies} work as usual. Results are timestamped with the start of the build that verified them. Results that were not
+ * verified during the build are of unknown age, and are treated as if they were very old.</p>
+ */
+class CrossBuildRepositoryMetaDataCache {
+    private final CrossBuildModuleMetaDataCache cache;
+    private final String repositoryId;
+    private final CachePolicy cachePolicy;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final InMemoryCacheStats stats;
+
+    CrossBuildRepositoryMetaDataCache(CrossBuildModuleMetaDataCache cache, String repositoryId, CachePolicy cachePolicy, BuildCommencedTimeProvider timeProvider, InMemoryCacheStats stats) {
+        this.cache = cache;
+        this.repositoryId = repositoryId;
+        this.cachePolicy = cachePolicy;
+        this.timeProvider = timeProvider;
+        this.stats = stats;
+    }
+
+    boolean supplyMetaData(ModuleComponentIdentifier requested, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
+        CrossBuildModuleMetaDataCache.Entry entry = cache.get(repositoryId, requested);
+        if (entry == null) {
+            stats.crossBuildMisses++;
+            return false;
+        }
+        long ageMillis = entry.getAgeMillis(timeProvider.getCurrentTime());
+        if (mustRefresh(requested, requestMetaData, entry.result, ageMillis)) {
+            cache.invalidate(repositoryId, requested);
+            stats.crossBuildExpired++;
+            return false;
+        }
+        // When age == 0, verified since the start of this build
+        entry.result.supply(result, entry.result.isAuthoritative() && ageMillis == 0);
+        stats.crossBuildHits++;
+        return true;
+    }
+
+    private boolean mustRefresh(ModuleComponentIdentifier requested, ComponentOverrideMetadata requestMetaData, CachedModuleVersionResult cached, long ageMillis) {
+        if (cached.isMissing()) {
+            return cachePolicy.mustRefreshMissingModule(requested, ageMillis);
+        }
+        ResolvedModuleVersion version = new DefaultResolvedModuleVersion(cached.getId());
+        if (requestMetaData.isChanging() || cached.isChanging()) {
+            return cachePolicy.mustRefreshChangingModule(requested, version, ageMillis);
+        }
+        return cachePolicy.mustRefreshModule(requested, version, ageMillis);
+    }
+
+    void newDependencyResult(ModuleComponentIdentifier requested, BuildableModuleComponentMetaDataResolveResult result) {
+        CachedModuleVersionResult cachedResult = new CachedModuleVersionResult(result);
+        if (cachedResult.isCacheable()) {
+            long timestamp = cachedResult.isAuthoritative() ? timeProvider.getCurrentTime() : CrossBuildModuleMetaDataCache.UNKNOWN_TIMESTAMP;
+            cache.put(repositoryId, requested, cachedResult, timestamp);
+        }
+    }
+}
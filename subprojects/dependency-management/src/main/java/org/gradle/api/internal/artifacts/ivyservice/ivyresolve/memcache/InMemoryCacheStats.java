@@ -21,9 +21,13 @@ class InMemoryCacheStats {
     int reposWrapped;
     int metadataServed;
     int artifactsServed;
+    int crossBuildHits;
+    int crossBuildMisses;
+    int crossBuildExpired;
+    long crossBuildEvictions;
     public String toString() {
         return String.format(
-                "Repos cached: %s, cache instances: %s, modules served from cache: %s, artifacts: %s",
-                reposWrapped, cacheInstances, metadataServed, artifactsServed);
+                "Repos cached: %s, cache instances: %s, modules served from cache: %s, artifacts: %s, cross-build cache hits: %s, misses: %s, expired: %s, evicted: %s",
+                reposWrapped, cacheInstances, metadataServed, artifactsServed, crossBuildHits, crossBuildMisses, crossBuildExpired, crossBuildEvictions);
     }
 }
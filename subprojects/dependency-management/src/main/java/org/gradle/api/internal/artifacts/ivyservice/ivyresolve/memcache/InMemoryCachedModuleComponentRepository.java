@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.ModuleSource;
@@ -32,10 +33,18 @@ class InMemoryCachedModuleComponentRepository extends BaseModuleComponentReposit
     private final ModuleComponentRepositoryAccess remoteAccess;
 
     public InMemoryCachedModuleComponentRepository(InMemoryModuleComponentRepositoryCaches cache, ModuleComponentRepository delegate) {
+        this(cache, null, delegate);
+    }
+
+    /**
+     * @param crossBuildCache when not null, meta-data found by the local access is also looked up in and added to this cache, and meta-data found by
+     * the remote access is added to it.
+     */
+    public InMemoryCachedModuleComponentRepository(InMemoryModuleComponentRepositoryCaches cache, @Nullable CrossBuildRepositoryMetaDataCache crossBuildCache, ModuleComponentRepository delegate) {
         super(delegate);
         this.stats = cache.stats;
-        this.localAccess = new CachedAccess(delegate.getLocalAccess(), cache.localArtifactsCache, cache.localMetaDataCache);
-        this.remoteAccess = new CachedAccess(delegate.getRemoteAccess(), cache.remoteArtifactsCache, cache.remoteMetaDataCache);
+        this.localAccess = new CachedAccess(delegate.getLocalAccess(), cache.localArtifactsCache, cache.localMetaDataCache, crossBuildCache, true);
+        this.remoteAccess = new CachedAccess(delegate.getRemoteAccess(), cache.remoteArtifactsCache, cache.remoteMetaDataCache, crossBuildCache, false);
     }
 
     @Override
@@ -51,11 +60,16 @@ class InMemoryCachedModuleComponentRepository extends BaseModuleComponentReposit
     private class CachedAccess extends BaseModuleComponentRepositoryAccess {
         private final InMemoryMetaDataCache metaDataCache;
         private final InMemoryArtifactsCache artifactsCache;
+        private final CrossBuildRepositoryMetaDataCache crossBuildCache;
+        private final boolean supplyFromCrossBuildCache;
 
-        public CachedAccess(ModuleComponentRepositoryAccess access, InMemoryArtifactsCache artifactsCache, InMemoryMetaDataCache metaDataCache) {
+        public CachedAccess(ModuleComponentRepositoryAccess access, InMemoryArtifactsCache artifactsCache, InMemoryMetaDataCache metaDataCache,
+                            @Nullable CrossBuildRepositoryMetaDataCache crossBuildCache, boolean supplyFromCrossBuildCache) {
             super(access);
             this.artifactsCache = artifactsCache;
             this.metaDataCache = metaDataCache;
+            this.crossBuildCache = crossBuildCache;
+            this.supplyFromCrossBuildCache = crossBuildCache != null && supplyFromCrossBuildCache;
         }
 
         @Override
@@ -71,9 +85,17 @@ class InMemoryCachedModuleComponentRepository extends BaseModuleComponentReposit
         }
 
         public void resolveComponentMetaData(ModuleComponentIdentifier moduleComponentIdentifier, ComponentOverrideMetadata requestMetaData, BuildableModuleComponentMetaDataResolveResult result) {
-            if(!metaDataCache.supplyMetaData(moduleComponentIdentifier, result)) {
-                super.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result);
+            if (metaDataCache.supplyMetaData(moduleComponentIdentifier, result)) {
+                return;
+            }
+            if (supplyFromCrossBuildCache && crossBuildCache.supplyMetaData(moduleComponentIdentifier, requestMetaData, result)) {
                 metaDataCache.newDependencyResult(moduleComponentIdentifier, result);
+                return;
+            }
+            super.resolveComponentMetaData(moduleComponentIdentifier, requestMetaData, result);
+            metaDataCache.newDependencyResult(moduleComponentIdentifier, result);
+            if (crossBuildCache != null) {
+                crossBuildCache.newDependencyResult(moduleComponentIdentifier, result);
             }
         }
 
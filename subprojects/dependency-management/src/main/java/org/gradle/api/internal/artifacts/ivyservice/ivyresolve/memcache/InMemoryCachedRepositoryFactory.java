@@ -17,15 +17,19 @@
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
 
 import com.google.common.collect.MapMaker;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.util.BuildCommencedTimeProvider;
 
 import java.util.Map;
 
 /**
- * Caches the dependency metadata (descriptors, artifact files) in memory.
+ * Caches the dependency metadata (descriptors, artifact files) in memory, for the duration of the build. When a {@link CrossBuildModuleMetaDataCache} is
+ * given, the module meta-data of remote repositories is also kept for later builds.
  */
 public class InMemoryCachedRepositoryFactory implements Stoppable {
 
@@ -37,7 +41,31 @@ public class InMemoryCachedRepositoryFactory implements Stoppable {
 
     final InMemoryCacheStats stats = new InMemoryCacheStats();
 
+    private final CrossBuildModuleMetaDataCache crossBuildCache;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final long crossBuildEvictionsAtStart;
+
+    public InMemoryCachedRepositoryFactory() {
+        this(null, new BuildCommencedTimeProvider());
+    }
+
+    public InMemoryCachedRepositoryFactory(@Nullable CrossBuildModuleMetaDataCache crossBuildCache, BuildCommencedTimeProvider timeProvider) {
+        this.crossBuildCache = crossBuildCache;
+        this.timeProvider = timeProvider;
+        this.crossBuildEvictionsAtStart = crossBuildCache == null ? 0 : crossBuildCache.getEvictionCount();
+    }
+
     public ModuleComponentRepository cached(ModuleComponentRepository input) {
+        return cached(input, null);
+    }
+
+    /**
+     * Wraps the given repository with the in-memory caches.
+     *
+     * @param cachePolicy when not null, the module meta-data of the repository is shared with later builds, and validated using this policy. Only
+     * pass a policy when the meta-data is the same for every build, that is, for remote repositories without component meta-data rules.
+     */
+    public ModuleComponentRepository cached(ModuleComponentRepository input, @Nullable CachePolicy cachePolicy) {
         if ("false".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY))) {
             return input;
         }
@@ -52,11 +80,18 @@ public class InMemoryCachedRepositoryFactory implements Stoppable {
         } else {
             LOG.debug("Reusing in-memory cache for repo '{}' [{}].", input.getName(), input.getId());
         }
-        return new InMemoryCachedModuleComponentRepository(caches, input);
+        CrossBuildRepositoryMetaDataCache crossBuildRepositoryCache = null;
+        if (crossBuildCache != null && cachePolicy != null) {
+            crossBuildRepositoryCache = new CrossBuildRepositoryMetaDataCache(crossBuildCache, input.getId(), cachePolicy, timeProvider, stats);
+        }
+        return new InMemoryCachedModuleComponentRepository(caches, crossBuildRepositoryCache, input);
     }
 
     public void stop() {
         cachePerRepo.clear();
+        if (crossBuildCache != null) {
+            stats.crossBuildEvictions = crossBuildCache.getEvictionCount() - crossBuildEvictionsAtStart;
+        }
         LOG.debug("In-memory dependency metadata cache closed. {}", stats);
     }
 }
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * Serializes the module descriptors held in the meta-data cache, so that they can be read back without parsing an ivy.xml file.
+ * Persists the same information as {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}.
+ */
+class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private final ResolverStrategy resolverStrategy;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor md) throws Exception {
+        if (md.getInheritedDescriptors().length != 0) {
+            throw new UnsupportedOperationException("Extends descriptors not supported.");
+        }
+        writeInfo(encoder, md);
+        writeConfigurations(encoder, md);
+        writeArtifacts(encoder, md);
+        writeDependencies(encoder, md);
+        writeExcludeRules(encoder, md.getAllExcludeRules());
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+        readInfo(decoder, md);
+        readConfigurations(decoder, md);
+        readArtifacts(decoder, md);
+        readDependencies(decoder, md);
+        for (ExcludeRule excludeRule : readExcludeRules(decoder)) {
+            md.addExcludeRule(excludeRule);
+        }
+        return md;
+    }
+
+    private void writeInfo(Encoder encoder, ModuleDescriptor md) throws IOException {
+        ModuleRevisionId moduleRevisionId = md.getModuleRevisionId();
+        ModuleRevisionId resolvedModuleRevisionId = md.getResolvedModuleRevisionId();
+        encoder.writeString(moduleRevisionId.getOrganisation());
+        encoder.writeString(moduleRevisionId.getName());
+        encoder.writeNullableString(resolvedModuleRevisionId.getBranch());
+        encoder.writeNullableString(resolvedModuleRevisionId.getRevision());
+        writeMap(encoder, md.getQualifiedExtraAttributes());
+        encoder.writeNullableString(md.getStatus());
+        Date publicationDate = md.getResolvedPublicationDate();
+        encoder.writeBoolean(publicationDate != null);
+        if (publicationDate != null) {
+            encoder.writeLong(publicationDate.getTime());
+        }
+        encoder.writeBoolean(md.isDefault());
+        writeMap(encoder, md.getExtraAttributesNamespaces());
+
+        License[] licenses = md.getLicenses();
+        encoder.writeSmallInt(licenses.length);
+        for (License license : licenses) {
+            encoder.writeNullableString(license.getName());
+            encoder.writeNullableString(license.getUrl());
+        }
+        encoder.writeNullableString(md.getHomePage());
+        encoder.writeNullableString(md.getDescription());
+
+        List<Map.Entry<NamespaceId, String>> extraInfo = new ArrayList<Map.Entry<NamespaceId, String>>();
+        for (Object entry : md.getExtraInfo().entrySet()) {
+            Map.Entry extraInfoEntry = (Map.Entry) entry;
+            if (extraInfoEntry.getKey() instanceof NamespaceId && extraInfoEntry.getValue() != null) {
+                extraInfo.add(extraInfoEntry);
+            }
+        }
+        encoder.writeSmallInt(extraInfo.size());
+        for (Map.Entry<NamespaceId, String> entry : extraInfo) {
+            encoder.writeNullableString(entry.getKey().getNamespace());
+            encoder.writeString(entry.getKey().getName());
+            encoder.writeString(entry.getValue());
+        }
+    }
+
+    private void readInfo(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        String organisation = decoder.readString();
+        String module = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        Map<String, String> extraAttributes = readMap(decoder);
+        md.setModuleRevisionId(IvyUtil.createModuleRevisionId(organisation, module, branch, revision, extraAttributes, false));
+        md.setStatus(decoder.readNullableString());
+        if (decoder.readBoolean()) {
+            md.setPublicationDate(new Date(decoder.readLong()));
+        }
+        md.setDefault(decoder.readBoolean());
+        for (Map.Entry<String, String> entry : readMap(decoder).entrySet()) {
+            md.addExtraAttributeNamespace(entry.getKey(), entry.getValue());
+        }
+
+        int licenseCount = decoder.readSmallInt();
+        for (int i = 0; i < licenseCount; i++) {
+            md.addLicense(new License(decoder.readNullableString(), decoder.readNullableString()));
+        }
+        md.setHomePage(decoder.readNullableString());
+        md.setDescription(decoder.readNullableString());
+
+        int extraInfoCount = decoder.readSmallInt();
+        for (int i = 0; i < extraInfoCount; i++) {
+            NamespaceId id = new NamespaceId(decoder.readNullableString(), decoder.readString());
+            md.getExtraInfo().put(id, decoder.readString());
+        }
+    }
+
+    private void writeConfigurations(Encoder encoder, ModuleDescriptor md) throws IOException {
+        Configuration[] configurations = md.getConfigurations();
+        encoder.writeSmallInt(configurations.length);
+        for (Configuration configuration : configurations) {
+            encoder.writeString(configuration.getName());
+            encoder.writeString(configuration.getVisibility().toString());
+            encoder.writeNullableString(configuration.getDescription());
+            writeStrings(encoder, configuration.getExtends());
+            encoder.writeBoolean(configuration.isTransitive());
+            encoder.writeNullableString(configuration.getDeprecated());
+            writeMap(encoder, configuration.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readConfigurations(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            Configuration.Visibility visibility = Configuration.Visibility.getVisibility(decoder.readString());
+            String description = decoder.readNullableString();
+            String[] extendsFrom = readStrings(decoder);
+            boolean transitive = decoder.readBoolean();
+            String deprecated = decoder.readNullableString();
+            Configuration configuration = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> entry : readMap(decoder).entrySet()) {
+                configuration.setExtraAttribute(entry.getKey(), entry.getValue());
+            }
+            md.addConfiguration(configuration);
+        }
+    }
+
+    private void writeArtifacts(Encoder encoder, ModuleDescriptor md) throws IOException {
+        Artifact[] artifacts = md.getAllArtifacts();
+        encoder.writeSmallInt(artifacts.length);
+        for (Artifact artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeString(artifact.getExt());
+            writeMap(encoder, artifact.getQualifiedExtraAttributes());
+            writeStrings(encoder, artifact.getConfigurations());
+        }
+    }
+
+    private void readArtifacts(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            String type = decoder.readString();
+            String ext = decoder.readString();
+            MDArtifact artifact = new MDArtifact(md, name, type, ext, null, readMap(decoder));
+            for (String configuration : readStrings(decoder)) {
+                artifact.addConfiguration(configuration);
+                md.addArtifact(configuration, artifact);
+            }
+        }
+    }
+
+    private void writeDependencies(Encoder encoder, ModuleDescriptor md) throws IOException {
+        DependencyDescriptor[] dependencies = md.getDependencies();
+        encoder.writeSmallInt(dependencies.length);
+        for (DependencyDescriptor dependency : dependencies) {
+            ModuleRevisionId dependencyRevisionId = dependency.getDependencyRevisionId();
+            ModuleRevisionId dynamicConstraintRevisionId = dependency.getDynamicConstraintDependencyRevisionId();
+            writeModuleRevisionId(encoder, dependencyRevisionId);
+            boolean hasDynamicConstraint = !dynamicConstraintRevisionId.equals(dependencyRevisionId);
+            encoder.writeBoolean(hasDynamicConstraint);
+            if (hasDynamicConstraint) {
+                writeModuleRevisionId(encoder, dynamicConstraintRevisionId);
+            }
+            encoder.writeBoolean(dependency.isForce());
+            encoder.writeBoolean(dependency.isChanging());
+            encoder.writeBoolean(dependency.isTransitive());
+
+            Map<String, List<String>> configurationMappings = IvyUtil.getConfigurationMappings(dependency);
+            encoder.writeSmallInt(configurationMappings.size());
+            for (Map.Entry<String, List<String>> entry : configurationMappings.entrySet()) {
+                encoder.writeString(entry.getKey());
+                writeStrings(encoder, entry.getValue().toArray(new String[0]));
+            }
+
+            DependencyArtifactDescriptor[] dependencyArtifacts = dependency.getAllDependencyArtifacts();
+            encoder.writeSmallInt(dependencyArtifacts.length);
+            for (DependencyArtifactDescriptor dependencyArtifact : dependencyArtifacts) {
+                encoder.writeString(dependencyArtifact.getName());
+                encoder.writeString(dependencyArtifact.getType());
+                encoder.writeString(dependencyArtifact.getExt());
+                URL url = dependencyArtifact.getUrl();
+                encoder.writeNullableString(url == null ? null : url.toExternalForm());
+                writeMap(encoder, dependencyArtifact.getQualifiedExtraAttributes());
+                writeStrings(encoder, dependencyArtifact.getConfigurations());
+            }
+
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            encoder.writeSmallInt(includeRules.length);
+            for (IncludeRule includeRule : includeRules) {
+                writeArtifactId(encoder, includeRule.getId());
+                encoder.writeString(includeRule.getMatcher().getName());
+                writeMap(encoder, includeRule.getQualifiedExtraAttributes());
+                writeStrings(encoder, includeRule.getConfigurations());
+            }
+
+            writeExcludeRules(encoder, dependency.getAllExcludeRules());
+        }
+    }
+
+    private void readDependencies(Decoder decoder, DefaultModuleDescriptor md) throws IOException {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            ModuleRevisionId dependencyRevisionId = readModuleRevisionId(decoder);
+            ModuleRevisionId dynamicConstraintRevisionId = decoder.readBoolean() ? readModuleRevisionId(decoder) : dependencyRevisionId;
+            boolean force = decoder.readBoolean();
+            boolean changing = decoder.readBoolean();
+            boolean transitive = decoder.readBoolean();
+            DefaultDependencyDescriptor dependency = new DefaultDependencyDescriptor(md, dependencyRevisionId, dynamicConstraintRevisionId, force, changing, transitive);
+
+            int mappingCount = decoder.readSmallInt();
+            for (int j = 0; j < mappingCount; j++) {
+                String moduleConfiguration = decoder.readString();
+                for (String dependencyConfiguration : readStrings(decoder)) {
+                    dependency.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+                }
+            }
+
+            int artifactCount = decoder.readSmallInt();
+            for (int j = 0; j < artifactCount; j++) {
+                String name = decoder.readString();
+                String type = decoder.readString();
+                String ext = decoder.readString();
+                String url = decoder.readNullableString();
+                DefaultDependencyArtifactDescriptor dependencyArtifact = new DefaultDependencyArtifactDescriptor(dependency, name, type, ext, url == null ? null : new URL(url), readMap(decoder));
+                for (String configuration : readStrings(decoder)) {
+                    dependencyArtifact.addConfiguration(configuration);
+                    dependency.addDependencyArtifact(configuration, dependencyArtifact);
+                }
+            }
+
+            int includeRuleCount = decoder.readSmallInt();
+            for (int j = 0; j < includeRuleCount; j++) {
+                ArtifactId artifactId = readArtifactId(decoder);
+                PatternMatcher matcher = getPatternMatcher(decoder.readString());
+                DefaultIncludeRule includeRule = new DefaultIncludeRule(artifactId, matcher, readMap(decoder));
+                for (String configuration : readStrings(decoder)) {
+                    includeRule.addConfiguration(configuration);
+                    dependency.addIncludeRule(configuration, includeRule);
+                }
+            }
+
+            for (ExcludeRule excludeRule : readExcludeRules(decoder)) {
+                for (String configuration : excludeRule.getConfigurations()) {
+                    dependency.addExcludeRule(configuration, excludeRule);
+                }
+            }
+
+            md.addDependency(dependency);
+        }
+    }
+
+    private void writeExcludeRules(Encoder encoder, ExcludeRule[] excludeRules) throws IOException {
+        encoder.writeSmallInt(excludeRules.length);
+        for (ExcludeRule excludeRule : excludeRules) {
+            writeArtifactId(encoder, excludeRule.getId());
+            encoder.writeString(excludeRule.getMatcher().getName());
+            writeMap(encoder, excludeRule.getQualifiedExtraAttributes());
+            writeStrings(encoder, excludeRule.getConfigurations());
+        }
+    }
+
+    private List<ExcludeRule> readExcludeRules(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        List<ExcludeRule> excludeRules = new ArrayList<ExcludeRule>(count);
+        for (int i = 0; i < count; i++) {
+            ArtifactId artifactId = readArtifactId(decoder);
+            PatternMatcher matcher = getPatternMatcher(decoder.readString());
+            DefaultExcludeRule excludeRule = new DefaultExcludeRule(artifactId, matcher, readMap(decoder));
+            for (String configuration : readStrings(decoder)) {
+                excludeRule.addConfiguration(configuration);
+            }
+            excludeRules.add(excludeRule);
+        }
+        return excludeRules;
+    }
+
+    private PatternMatcher getPatternMatcher(String name) {
+        PatternMatcher matcher = resolverStrategy.getPatternMatcher(name);
+        if (matcher == null) {
+            throw new IllegalArgumentException("unknown matcher " + name);
+        }
+        return matcher;
+    }
+
+    private void writeModuleRevisionId(Encoder encoder, ModuleRevisionId id) throws IOException {
+        encoder.writeString(id.getOrganisation());
+        encoder.writeString(id.getName());
+        encoder.writeNullableString(id.getBranch());
+        encoder.writeNullableString(id.getRevision());
+        writeMap(encoder, id.getQualifiedExtraAttributes());
+    }
+
+    private ModuleRevisionId readModuleRevisionId(Decoder decoder) throws IOException {
+        String organisation = decoder.readString();
+        String name = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        return IvyUtil.createModuleRevisionId(organisation, name, branch, revision, readMap(decoder), false);
+    }
+
+    private void writeArtifactId(Encoder encoder, ArtifactId id) throws IOException {
+        encoder.writeString(id.getModuleId().getOrganisation());
+        encoder.writeString(id.getModuleId().getName());
+        encoder.writeString(id.getName());
+        encoder.writeString(id.getType());
+        encoder.writeString(id.getExt());
+    }
+
+    private ArtifactId readArtifactId(Decoder decoder) throws IOException {
+        return IvyUtil.createArtifactId(decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString(), decoder.readString());
+    }
+
+    private void writeMap(Encoder encoder, Map<?, ?> map) throws IOException {
+        if (map == null) {
+            encoder.writeSmallInt(0);
+            return;
+        }
+        encoder.writeSmallInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            encoder.writeString(entry.getKey().toString());
+            encoder.writeString(entry.getValue().toString());
+        }
+    }
+
+    private Map<String, String> readMap(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Map<String, String> map = new LinkedHashMap<String, String>(count);
+        for (int i = 0; i < count; i++) {
+            map.put(decoder.readString(), decoder.readString());
+        }
+        return map;
+    }
+
+    private void writeStrings(Encoder encoder, String[] values) throws IOException {
+        encoder.writeSmallInt(values.length);
+        for (String value : values) {
+            encoder.writeString(value);
+        }
+    }
+
+    private String[] readStrings(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ParallelCacheOperationExecutor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.Collection;
+
+/**
+ * Fetches component meta-data concurrently, using a bounded pool of threads.
+ *
+ * <p>The calling thread must hold the artifact cache lock. The lock is released while waiting for the fetches, and each fetch runs with the lock held, so that the
+ * fetches only run concurrently while they are making remote requests.</p>
+ */
+public class ParallelComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher, Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.dependency.parallelmetadata";
+
+    private final ParallelCacheOperationExecutor executor;
+    private final IvyContextManager ivyContextManager;
+
+    public ParallelComponentMetaDataPrefetcher(ExecutorFactory executorFactory, int maxConcurrentFetches, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager) {
+        this.executor = new ParallelCacheOperationExecutor(executorFactory, "component meta-data fetch", maxConcurrentFetches, cacheLockingManager);
+        this.ivyContextManager = ivyContextManager;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    @Override
+    public void fetchAll(Collection<? extends Runnable> fetches) {
+        if (fetches.size() < 2) {
+            for (Runnable fetch : fetches) {
+                fetch.run();
+            }
+            return;
+        }
+
+        // Set up an Ivy context once for each worker, rather than once for each fetch
+        executor.runAll(fetches, "Fetch component meta-data", String.format("Fetch meta-data for %s components", fetches.size()), new Action<Runnable>() {
+            public void execute(final Runnable worker) {
+                ivyContextManager.withIvy(new Action<Ivy>() {
+                    public void execute(Ivy ivy) {
+                        worker.run();
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
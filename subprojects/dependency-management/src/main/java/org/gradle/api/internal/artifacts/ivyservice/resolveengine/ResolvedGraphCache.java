@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.ModuleInternal;
+import org.gradle.api.internal.artifacts.ResolveContext;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphRecorder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RecordedDependencyGraph;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RecordedDependencyGraphSerializer;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.util.BuildCommencedTimeProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * Persists the resolved dependency graphs of configurations, so that a configuration whose inputs have not changed since it was last resolved does not need
+ * to have its graph resolved again.
+ *
+ * <p>Only configurations that declare fixed versions of external modules, and that have no rules that can change the graph, are cached. The cached graph is
+ * keyed by a hash of everything else that the graph depends on: the declared dependencies and excludes of the configuration hierarchy, the resolution strategy
+ * and the repositories. A cached graph is discarded when the cache policy requires any of the modules in the graph to be refreshed, for example when
+ * running with {@code --refresh-dependencies}.</p>
+ */
+public class ResolvedGraphCache {
+    public static final String ENABLED_PROPERTY = "org.gradle.dependency.graphcache";
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private PersistentIndexedCache<String, RecordedDependencyGraph> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, VersionSelectorScheme versionSelectorScheme) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    private PersistentIndexedCache<String, RecordedDependencyGraph> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", STRING_SERIALIZER, new RecordedDependencyGraphSerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the key for the graph of the given context, or returns null when the graph of the context cannot be cached.
+     */
+    @Nullable
+    public String createKey(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
+        if (!(resolveContext instanceof ConfigurationInternal)) {
+            return null;
+        }
+        ConfigurationInternal configuration = (ConfigurationInternal) resolveContext;
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.getDependencySubstitution().hasRules()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || metadataHandler.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder();
+        ModuleInternal module = configuration.getModule();
+        append(key, configuration.getPath(), module.getGroup(), module.getName(), module.getVersion(), module.getStatus());
+        for (Configuration hierarchyConfiguration : configuration.getHierarchy()) {
+            append(key, hierarchyConfiguration.getName(), hierarchyConfiguration.isTransitive());
+            appendExcludeRules(key, hierarchyConfiguration.getExcludeRules());
+            for (Dependency dependency : hierarchyConfiguration.getDependencies()) {
+                if (!isFixedVersion(dependency)) {
+                    return null;
+                }
+                ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+                append(key, moduleDependency.getGroup(), moduleDependency.getName(), moduleDependency.getVersion(), moduleDependency.getConfiguration(),
+                    moduleDependency.isTransitive(), moduleDependency.isForce());
+                for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+                    append(key, artifact.getName(), artifact.getType(), artifact.getExtension(), artifact.getClassifier(), artifact.getUrl());
+                }
+                appendExcludeRules(key, moduleDependency.getExcludeRules());
+            }
+        }
+
+        append(key, resolutionStrategy.getConflictResolution().getClass().getName());
+        List<String> forcedModules = new ArrayList<String>();
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            forcedModules.add(forcedModule.getGroup() + ":" + forcedModule.getName() + ":" + forcedModule.getVersion());
+        }
+        Collections.sort(forcedModules);
+        append(key, forcedModules.toArray());
+
+        for (ResolutionAwareRepository repository : repositories) {
+            append(key, repository.createResolver().getId());
+        }
+        return HashUtil.createCompactMD5(key.toString());
+    }
+
+    /**
+     * Returns the cached graph for the given key, or null when there is no usable graph. The cache policy must already have the rules for the current build
+     * applied to it.
+     */
+    @Nullable
+    public RecordedDependencyGraph get(String key, CachePolicy cachePolicy, ModuleReplacementsData moduleReplacements) {
+        RecordedDependencyGraph graph = getCache().get(key);
+        if (graph == null || graph.hasReplacements(moduleReplacements)) {
+            return null;
+        }
+        long ageMillis = timeProvider.getCurrentTime() - graph.getCreateTimestamp();
+        for (ModuleComponentIdentifier component : graph.getComponents()) {
+            DefaultResolvedModuleVersion moduleVersion = new DefaultResolvedModuleVersion(DefaultModuleVersionIdentifier.newId(component));
+            if (cachePolicy.mustRefreshMissingModule(component, ageMillis) || cachePolicy.mustRefreshModule(component, moduleVersion, ageMillis)) {
+                return null;
+            }
+        }
+        return graph;
+    }
+
+    public DependencyGraphRecorder createRecorder(List<? extends ModuleDependency> dependencies) {
+        return new DependencyGraphRecorder(dependencies, versionSelectorScheme);
+    }
+
+    /**
+     * Stores the graph captured by the given recorder, if the graph can be cached.
+     */
+    public void store(String key, DependencyGraphRecorder recorder, ModuleReplacementsData moduleReplacements) {
+        RecordedDependencyGraph graph = recorder.complete(timeProvider.getCurrentTime());
+        if (graph == null || graph.hasReplacements(moduleReplacements)) {
+            getCache().remove(key);
+            return;
+        }
+        getCache().put(key, graph);
+    }
+
+    private boolean isFixedVersion(Dependency dependency) {
+        if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+            return false;
+        }
+        ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+        return !moduleDependency.isChanging() && moduleDependency.getVersion() != null && !versionSelectorScheme.parseSelector(moduleDependency.getVersion()).isDynamic();
+    }
+
+    private static void appendExcludeRules(StringBuilder key, Iterable<ExcludeRule> excludeRules) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            append(key, "exclude", excludeRule.getGroup(), excludeRule.getModule());
+        }
+    }
+
+    private static void append(StringBuilder key, Object... values) {
+        for (Object value : values) {
+            key.append(value).append(',');
+        }
+        key.append('\n');
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ParallelCacheOperationExecutor;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downloads the files of a set of resolved artifacts concurrently, using a bounded pool of threads.
+ *
+ * <p>The calling thread must hold the artifact cache lock. The lock is released while waiting for the downloads, and each download runs with the lock held,
+ * so that the downloads only run concurrently while they are making remote requests. The number of concurrent requests made to a single repository
+ * is limited separately, by {@link org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConnectionLimitingModuleComponentRepository}.</p>
+ *
+ * <p>A download that fails is ignored here, so that the failure is reported when the file of the artifact is requested, in the same way as when the
+ * artifacts are downloaded one at a time.</p>
+ */
+public class ParallelArtifactDownloader implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.dependency.parallelartifacts";
+    public static final String MAX_CONNECTIONS_PER_REPOSITORY_PROPERTY = "org.gradle.dependency.parallelartifacts.connections";
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_REPOSITORY = 4;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+
+    private final ParallelCacheOperationExecutor executor;
+    private final ProgressLoggerFactory progressLoggerFactory;
+
+    public ParallelArtifactDownloader(ExecutorFactory executorFactory, int maxConcurrentDownloads, CacheLockingManager cacheLockingManager, ProgressLoggerFactory progressLoggerFactory) {
+        this.executor = new ParallelCacheOperationExecutor(executorFactory, "artifact download", maxConcurrentDownloads, cacheLockingManager);
+        this.progressLoggerFactory = progressLoggerFactory;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    public static int getMaxConnectionsPerRepository() {
+        return Math.max(1, Integer.getInteger(MAX_CONNECTIONS_PER_REPOSITORY_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_REPOSITORY));
+    }
+
+    /**
+     * Downloads the files of those of the given artifacts that have not been downloaded yet.
+     */
+    public void downloadAll(String displayName, Iterable<? extends ResolvedArtifact> artifacts) {
+        List<DefaultResolvedArtifact> pending = new ArrayList<DefaultResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            if (artifact instanceof DefaultResolvedArtifact && !((DefaultResolvedArtifact) artifact).isResolved()) {
+                pending.add((DefaultResolvedArtifact) artifact);
+            }
+        }
+        if (pending.size() < 2) {
+            // Nothing to gain, leave it to the caller
+            return;
+        }
+
+        ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactDownloader.class);
+        progressLogger.setDescription(String.format("Download artifacts for %s", displayName));
+        progressLogger.started(String.format("0/%s artifacts", pending.size()));
+        try {
+            Progress progress = new Progress(progressLogger, pending.size());
+            List<ArtifactDownload> downloads = new ArrayList<ArtifactDownload>(pending.size());
+            for (DefaultResolvedArtifact artifact : pending) {
+                downloads.add(new ArtifactDownload(artifact, progress));
+            }
+            executor.runAll(downloads, "Download artifact", String.format("Download %s artifacts for %s", pending.size(), displayName));
+        } finally {
+            progressLogger.completed();
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+
+    private static class Progress {
+        private final ProgressLogger progressLogger;
+        private final int total;
+        private int downloaded;
+
+        Progress(ProgressLogger progressLogger, int total) {
+            this.progressLogger = progressLogger;
+            this.total = total;
+        }
+
+        synchronized void downloaded() {
+            progressLogger.progress(String.format("%s/%s artifacts", ++downloaded, total));
+        }
+    }
+
+    private static class ArtifactDownload implements Runnable {
+        private final DefaultResolvedArtifact artifact;
+        private final Progress progress;
+
+        public ArtifactDownload(DefaultResolvedArtifact artifact, Progress progress) {
+            this.artifact = artifact;
+            this.progress = progress;
+        }
+
+        public void run() {
+            try {
+                artifact.getFile();
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not download {}, will try again when its file is requested.", artifact, e);
+            }
+            progress.downloaded();
+        }
+    }
+}
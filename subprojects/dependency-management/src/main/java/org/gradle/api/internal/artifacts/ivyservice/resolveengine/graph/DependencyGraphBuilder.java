@@ -17,6 +17,7 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import com.google.common.base.Joiner;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ModuleDependency;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
@@ -54,22 +55,33 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, dependencyToConfigurationResolver, conflictHandler, null);
+    }
+
+    /**
+     * @param metaDataPrefetcher Used to fetch the meta-data of the components that the traversal is about to reach, or null to fetch meta-data only when it is required.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ConflictHandler conflictHandler, @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+        this.metaDataPrefetcher = metaDataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
         DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
         moduleResolver.resolve(resolveContext, rootModule);
 
-        ResolveState resolveState = new ResolveState(rootModule, resolveContext.getName(), idResolver, metaDataResolver, dependencyToConfigurationResolver);
+        ResolveState resolveState = new ResolveState(rootModule, resolveContext.getName(), idResolver, metaDataResolver, dependencyToConfigurationResolver, metaDataPrefetcher);
         conflictHandler.registerResolver(new DirectDependencyForcingResolver(resolveState.root.moduleRevision));
 
         traverseGraph(resolveState, conflictHandler);
@@ -89,6 +101,9 @@ public class DependencyGraphBuilder {
                 ConfigurationNode node = resolveState.pop();
                 LOGGER.debug("Visiting configuration {}.", node);
 
+                // Fetch the meta-data required by this configuration and the configurations queued behind it, before any of it is needed
+                resolveState.prefetchMetaData(node);
+
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
@@ -317,12 +332,17 @@ public class DependencyGraphBuilder {
         private final DependencyToConfigurationResolver dependencyToConfigurationResolver;
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
+        private final ComponentMetaDataPrefetcher metaDataPrefetcher;
+        private final Map<DependencyMetaData, BuildableComponentIdResolveResult> prefetchedIds = new HashMap<DependencyMetaData, BuildableComponentIdResolveResult>();
+        private final Map<ModuleVersionIdentifier, PrefetchedMetaData> prefetchedMetaData = new HashMap<ModuleVersionIdentifier, PrefetchedMetaData>();
 
         public ResolveState(ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
-                            ComponentMetaDataResolver metaDataResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+                            ComponentMetaDataResolver metaDataResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                            @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
             this.idResolver = idResolver;
             this.metaDataResolver = metaDataResolver;
             this.dependencyToConfigurationResolver = dependencyToConfigurationResolver;
+            this.metaDataPrefetcher = metaDataPrefetcher;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
@@ -361,7 +381,7 @@ public class DependencyGraphBuilder {
             ModuleVersionSelector requested = dependencyMetaData.getRequested();
             ModuleVersionSelectorResolveState resolveState = selectors.get(requested);
             if (resolveState == null) {
-                resolveState = new ModuleVersionSelectorResolveState(dependencyMetaData, idResolver, this);
+                resolveState = new ModuleVersionSelectorResolveState(dependencyMetaData, this);
                 selectors.put(requested, resolveState);
             }
             return resolveState;
@@ -371,6 +391,92 @@ public class DependencyGraphBuilder {
             return queue.isEmpty() ? null : queue.getFirst();
         }
 
+        /**
+         * Resolves the id for the given dependency, reusing the result of an earlier call to {@link #prefetchMetaData(ConfigurationNode)}.
+         */
+        public BuildableComponentIdResolveResult resolveId(DependencyMetaData dependencyMetaData) {
+            BuildableComponentIdResolveResult result = prefetchedIds.remove(dependencyMetaData);
+            if (result == null) {
+                result = new DefaultBuildableComponentIdResolveResult();
+                idResolver.resolve(dependencyMetaData, result);
+            }
+            return result;
+        }
+
+        /**
+         * Fetches the meta-data for the dependencies of the given configuration and of each queued configuration that has not been seen before, so that it is
+         * available by the time the traversal reaches those configurations. The graph is not modified, and the results are only used when they match what the
+         * traversal would have fetched itself.
+         */
+        public void prefetchMetaData(ConfigurationNode next) {
+            if (metaDataPrefetcher == null) {
+                return;
+            }
+            List<PrefetchedMetaData> fetches = new ArrayList<PrefetchedMetaData>();
+            addMetaDataToPrefetch(next, fetches);
+            for (ConfigurationNode configuration : queue) {
+                addMetaDataToPrefetch(configuration, fetches);
+            }
+            if (!fetches.isEmpty()) {
+                LOGGER.debug("Fetching meta-data for {} components.", fetches.size());
+                metaDataPrefetcher.fetchAll(fetches);
+            }
+        }
+
+        private void addMetaDataToPrefetch(ConfigurationNode configuration, List<PrefetchedMetaData> fetches) {
+            if (configuration.prefetched) {
+                return;
+            }
+            configuration.prefetched = true;
+            for (DependencyMetaData dependency : configuration.getDependenciesToTraverse()) {
+                // Use the same dependency as the traversal, which resolves all dependencies with a given selector using the first of them
+                ModuleVersionSelectorResolveState selector = selectors.get(dependency.getRequested());
+                DependencyMetaData dependencyMetaData = selector == null ? dependency : selector.dependencyMetaData;
+                BuildableComponentIdResolveResult idResolveResult = selector == null ? null : selector.idResolveResult;
+                if (idResolveResult == null) {
+                    idResolveResult = prefetchedIds.get(dependencyMetaData);
+                    if (idResolveResult == null) {
+                        idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                        idResolver.resolve(dependencyMetaData, idResolveResult);
+                        prefetchedIds.put(dependencyMetaData, idResolveResult);
+                    }
+                }
+                if (idResolveResult.getFailure() != null || idResolveResult.getMetaData() != null) {
+                    continue;
+                }
+
+                ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+                if (prefetchedMetaData.containsKey(id)) {
+                    continue;
+                }
+                ModuleResolveState module = modules.get(id.getModule());
+                ModuleVersionResolveState moduleRevision = module == null ? null : module.versions.get(id);
+                if (moduleRevision != null) {
+                    if (moduleRevision.metaData != null || moduleRevision.failure != null) {
+                        continue;
+                    }
+                    if (moduleRevision.firstReference != null) {
+                        dependencyMetaData = moduleRevision.firstReference.dependencyMetaData;
+                    }
+                }
+                PrefetchedMetaData fetch = new PrefetchedMetaData(idResolveResult.getId(), dependencyMetaData, metaDataResolver);
+                prefetchedMetaData.put(id, fetch);
+                fetches.add(fetch);
+            }
+        }
+
+        /**
+         * Returns the prefetched meta-data for the given component, or null when it was not fetched for the given dependency.
+         */
+        @Nullable
+        public DefaultBuildableComponentResolveResult takePrefetchedMetaData(ModuleVersionIdentifier id, ComponentIdentifier componentId, DependencyMetaData dependencyMetaData) {
+            PrefetchedMetaData fetch = prefetchedMetaData.remove(id);
+            if (fetch == null || !fetch.complete || fetch.dependencyMetaData != dependencyMetaData || !fetch.componentId.equals(componentId)) {
+                return null;
+            }
+            return fetch.result;
+        }
+
         public ConfigurationNode pop() {
             ConfigurationNode next = queue.removeFirst();
             queued.remove(next);
@@ -556,8 +662,11 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            DefaultBuildableComponentResolveResult result = module.resolveState.takePrefetchedMetaData(id, idResolveResult.getId(), firstReference.dependencyMetaData);
+            if (result == null) {
+                result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -616,6 +725,7 @@ public class DependencyGraphBuilder {
         private final ConfigurationMetaData metaData;
         private final ResolveState resolveState;
         private ModuleResolutionFilter previousTraversal;
+        private boolean prefetched;
 
         private ConfigurationNode(ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
             this.id = id;
@@ -724,6 +834,33 @@ public class DependencyGraphBuilder {
             previousTraversal = resolutionFilter;
         }
 
+        /**
+         * Returns the dependencies that {@link #visitOutgoingDependencies(Collection)} would traverse if this configuration was visited now, without changing any state.
+         */
+        public List<DependencyMetaData> getDependenciesToTraverse() {
+            if (moduleRevision.state != ModuleState.Selected || previousTraversal != null) {
+                return Collections.emptyList();
+            }
+            List<DependencyEdge> transitiveIncoming = new ArrayList<DependencyEdge>();
+            for (DependencyEdge edge : incomingEdges) {
+                if (edge.isTransitive()) {
+                    transitiveIncoming.add(edge);
+                }
+            }
+            if (transitiveIncoming.isEmpty() && this != resolveState.root) {
+                return Collections.emptyList();
+            }
+
+            ModuleResolutionFilter resolutionFilter = getModuleResolutionFilter(transitiveIncoming);
+            List<DependencyMetaData> dependencies = new ArrayList<DependencyMetaData>();
+            for (DependencyMetaData dependency : metaData.getDependencies()) {
+                if (resolutionFilter.acceptModule(DefaultModuleIdentifier.newId(dependency.getRequested().getGroup(), dependency.getRequested().getName()))) {
+                    dependencies.add(dependency);
+                }
+            }
+            return dependencies;
+        }
+
         private boolean isExcluded(ModuleResolutionFilter selector, ModuleIdentifier targetModuleId) {
             if(!selector.acceptModule(targetModuleId)) {
                 LOGGER.debug("{} is excluded from {}.", targetModuleId, this);
@@ -818,16 +955,14 @@ public class DependencyGraphBuilder {
      */
     private static class ModuleVersionSelectorResolveState {
         final DependencyMetaData dependencyMetaData;
-        final DependencyToComponentIdResolver resolver;
         final ResolveState resolveState;
         ModuleVersionResolveException failure;
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
 
-        private ModuleVersionSelectorResolveState(DependencyMetaData dependencyMetaData, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
+        private ModuleVersionSelectorResolveState(DependencyMetaData dependencyMetaData, ResolveState resolveState) {
             this.dependencyMetaData = dependencyMetaData;
-            this.resolver = resolver;
             this.resolveState = resolveState;
             targetModule = resolveState.getModule(new DefaultModuleIdentifier(dependencyMetaData.getRequested().getGroup(), dependencyMetaData.getRequested().getName()));
         }
@@ -864,8 +999,7 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetaData, idResolveResult);
+            idResolveResult = resolveState.resolveId(dependencyMetaData);
             if (idResolveResult.getFailure() != null) {
                 failure = idResolveResult.getFailure();
                 return null;
@@ -886,6 +1020,38 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * The meta-data for a component, fetched ahead of the traversal.
+     */
+    private static class PrefetchedMetaData implements Runnable {
+        final ComponentIdentifier componentId;
+        final DependencyMetaData dependencyMetaData;
+        final ComponentMetaDataResolver resolver;
+        final DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        boolean complete;
+
+        PrefetchedMetaData(ComponentIdentifier componentId, DependencyMetaData dependencyMetaData, ComponentMetaDataResolver resolver) {
+            this.componentId = componentId;
+            this.dependencyMetaData = dependencyMetaData;
+            this.resolver = resolver;
+        }
+
+        @Override
+        public String toString() {
+            return componentId.getDisplayName();
+        }
+
+        public void run() {
+            try {
+                resolver.resolve(componentId, DefaultComponentOverrideMetadata.forDependency(dependencyMetaData), result);
+                complete = result.hasResult();
+            } catch (RuntimeException e) {
+                // Leave it to the traversal to fetch the meta-data again and report the failure
+                LOGGER.debug("Could not fetch meta-data for {}.", componentId, e);
+            }
+        }
+    }
+
     private static class DirectDependencyForcingResolver implements ModuleConflictResolver {
         private final ModuleVersionResolveState root;
 
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultInternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the events of a dependency graph resolution, so that they can be replayed later using a {@link RecordedDependencyGraph}.
+ *
+ * <p>Only graphs whose result depends solely on the meta-data of fixed versions of external modules are recorded. A graph that contains a failure, a dynamic
+ * version, a changing module or a component that is not an external module is not recorded.</p>
+ */
+public class DependencyGraphRecorder implements DependencyGraphVisitor, DependencyArtifactsVisitor {
+    private final List<? extends ModuleDependency> dependencies;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final Map<ResolvedConfigurationIdentifier, Integer> nodeIndexes = Maps.newHashMap();
+    private final List<RecordedDependencyGraph.Node> nodes = new ArrayList<RecordedDependencyGraph.Node>();
+    private final Map<Long, RecordedDependencyGraph.Artifacts> artifacts = Maps.newLinkedHashMap();
+    private final List<int[]> pendingEdges = new ArrayList<int[]>();
+    private ResolvedConfigurationIdentifier root;
+    private int edgeNode = -1;
+    private boolean recordable = true;
+    private boolean finished;
+
+    /**
+     * @param dependencies The dependencies of the configuration being resolved.
+     */
+    public DependencyGraphRecorder(List<? extends ModuleDependency> dependencies, VersionSelectorScheme versionSelectorScheme) {
+        this.dependencies = dependencies;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    public void start(DependencyGraphNode root) {
+        this.root = root.getNodeId();
+    }
+
+    public void visitNode(DependencyGraphNode resolvedConfiguration) {
+        if (!recordable) {
+            return;
+        }
+        ModuleSource moduleSource = null;
+        if (nodes.isEmpty()) {
+            if (!resolvedConfiguration.getNodeId().equals(root)) {
+                recordable = false;
+                return;
+            }
+        } else {
+            if (!(resolvedConfiguration.getComponentId() instanceof ModuleComponentIdentifier)) {
+                recordable = false;
+                return;
+            }
+            ComponentResolveMetaData component = resolvedConfiguration.getMetaData().getComponent();
+            if (component.isChanging()) {
+                recordable = false;
+                return;
+            }
+            moduleSource = component.getSource();
+        }
+
+        List<InternalDependencyResult> outgoingEdges = new ArrayList<InternalDependencyResult>(resolvedConfiguration.getOutgoingEdges().size());
+        for (DependencyGraphEdge dependency : resolvedConfiguration.getOutgoingEdges()) {
+            if (dependency.getFailure() != null || !isFixedVersion(dependency.getRequested())) {
+                recordable = false;
+                return;
+            }
+            outgoingEdges.add(new DefaultInternalDependencyResult(dependency.getRequested(), dependency.getSelected(), null, null));
+        }
+
+        nodeIndexes.put(resolvedConfiguration.getNodeId(), nodes.size());
+        nodes.add(new RecordedDependencyGraph.Node(
+            resolvedConfiguration.getNodeId(),
+            resolvedConfiguration.getSelection(),
+            moduleSource,
+            outgoingEdges,
+            new ArrayList<RecordedDependencyGraph.IncomingEdge>()));
+    }
+
+    public void visitEdge(DependencyGraphNode resolvedConfiguration) {
+        if (!recordable) {
+            return;
+        }
+        // Edges are visited in the same order as the nodes
+        edgeNode++;
+        if (!pendingEdges.isEmpty() || edgeNode >= nodes.size() || !nodes.get(edgeNode).id.equals(resolvedConfiguration.getNodeId())) {
+            recordable = false;
+            return;
+        }
+        for (DependencyGraphEdge dependency : resolvedConfiguration.getIncomingEdges()) {
+            Integer from = nodeIndexes.get(dependency.getFrom().getNodeId());
+            if (from == null) {
+                recordable = false;
+                return;
+            }
+            int dependencyIndex = -1;
+            if (from == 0) {
+                dependencyIndex = indexOf(dependency.getModuleDependency());
+                if (dependencyIndex < 0) {
+                    recordable = false;
+                    return;
+                }
+            }
+            pendingEdges.add(new int[]{from, dependencyIndex});
+        }
+    }
+
+    public void visitArtifacts(ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child, ArtifactSet artifactSet) {
+        if (!recordable) {
+            return;
+        }
+        if (pendingEdges.isEmpty() || !nodes.get(edgeNode).id.equals(child)) {
+            recordable = false;
+            return;
+        }
+        int[] edge = pendingEdges.remove(0);
+        if (!nodes.get(edge[0]).id.equals(parent)) {
+            recordable = false;
+            return;
+        }
+
+        RecordedDependencyGraph.Artifacts recordedArtifacts = artifacts.get(artifactSet.getId());
+        if (recordedArtifacts == null) {
+            List<ModuleComponentArtifactIdentifier> artifactIds = new ArrayList<ModuleComponentArtifactIdentifier>();
+            for (ResolvedArtifact artifact : artifactSet.getArtifacts()) {
+                if (!(artifact.getId() instanceof DefaultModuleComponentArtifactIdentifier)) {
+                    recordable = false;
+                    return;
+                }
+                artifactIds.add((ModuleComponentArtifactIdentifier) artifact.getId());
+            }
+            artifacts.put(artifactSet.getId(), new RecordedDependencyGraph.Artifacts(artifactSet.getId(), edgeNode, artifactIds));
+        } else if (recordedArtifacts.owner != edgeNode) {
+            recordable = false;
+            return;
+        }
+        nodes.get(edgeNode).incomingEdges.add(new RecordedDependencyGraph.IncomingEdge(edge[0], edge[1], artifactSet.getId()));
+    }
+
+    public void finish(DependencyGraphNode root) {
+    }
+
+    public void finishArtifacts() {
+        finished = true;
+    }
+
+    /**
+     * Returns the recorded graph, or null when the graph cannot be replayed.
+     */
+    @Nullable
+    public RecordedDependencyGraph complete(long createTimestamp) {
+        if (!recordable || !finished || !pendingEdges.isEmpty() || edgeNode != nodes.size() - 1) {
+            return null;
+        }
+        return new RecordedDependencyGraph(createTimestamp, nodes, new ArrayList<RecordedDependencyGraph.Artifacts>(artifacts.values()));
+    }
+
+    private boolean isFixedVersion(ComponentSelector selector) {
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return false;
+        }
+        String version = ((ModuleComponentSelector) selector).getVersion();
+        return version != null && !versionSelectorScheme.parseSelector(version).isDynamic();
+    }
+
+    private int indexOf(ModuleDependency moduleDependency) {
+        for (int i = 0; i < dependencies.size(); i++) {
+            if (dependencies.get(i) == moduleDependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
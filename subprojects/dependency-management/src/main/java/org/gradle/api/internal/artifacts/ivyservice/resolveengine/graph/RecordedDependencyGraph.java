@@ -0,0 +1,285 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultArtifactSet;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ConfigurationMetaData;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A successfully resolved dependency graph, as captured by a {@link DependencyGraphRecorder}. The graph can be replayed to a set of visitors, which then receive the
+ * same events as they would when the graph is resolved again.
+ *
+ * <p>The replayed nodes do not carry any component meta-data, so a recorded graph can only be replayed to visitors that do not require it.</p>
+ */
+public class RecordedDependencyGraph {
+    private final long createTimestamp;
+    final List<Node> nodes;
+    final List<Artifacts> artifacts;
+
+    RecordedDependencyGraph(long createTimestamp, List<Node> nodes, List<Artifacts> artifacts) {
+        this.createTimestamp = createTimestamp;
+        this.nodes = nodes;
+        this.artifacts = artifacts;
+    }
+
+    public long getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+    /**
+     * Returns the components in this graph, excluding the root component.
+     */
+    public Set<ModuleComponentIdentifier> getComponents() {
+        Set<ModuleComponentIdentifier> components = new LinkedHashSet<ModuleComponentIdentifier>();
+        for (Node node : nodes.subList(1, nodes.size())) {
+            components.add((ModuleComponentIdentifier) node.selection.getComponentId());
+        }
+        return components;
+    }
+
+    /**
+     * Returns true when a replacement is declared for any of the modules requested in this graph, in which case conflict resolution may select a different graph.
+     */
+    public boolean hasReplacements(ModuleReplacementsData moduleReplacements) {
+        for (Node node : nodes) {
+            for (InternalDependencyResult dependency : node.dependencies) {
+                ModuleComponentSelector requested = (ModuleComponentSelector) dependency.getRequested();
+                if (moduleReplacements.getReplacementFor(new DefaultModuleIdentifier(requested.getGroup(), requested.getModule())) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replays this graph to the given visitors.
+     *
+     * @param dependencies The dependencies of the configuration being resolved, in the same order as when the graph was recorded.
+     * @param artifactResolver The resolver to use to download the artifacts of the graph, when they are requested.
+     */
+    public void replay(List<? extends ModuleDependency> dependencies, ArtifactResolver artifactResolver, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor) {
+        List<ReplayedNode> replayedNodes = new ArrayList<ReplayedNode>(nodes.size());
+        for (Node node : nodes) {
+            replayedNodes.add(new ReplayedNode(node));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            ReplayedNode replayedNode = replayedNodes.get(i);
+            for (InternalDependencyResult dependency : node.dependencies) {
+                replayedNode.outgoingEdges.add(new ReplayedEdge(replayedNode, dependency.getRequested(), dependency.getSelected(), null));
+            }
+            for (IncomingEdge edge : node.incomingEdges) {
+                ModuleDependency moduleDependency = edge.dependency < 0 ? null : dependencies.get(edge.dependency);
+                replayedNode.incomingEdges.add(new ReplayedEdge(replayedNodes.get(edge.from), null, null, moduleDependency));
+            }
+        }
+
+        Map<ComponentArtifactIdentifier, ResolvedArtifact> allResolvedArtifacts = Maps.newHashMap();
+        Map<Long, ArtifactSet> artifactSets = Maps.newHashMap();
+        for (Artifacts artifactsEntry : artifacts) {
+            Node owner = nodes.get(artifactsEntry.owner);
+            Set<ComponentArtifactMetaData> artifactMetaData = new LinkedHashSet<ComponentArtifactMetaData>();
+            for (ModuleComponentArtifactIdentifier artifactId : artifactsEntry.artifacts) {
+                artifactMetaData.add(new DefaultModuleComponentArtifactMetaData(artifactId));
+            }
+            artifactSets.put(artifactsEntry.id, new DefaultArtifactSet(owner.id.getId(), owner.moduleSource, DefaultModuleResolutionFilter.all(), artifactMetaData, artifactResolver, allResolvedArtifacts, artifactsEntry.id));
+        }
+
+        ReplayedNode root = replayedNodes.get(0);
+        graphVisitor.start(root);
+        for (ReplayedNode node : replayedNodes) {
+            graphVisitor.visitNode(node);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplayedNode node = replayedNodes.get(i);
+            graphVisitor.visitEdge(node);
+            for (IncomingEdge edge : nodes.get(i).incomingEdges) {
+                artifactsVisitor.visitArtifacts(replayedNodes.get(edge.from).getNodeId(), node.getNodeId(), artifactSets.get(edge.artifactSetId));
+            }
+        }
+        graphVisitor.finish(root);
+        artifactsVisitor.finishArtifacts();
+    }
+
+    static class Node {
+        final ResolvedConfigurationIdentifier id;
+        final ModuleVersionSelection selection;
+        final ModuleSource moduleSource;
+        final List<InternalDependencyResult> dependencies;
+        final List<IncomingEdge> incomingEdges;
+
+        Node(ResolvedConfigurationIdentifier id, ModuleVersionSelection selection, ModuleSource moduleSource, List<InternalDependencyResult> dependencies, List<IncomingEdge> incomingEdges) {
+            this.id = id;
+            this.selection = selection;
+            this.moduleSource = moduleSource;
+            this.dependencies = dependencies;
+            this.incomingEdges = incomingEdges;
+        }
+    }
+
+    static class IncomingEdge {
+        final int from;
+        // The index of the first level dependency that this edge was created for, or -1
+        final int dependency;
+        final long artifactSetId;
+
+        IncomingEdge(int from, int dependency, long artifactSetId) {
+            this.from = from;
+            this.dependency = dependency;
+            this.artifactSetId = artifactSetId;
+        }
+    }
+
+    static class Artifacts {
+        final long id;
+        final int owner;
+        final List<ModuleComponentArtifactIdentifier> artifacts;
+
+        Artifacts(long id, int owner, List<ModuleComponentArtifactIdentifier> artifacts) {
+            this.id = id;
+            this.owner = owner;
+            this.artifacts = artifacts;
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final Node node;
+        private final Set<DependencyGraphEdge> incomingEdges = new LinkedHashSet<DependencyGraphEdge>();
+        private final Set<DependencyGraphEdge> outgoingEdges = new LinkedHashSet<DependencyGraphEdge>();
+
+        private ReplayedNode(Node node) {
+            this.node = node;
+        }
+
+        public ResolvedConfigurationIdentifier getNodeId() {
+            return node.id;
+        }
+
+        public ModuleVersionIdentifier toId() {
+            return node.selection.getId();
+        }
+
+        public ComponentIdentifier getComponentId() {
+            return node.selection.getComponentId();
+        }
+
+        public ModuleVersionSelection getSelection() {
+            return node.selection;
+        }
+
+        public Set<DependencyGraphEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        public Set<DependencyGraphEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        public ConfigurationMetaData getMetaData() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return node.id.toString();
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final DependencyGraphNode from;
+        private final ComponentSelector requested;
+        private final ModuleVersionIdentifier selected;
+        private final ModuleDependency moduleDependency;
+
+        private ReplayedEdge(DependencyGraphNode from, ComponentSelector requested, ModuleVersionIdentifier selected, ModuleDependency moduleDependency) {
+            this.from = from;
+            this.requested = requested;
+            this.selected = selected;
+            this.moduleDependency = moduleDependency;
+        }
+
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+
+        public ModuleVersionIdentifier getSelected() {
+            return selected;
+        }
+
+        public ModuleVersionResolveException getFailure() {
+            return null;
+        }
+
+        public ComponentSelectionReason getReason() {
+            return null;
+        }
+
+        public ModuleDependency getModuleDependency() {
+            return moduleDependency;
+        }
+
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            throw new UnsupportedOperationException();
+        }
+
+        public ModuleResolutionFilter getSelector() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Set<ComponentArtifactMetaData> getArtifacts(ConfigurationMetaData metaData) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
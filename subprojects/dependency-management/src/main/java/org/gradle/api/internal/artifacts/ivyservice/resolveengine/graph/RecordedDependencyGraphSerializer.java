@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResultSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.metadata.ModuleVersionArtifactIdentifierSerializer;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class RecordedDependencyGraphSerializer implements Serializer<RecordedDependencyGraph> {
+    private static final Map<ComponentSelector, ModuleVersionResolveException> NO_FAILURES = Collections.emptyMap();
+    private final ResolvedConfigurationIdentifierSerializer idSerializer = new ResolvedConfigurationIdentifierSerializer();
+    private final ModuleVersionSelectionSerializer selectionSerializer = new ModuleVersionSelectionSerializer();
+    private final InternalDependencyResultSerializer dependencyResultSerializer = new InternalDependencyResultSerializer();
+    private final ModuleVersionArtifactIdentifierSerializer artifactIdSerializer = new ModuleVersionArtifactIdentifierSerializer();
+    private final DefaultSerializer<ModuleSource> moduleSourceSerializer = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+
+    public void write(Encoder encoder, RecordedDependencyGraph value) throws Exception {
+        encoder.writeLong(value.getCreateTimestamp());
+        encoder.writeSmallInt(value.nodes.size());
+        for (RecordedDependencyGraph.Node node : value.nodes) {
+            idSerializer.write(encoder, node.id);
+            selectionSerializer.write(encoder, node.selection);
+            encoder.writeBoolean(node.moduleSource != null);
+            if (node.moduleSource != null) {
+                moduleSourceSerializer.write(encoder, node.moduleSource);
+            }
+            encoder.writeSmallInt(node.dependencies.size());
+            for (InternalDependencyResult dependency : node.dependencies) {
+                dependencyResultSerializer.write(encoder, dependency);
+            }
+            encoder.writeSmallInt(node.incomingEdges.size());
+            for (RecordedDependencyGraph.IncomingEdge edge : node.incomingEdges) {
+                encoder.writeSmallInt(edge.from);
+                encoder.writeInt(edge.dependency);
+                encoder.writeSmallLong(edge.artifactSetId);
+            }
+        }
+        encoder.writeSmallInt(value.artifacts.size());
+        for (RecordedDependencyGraph.Artifacts artifacts : value.artifacts) {
+            encoder.writeSmallLong(artifacts.id);
+            encoder.writeSmallInt(artifacts.owner);
+            encoder.writeSmallInt(artifacts.artifacts.size());
+            for (ModuleComponentArtifactIdentifier artifact : artifacts.artifacts) {
+                artifactIdSerializer.write(encoder, artifact);
+            }
+        }
+    }
+
+    public RecordedDependencyGraph read(Decoder decoder) throws Exception {
+        long createTimestamp = decoder.readLong();
+        int nodeCount = decoder.readSmallInt();
+        List<RecordedDependencyGraph.Node> nodes = new ArrayList<RecordedDependencyGraph.Node>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            ResolvedConfigurationIdentifier id = idSerializer.read(decoder);
+            ModuleVersionSelection selection = selectionSerializer.read(decoder);
+            ModuleSource moduleSource = decoder.readBoolean() ? moduleSourceSerializer.read(decoder) : null;
+            int dependencyCount = decoder.readSmallInt();
+            List<InternalDependencyResult> dependencies = new ArrayList<InternalDependencyResult>(dependencyCount);
+            for (int j = 0; j < dependencyCount; j++) {
+                dependencies.add(dependencyResultSerializer.read(decoder, NO_FAILURES));
+            }
+            int edgeCount = decoder.readSmallInt();
+            List<RecordedDependencyGraph.IncomingEdge> incomingEdges = new ArrayList<RecordedDependencyGraph.IncomingEdge>(edgeCount);
+            for (int j = 0; j < edgeCount; j++) {
+                incomingEdges.add(new RecordedDependencyGraph.IncomingEdge(decoder.readSmallInt(), decoder.readInt(), decoder.readSmallLong()));
+            }
+            nodes.add(new RecordedDependencyGraph.Node(id, selection, moduleSource, dependencies, incomingEdges));
+        }
+        int artifactSetCount = decoder.readSmallInt();
+        List<RecordedDependencyGraph.Artifacts> artifactSets = new ArrayList<RecordedDependencyGraph.Artifacts>(artifactSetCount);
+        for (int i = 0; i < artifactSetCount; i++) {
+            long id = decoder.readSmallLong();
+            int owner = decoder.readSmallInt();
+            int artifactCount = decoder.readSmallInt();
+            List<ModuleComponentArtifactIdentifier> artifacts = new ArrayList<ModuleComponentArtifactIdentifier>(artifactCount);
+            for (int j = 0; j < artifactCount; j++) {
+                artifacts.add(artifactIdSerializer.read(decoder));
+            }
+            artifactSets.add(new RecordedDependencyGraph.Artifacts(id, owner, artifacts));
+        }
+        return new RecordedDependencyGraph(createTimestamp, nodes, artifactSets);
+    }
+}
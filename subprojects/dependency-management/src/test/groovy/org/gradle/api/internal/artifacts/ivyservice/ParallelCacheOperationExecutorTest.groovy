@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Action
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelCacheOperationExecutorTest extends ConcurrentSpec {
+    def useCacheCalls = new AtomicInteger()
+    def longRunningOperationCalls = new AtomicInteger()
+    // Use a plain implementation rather than a mock, as Spock mocks synchronise calls made from different threads
+    def cacheLockingManager = [
+        useCache: { String displayName, Runnable action -> useCacheCalls.incrementAndGet(); action.run() },
+        longRunningOperation: { String displayName, Runnable action -> longRunningOperationCalls.incrementAndGet(); action.run() }
+    ] as CacheLockingManager
+    def executor = new ParallelCacheOperationExecutor(executorFactory, "test", 2, cacheLockingManager)
+
+    def "runs operations concurrently with the cache lock held and releases the cache lock while waiting for them"() {
+        when:
+        executor.runAll([
+            { instant.first; thread.blockUntil.second } as Runnable,
+            { instant.second; thread.blockUntil.first } as Runnable,
+            { instant.third } as Runnable
+        ], "operation", "wait")
+
+        then:
+        instant.third
+        useCacheCalls.get() == 3
+        longRunningOperationCalls.get() == 1
+    }
+
+    def "runs each worker using the given action"() {
+        def workers = new AtomicInteger()
+        def operations = new AtomicInteger()
+
+        when:
+        executor.runAll((1..5).collect { { operations.incrementAndGet() } as Runnable }, "operation", "wait", { Runnable worker ->
+            workers.incrementAndGet()
+            worker.run()
+        } as Action)
+
+        then:
+        workers.get() == 2
+        operations.get() == 5
+    }
+
+    def "rethrows the first failure once all operations have completed"() {
+        def failure = new RuntimeException("broken")
+        def operation = Mock(Runnable)
+
+        when:
+        executor.runAll([{ throw failure } as Runnable, operation, operation], "operation", "wait")
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        2 * operation.run()
+    }
+}
@@ -47,6 +47,26 @@ class DefaultDependencySubstitutionsSpec extends Specification {
         0 * details._
     }
 
+    def "tracks whether any rules are registered"() {
+        expect:
+        !substitutions.hasRules()
+        !substitutions.hasDependencySubstitutionRules()
+
+        when:
+        substitutions.allWithDependencyResolveDetails(Mock(Action))
+
+        then:
+        substitutions.hasRules()
+        !substitutions.hasDependencySubstitutionRules()
+
+        when:
+        substitutions.all(Mock(Action))
+
+        then:
+        substitutions.hasRules()
+        substitutions.hasDependencySubstitutionRules()
+    }
+
     def "all() matches modules and projects"() {
         given:
         def action = Mock(Action)
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.internal.component.model.ComponentArtifactMetaData
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConnectionLimitingModuleComponentRepositoryTest extends ConcurrentSpec {
+    def delegate = Mock(ModuleComponentRepository)
+    def localAccess = Mock(ModuleComponentRepositoryAccess)
+    def remoteAccess = Mock(ModuleComponentRepositoryAccess)
+    def artifact = Stub(ComponentArtifactMetaData)
+    def moduleSource = Stub(ModuleSource)
+    def result = Stub(BuildableArtifactResolveResult)
+
+    def setup() {
+        _ * delegate.localAccess >> localAccess
+        _ * delegate.remoteAccess >> remoteAccess
+    }
+
+    def "does not limit local access"() {
+        when:
+        def repository = new ConnectionLimitingModuleComponentRepository(delegate, new Semaphore(1))
+
+        then:
+        repository.localAccess == localAccess
+    }
+
+    def "limits the number of concurrent artifact downloads"() {
+        // Use a plain implementation rather than a mock, as Spock mocks synchronise calls made from different threads
+        def calls = new AtomicInteger()
+        def slowAccess = [resolveArtifact: { ComponentArtifactMetaData a, ModuleSource s, BuildableArtifactResolveResult r ->
+            if (calls.getAndIncrement() > 0) {
+                instant.secondStarted
+            } else {
+                instant.firstStarted
+                thread.block()
+                instant.firstDone
+            }
+        }] as ModuleComponentRepositoryAccess
+        def limited = Stub(ModuleComponentRepository) {
+            getRemoteAccess() >> slowAccess
+        }
+        def repository = new ConnectionLimitingModuleComponentRepository(limited, new Semaphore(1))
+
+        when:
+        async {
+            start {
+                repository.remoteAccess.resolveArtifact(artifact, moduleSource, result)
+            }
+            start {
+                thread.blockUntil.firstStarted
+                repository.remoteAccess.resolveArtifact(artifact, moduleSource, result)
+            }
+        }
+
+        then:
+        instant.secondStarted > instant.firstDone
+    }
+
+    def "releases the connection when the download fails"() {
+        def connections = new Semaphore(1)
+        def repository = new ConnectionLimitingModuleComponentRepository(delegate, connections)
+        def failure = new RuntimeException("broken")
+
+        when:
+        repository.remoteAccess.resolveArtifact(artifact, moduleSource, result)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        connections.availablePermits() == 1
+
+        and:
+        1 * remoteAccess.resolveArtifact(artifact, moduleSource, _) >> { throw failure }
+    }
+}
@@ -63,7 +63,7 @@ class ResolveIvyFactoryTest extends Specification {
         }
         buildCommencedTimeProvider = Mock(BuildCommencedTimeProvider)
         inMemoryCachedRepositoryFactory = Mock(InMemoryCachedRepositoryFactory) {
-            _ * cached(_) >> { ModuleComponentRepository repository -> repository }
+            _ * cached(*_) >> { args -> args[0] }
         }
         versionSelectorScheme = Mock(VersionSelectorScheme)
         versionComparator = Mock(VersionComparator)
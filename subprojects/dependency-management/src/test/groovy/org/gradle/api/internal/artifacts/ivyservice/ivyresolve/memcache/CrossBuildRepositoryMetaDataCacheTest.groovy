@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache
+
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetaData
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.resolve.result.BuildableModuleComponentMetaDataResolveResult
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+class CrossBuildRepositoryMetaDataCacheTest extends Specification {
+
+    def stats = new InMemoryCacheStats()
+    def cachePolicy = Mock(CachePolicy)
+    def timeProvider = Stub(BuildCommencedTimeProvider) { getCurrentTime() >> 1000 }
+    def crossBuildCache = new CrossBuildModuleMetaDataCache(1024 * 1024)
+    def cache = new CrossBuildRepositoryMetaDataCache(crossBuildCache, "repo", cachePolicy, timeProvider, stats)
+    def request = Stub(ComponentOverrideMetadata)
+    def component = DefaultModuleComponentIdentifier.newId("org", "foo", "1.0")
+
+    def "supplies meta-data verified during a previous build"() {
+        def metaData = metaData()
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+
+        given:
+        def laterBuild = new CrossBuildRepositoryMetaDataCache(crossBuildCache, "repo", cachePolicy, Stub(BuildCommencedTimeProvider) { getCurrentTime() >> 3000 }, stats)
+        cache.newDependencyResult(component, resolved(metaData, true))
+
+        when:
+        def found = laterBuild.supplyMetaData(component, request, result)
+
+        then:
+        found
+        1 * cachePolicy.mustRefreshModule(component, { it.id == metaData.id }, 2000) >> false
+        1 * result.resolved(metaData)
+        1 * result.setAuthoritative(false)
+        stats.crossBuildHits == 1
+    }
+
+    def "supplies meta-data verified during this build as authoritative"() {
+        def metaData = metaData()
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+
+        given:
+        cache.newDependencyResult(component, resolved(metaData, true))
+
+        when:
+        def found = cache.supplyMetaData(component, request, result)
+
+        then:
+        found
+        1 * cachePolicy.mustRefreshModule(component, _, 0) >> false
+        1 * result.resolved(metaData)
+        1 * result.setAuthoritative(true)
+    }
+
+    def "treats meta-data of unknown age as very old"() {
+        def metaData = metaData(true)
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+
+        given:
+        cache.newDependencyResult(component, resolved(metaData, false))
+
+        when:
+        def found = cache.supplyMetaData(component, request, result)
+
+        then:
+        !found
+        1 * cachePolicy.mustRefreshChangingModule(component, _, Long.MAX_VALUE) >> true
+        0 * result._
+        stats.crossBuildExpired == 1
+        crossBuildCache.size() == 0
+    }
+
+    def "uses cache policy for missing modules"() {
+        def missing = Stub(BuildableModuleComponentMetaDataResolveResult) {
+            getState() >> BuildableModuleComponentMetaDataResolveResult.State.Missing
+            isAuthoritative() >> true
+        }
+        def result = Mock(BuildableModuleComponentMetaDataResolveResult)
+
+        given:
+        cache.newDependencyResult(component, missing)
+
+        when:
+        def found = cache.supplyMetaData(component, request, result)
+
+        then:
+        found
+        1 * cachePolicy.mustRefreshMissingModule(component, 0) >> false
+        1 * result.missing()
+        1 * result.setAuthoritative(true)
+    }
+
+    def "does not cache failed resolves"() {
+        def failed = Stub(BuildableModuleComponentMetaDataResolveResult) {
+            getState() >> BuildableModuleComponentMetaDataResolveResult.State.Failed
+        }
+
+        when:
+        cache.newDependencyResult(component, failed)
+
+        then:
+        !cache.supplyMetaData(component, request, Mock(BuildableModuleComponentMetaDataResolveResult))
+        stats.crossBuildMisses == 1
+    }
+
+    def "meta-data is cached per repository"() {
+        def otherRepo = new CrossBuildRepositoryMetaDataCache(crossBuildCache, "other", cachePolicy, timeProvider, stats)
+
+        given:
+        cache.newDependencyResult(component, resolved(metaData(), true))
+
+        expect:
+        !otherRepo.supplyMetaData(component, request, Mock(BuildableModuleComponentMetaDataResolveResult))
+        stats.crossBuildMisses == 1
+    }
+
+    def "evicts least recently used meta-data when size limit is reached"() {
+        def smallCache = new CrossBuildModuleMetaDataCache(20 * 2048)
+        def repo = new CrossBuildRepositoryMetaDataCache(smallCache, "repo", cachePolicy, timeProvider, stats)
+        def components = (1..100).collect { DefaultModuleComponentIdentifier.newId("org", "foo", "$it") }
+
+        when:
+        components.each {
+            repo.newDependencyResult(it, resolved(metaData(), true))
+            smallCache.get("repo", components[0])
+        }
+
+        then:
+        smallCache.size() < 100
+        smallCache.evictionCount == 100 - smallCache.size()
+        smallCache.get("repo", components[0]) != null
+        smallCache.get("repo", components[99]) != null
+    }
+
+    def metaData(boolean changing = false) {
+        def id = DefaultModuleVersionIdentifier.newId("org", "foo", "1.0")
+        def metaData
+        metaData = [getId: { id }, isChanging: { changing }, getDescriptor: { null }, copy: { metaData }] as MutableModuleComponentResolveMetaData
+        return metaData
+    }
+
+    def resolved(MutableModuleComponentResolveMetaData metaData, boolean authoritative) {
+        return Stub(BuildableModuleComponentMetaDataResolveResult) {
+            getState() >> BuildableModuleComponentMetaDataResolveResult.State.Resolved
+            getMetaData() >> metaData
+            isAuthoritative() >> authoritative
+        }
+    }
+}
@@ -16,7 +16,9 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache
 
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.util.BuildCommencedTimeProvider
 import org.gradle.util.SetSystemProperties
 import org.junit.Rule
 import spock.lang.Specification
@@ -66,6 +68,32 @@ class InMemoryCachedRepositoryFactoryTest extends Specification {
         cache.cachePerRepo.size() == 2
     }
 
+    def "shares module meta-data with later builds only when cache policy is given"() {
+        def crossBuildCache = new CrossBuildModuleMetaDataCache(1024 * 1024)
+        def cache = new InMemoryCachedRepositoryFactory(crossBuildCache, new BuildCommencedTimeProvider())
+        def repo = Mock(ModuleComponentRepository) { getId() >> "mavenCentral" }
+
+        when:
+        ModuleComponentRepository shared = cache.cached(repo, Stub(CachePolicy))
+        ModuleComponentRepository notShared = cache.cached(repo)
+
+        then:
+        shared.localAccess.crossBuildCache != null
+        shared.localAccess.supplyFromCrossBuildCache
+        !shared.remoteAccess.supplyFromCrossBuildCache
+        notShared.localAccess.crossBuildCache == null
+    }
+
+    def "does not share module meta-data when there is no cross-build cache"() {
+        def repo = Mock(ModuleComponentRepository) { getId() >> "mavenCentral" }
+
+        when:
+        ModuleComponentRepository c = cache.cached(repo, Stub(CachePolicy))
+
+        then:
+        c.localAccess.crossBuildCache == null
+    }
+
     def "cleans cache on close"() {
         when:
         cache.cached(Mock(ModuleComponentRepository) { getId() >> "x"} )
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ModuleDescriptorSerializerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def resolverStrategy = new ResolverStrategy()
+    def serializer = new ModuleDescriptorSerializer(resolverStrategy)
+    def parser = new IvyXmlModuleDescriptorParser(resolverStrategy)
+    def writer = new IvyXmlModuleDescriptorWriter()
+    DescriptorParseContext parseContext = Mock()
+
+    def "serialized descriptor contains the same information as the cached ivy.xml"() {
+        given:
+        def file = temporaryFolder.file("ivy.xml") << """
+<ivy-module version="2.0" xmlns:e="http://ant.apache.org/ivy/extra" xmlns:m="http://ant.apache.org/ivy/maven">
+    <info organisation="myorg" module="mymodule" branch="trunk" revision="myrev" status="release" publication="20120817120000" e:buildNr="815">
+        <license name="Apache" url="http://www.apache.org/licenses/LICENSE-2.0"/>
+        <description homepage="http://myorg.org/mymodule">A module</description>
+        <e:someInfo>info</e:someInfo>
+    </info>
+    <configurations>
+        <conf name="compile" description="compile classpath" e:extra="yes"/>
+        <conf name="runtime" extends="compile"/>
+        <conf name="test" visibility="private" extends="runtime" transitive="false" deprecated="not used"/>
+    </configurations>
+    <publications>
+        <artifact name="mymodule" type="jar" ext="jar" conf="compile,runtime"/>
+        <artifact name="mymodule" type="source" ext="jar" m:classifier="sources" conf="test"/>
+    </publications>
+    <dependencies>
+        <dependency org="otherorg" name="dep1" rev="1.2" revConstraint="1.+" force="true" changing="true" transitive="false" conf="compile->default;runtime->runtime,master;test->*">
+            <artifact name="dep1" type="jar" ext="jar" m:classifier="jdk15" conf="compile"/>
+            <include name="dep1" type="jar" matcher="glob"/>
+            <exclude org="excluded" module="bad*" matcher="glob" conf="runtime"/>
+        </dependency>
+        <dependency org="otherorg" name="dep2" branch="stable" rev="2.0" conf="runtime->@"/>
+        <exclude org="excluded" module="gone" artifact="*" type="*" ext="*" matcher="exact"/>
+    </dependencies>
+</ivy-module>
+"""
+        def descriptor = parser.parseMetaData(parseContext, file, true).descriptor
+
+        when:
+        def result = roundTrip(descriptor)
+
+        then:
+        toXml(result) == toXml(descriptor)
+        result.extraInfo == [(new NamespaceId("http://ant.apache.org/ivy/extra", "someInfo")): "info"]
+        result.publicationDate == descriptor.publicationDate
+        result.getArtifacts("runtime")*.name == ["mymodule"]
+        result.getArtifacts("test")[0].getExtraAttribute("m:classifier") == "sources"
+        result.dependencies[0].dynamicConstraintDependencyRevisionId.revision == "1.+"
+        result.dependencies[0].getDependencyConfigurations("runtime") == ["runtime", "master"] as String[]
+        result.dependencies[0].getIncludeRules("compile")[0].matcher.name == "glob"
+        result.dependencies[0].getExcludeRules("runtime")[0].id.moduleId.name == "bad*"
+        result.dependencies[1].dependencyRevisionId.branch == "stable"
+        result.allExcludeRules[0].id.moduleId.organisation == "excluded"
+    }
+
+    def "serializes minimal descriptor"() {
+        given:
+        def file = temporaryFolder.file("ivy.xml") << """
+<ivy-module version="1.0">
+    <info organisation="myorg" module="mymodule" revision="myrev"/>
+</ivy-module>
+"""
+        def descriptor = parser.parseMetaData(parseContext, file, true).descriptor
+
+        when:
+        def result = roundTrip(descriptor)
+
+        then:
+        toXml(result) == toXml(descriptor)
+        result.moduleRevisionId == descriptor.moduleRevisionId
+        result.configurationsNames == ["default"] as String[]
+        result.getArtifacts("default")*.name == ["mymodule"]
+        result.dependencies.length == 0
+    }
+
+    ModuleDescriptor roundTrip(ModuleDescriptor descriptor) {
+        def outputStream = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outputStream)
+        serializer.write(encoder, descriptor)
+        encoder.flush()
+        return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(outputStream.toByteArray())))
+    }
+
+    String toXml(ModuleDescriptor descriptor) {
+        def file = temporaryFolder.createFile("out/ivy.xml")
+        writer.write(descriptor, file)
+        return file.text
+    }
+}
@@ -31,6 +31,7 @@ import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
@@ -940,6 +941,53 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(forced, b)
     }
 
+    def "fetches meta-data for the dependencies of queued configurations in batches"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        traverses b, d
+        def batches = []
+        _ * prefetcher.fetchAll(_) >> { Collection<Runnable> fetches ->
+            batches << fetches*.toString()
+            fetches*.run()
+        }
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        batches == [["group:a:1.0", "group:b:1.0"], ["group:c:1.0", "group:d:1.0"]]
+        modules(result) == ids(a, b, c, d)
+    }
+
+    def "fetches meta-data again during traversal when fetching ahead fails"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+        def a = revision("a")
+        def dependencyMetaData = dependsOn(root, a.id)
+        selectorResolvesTo(dependencyMetaData, a.componentId, a.id)
+        _ * prefetcher.fetchAll(_) >> { Collection<Runnable> fetches -> fetches*.run() }
+        2 * metaDataResolver.resolve(a.componentId, _, _) >> { throw new RuntimeException("broken") } >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            result.resolved(a)
+        }
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        modules(result) == ids(a)
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.gradle.api.Action
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelComponentMetaDataPrefetcherTest extends ConcurrentSpec {
+    def useCacheCalls = new AtomicInteger()
+    def longRunningOperationCalls = new AtomicInteger()
+    // Use plain implementations rather than mocks, as Spock mocks synchronise calls made from different threads
+    def cacheLockingManager = [
+        useCache: { String displayName, Runnable action -> useCacheCalls.incrementAndGet(); action.run() },
+        longRunningOperation: { String displayName, Runnable action -> longRunningOperationCalls.incrementAndGet(); action.run() }
+    ] as CacheLockingManager
+    def ivyContextManager = [withIvy: { Action action -> action.execute(null) }] as IvyContextManager
+    def prefetcher = new ParallelComponentMetaDataPrefetcher(executorFactory, 2, cacheLockingManager, ivyContextManager)
+
+    def "runs a single fetch on the calling thread"() {
+        def fetch = Mock(Runnable)
+        def callingThread = Thread.currentThread()
+
+        when:
+        prefetcher.fetchAll([fetch])
+
+        then:
+        1 * fetch.run() >> {
+            assert Thread.currentThread() == callingThread
+        }
+        useCacheCalls.get() == 0
+        longRunningOperationCalls.get() == 0
+    }
+
+    def "runs fetches concurrently and releases the cache lock while waiting for them"() {
+        when:
+        prefetcher.fetchAll([
+            { instant.first; thread.blockUntil.second } as Runnable,
+            { instant.second; thread.blockUntil.first } as Runnable,
+            { instant.third } as Runnable
+        ])
+
+        then:
+        instant.third
+        longRunningOperationCalls.get() == 1
+        useCacheCalls.get() == 3
+    }
+
+    def "rethrows failure once all fetches have completed"() {
+        def failure = new RuntimeException("broken")
+        def fetch = Mock(Runnable)
+
+        when:
+        prefetcher.fetchAll([{ throw failure } as Runnable, fetch, fetch])
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+
+        and:
+        longRunningOperationCalls.get() == 1
+        2 * fetch.run()
+    }
+}
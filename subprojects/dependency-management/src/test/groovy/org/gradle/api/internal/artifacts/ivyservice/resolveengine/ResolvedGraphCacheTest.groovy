@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine
+
+import org.gradle.api.Action
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.ModuleInternal
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultResolutionStrategy
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+class ResolvedGraphCacheTest extends Specification {
+    def resolutionStrategy = new DefaultResolutionStrategy()
+    def dependencies = [new DefaultExternalModuleDependency("org", "a", "1.0")]
+    def configuration = Stub(ConfigurationInternal)
+    def metadataHandler = Stub(GlobalDependencyResolutionRules) {
+        getComponentMetadataProcessor() >> ComponentMetadataProcessor.NO_OP
+    }
+    def cache = new ResolvedGraphCache(Stub(CacheLockingManager), new BuildCommencedTimeProvider(), new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+
+    def setup() {
+        configuration.getName() >> "compile"
+        configuration.getPath() >> ":compile"
+        configuration.getModule() >> Stub(ModuleInternal)
+        configuration.getResolutionStrategy() >> resolutionStrategy
+        configuration.getHierarchy() >> { [configuration] as Set }
+        configuration.getExcludeRules() >> ([] as Set)
+        configuration.getDependencies() >> Stub(DependencySet) {
+            iterator() >> { dependencies.iterator() }
+        }
+    }
+
+    def "creates the same key for configurations with the same inputs"() {
+        when:
+        def key = cache.createKey(configuration, [], metadataHandler)
+
+        then:
+        key != null
+        cache.createKey(configuration, [], metadataHandler) == key
+
+        when:
+        dependencies = [new DefaultExternalModuleDependency("org", "a", "1.1")]
+
+        then:
+        cache.createKey(configuration, [], metadataHandler) != key
+    }
+
+    def "does not cache configuration with dynamic version"() {
+        given:
+        dependencies << new DefaultExternalModuleDependency("org", "b", "1.+")
+
+        expect:
+        cache.createKey(configuration, [], metadataHandler) == null
+    }
+
+    def "does not cache configuration with dependency resolve rules"() {
+        given:
+        resolutionStrategy.eachDependency(Stub(Action))
+
+        expect:
+        cache.createKey(configuration, [], metadataHandler) == null
+    }
+
+    def "does not cache configuration with dependency substitution rules"() {
+        given:
+        resolutionStrategy.dependencySubstitution.all(Stub(Action))
+
+        expect:
+        cache.createKey(configuration, [], metadataHandler) == null
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact
+
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.resolve.ArtifactResolveException
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParallelArtifactDownloaderTest extends ConcurrentSpec {
+    def useCacheCalls = new AtomicInteger()
+    def longRunningOperationCalls = new AtomicInteger()
+    // Use a plain implementation rather than a mock, as Spock mocks synchronise calls made from different threads
+    def cacheLockingManager = [
+        useCache: { String displayName, Runnable action -> useCacheCalls.incrementAndGet(); action.run() },
+        longRunningOperation: { String displayName, Runnable action -> longRunningOperationCalls.incrementAndGet(); action.run() }
+    ] as CacheLockingManager
+    def progressLogger = Mock(ProgressLogger)
+    def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(_ as Class) >> progressLogger
+    }
+    def downloader = new ParallelArtifactDownloader(executorFactory, 2, cacheLockingManager, progressLoggerFactory)
+
+    def "leaves a single artifact to be downloaded by the caller"() {
+        def source = Mock(Factory)
+
+        when:
+        downloader.downloadAll("config", [artifact(source)])
+
+        then:
+        0 * source._
+        0 * progressLogger._
+        useCacheCalls.get() == 0
+        longRunningOperationCalls.get() == 0
+    }
+
+    def "downloads artifacts concurrently and releases the cache lock while waiting for them"() {
+        def file1 = new File("a.jar")
+        def file2 = new File("b.jar")
+        def file3 = new File("c.jar")
+        def artifacts = [
+            artifact({ instant.first; thread.blockUntil.second; file1 } as Factory),
+            artifact({ instant.second; thread.blockUntil.first; file2 } as Factory),
+            artifact({ instant.third; file3 } as Factory)
+        ]
+
+        when:
+        downloader.downloadAll("config", artifacts)
+
+        then:
+        instant.third
+        artifacts*.resolved == [true, true, true]
+        artifacts*.file == [file1, file2, file3]
+
+        longRunningOperationCalls.get() == 1
+        useCacheCalls.get() == 3
+
+        and:
+        1 * progressLogger.started("0/3 artifacts")
+        3 * progressLogger.progress(_)
+        1 * progressLogger.completed()
+    }
+
+    def "does not download artifacts whose file is already available"() {
+        def downloaded = artifact({ new File("a.jar") } as Factory)
+        def source = Mock(Factory)
+        downloaded.file
+
+        when:
+        downloader.downloadAll("config", [downloaded, artifact(source), artifact(source)])
+
+        then:
+        useCacheCalls.get() == 2
+        2 * source.create() >> new File("b.jar")
+        1 * progressLogger.started("0/2 artifacts")
+    }
+
+    def "ignores download failure so that it is reported when the file is requested"() {
+        def failure = new ArtifactResolveException("broken")
+        def failed = Mock(Factory)
+        def artifact = artifact(failed)
+
+        when:
+        downloader.downloadAll("config", [artifact, artifact({ new File("b.jar") } as Factory)])
+
+        then:
+        1 * failed.create() >> { throw failure }
+        !artifact.resolved
+
+        when:
+        artifact.file
+
+        then:
+        ArtifactResolveException e = thrown()
+        e == failure
+
+        and:
+        1 * failed.create() >> { throw failure }
+    }
+
+    def artifact(Factory<File> source) {
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), new DefaultIvyArtifactName("name", "jar", "jar"), null, source)
+    }
+}
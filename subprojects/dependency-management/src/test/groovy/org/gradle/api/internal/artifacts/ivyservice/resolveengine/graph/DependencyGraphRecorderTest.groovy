@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactSet
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.local.model.DefaultProjectComponentIdentifier
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.ConfigurationMetaData
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.internal.serialize.SerializerSpec
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+
+class DependencyGraphRecorderTest extends SerializerSpec {
+    def dependencyA = Stub(ModuleDependency)
+    def dependencyB = Stub(ModuleDependency)
+    def dependencies = [dependencyA, dependencyB]
+    def recorder = new DependencyGraphRecorder(dependencies, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+    def events = []
+    def graphVisitor = [
+        start: { DependencyGraphNode node -> events << "start ${node.toId()}" },
+        visitNode: { DependencyGraphNode node -> events << "node ${node.nodeId} ${node.componentId} ${node.outgoingEdges*.requested} -> ${node.outgoingEdges*.selected}" },
+        visitEdge: { DependencyGraphNode node -> events << "edge ${node.nodeId} from ${node.incomingEdges*.from*.nodeId} ${node.incomingEdges*.moduleDependency.collect { dependencies.indexOf(it) }}" },
+        finish: { DependencyGraphNode node -> events << "finish ${node.nodeId}" }
+    ] as DependencyGraphVisitor
+    def artifactsVisitor = [
+        visitArtifacts: { ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child, ArtifactSet artifacts ->
+            events << "artifacts ${parent} -> ${child} ${artifacts.id} ${artifacts.artifacts*.id}"
+        },
+        finishArtifacts: { events << "finish artifacts" }
+    ] as DependencyArtifactsVisitor
+
+    def root = node(newId("org", "root", "1.0"), DefaultProjectComponentIdentifier.newId(":"))
+    def a = node(newId("org", "a", "1.0"))
+    def b = node(newId("org", "b", "2.0"))
+    def c = node(newId("org", "c", "1.0"))
+
+    def "replays recorded graph to visitors"() {
+        given:
+        edge(root, a, dependencyA)
+        edge(root, b, dependencyB)
+        edge(a, c)
+        edge(b, c)
+        def artifactsA = artifacts(1, a)
+        def artifactsB = artifacts(2, b)
+        def artifactsC = artifacts(3, c)
+
+        when:
+        record(root, [root, a, b, c], [(a): [artifactsA], (b): [artifactsB], (c): [artifactsC, artifactsC]])
+        def recordedEvents = events
+        def graph = serialize(recorder.complete(100), new RecordedDependencyGraphSerializer())
+        events = []
+        graph.replay(dependencies, Stub(ArtifactResolver), graphVisitor, artifactsVisitor)
+
+        then:
+        graph.createTimestamp == 100
+        graph.components == [a, b, c].collect { it.componentId } as Set
+        events == recordedEvents
+        events[0] == "start org:root:1.0"
+        events[2] == "node org:a:1.0:default org:a:1.0 [org:c:1.0] -> [org:c:1.0]"
+        events[6] == "edge org:a:1.0:default from [org:root:1.0:default] [0]"
+        events[7] == "artifacts org:root:1.0:default -> org:a:1.0:default 1 [a.jar (org:a:1.0)]"
+        events[10] == "edge org:c:1.0:default from [org:a:1.0:default, org:b:2.0:default] [-1, -1]"
+        events[11] == "artifacts org:a:1.0:default -> org:c:1.0:default 3 [c.jar (org:c:1.0)]"
+        events.last() == "finish artifacts"
+    }
+
+    def "replays the same root node id that it uses for the incoming edges of the first level nodes"() {
+        given:
+        edge(root, a, dependencyA)
+
+        when:
+        record(root, [root, a], [(a): [artifacts(1, a)]])
+        def graph = serialize(recorder.complete(100), new RecordedDependencyGraphSerializer())
+        def rootNode = null
+        def firstLevelNode = null
+        graph.replay(dependencies, Stub(ArtifactResolver), [
+            start: { rootNode = it },
+            visitNode: {},
+            visitEdge: { if (it.nodeId != rootNode.nodeId) { firstLevelNode = it } },
+            finish: {}
+        ] as DependencyGraphVisitor, artifactsVisitor)
+
+        then:
+        firstLevelNode.incomingEdges*.from*.nodeId.every { it.is(rootNode.nodeId) }
+    }
+
+    def "does not record graph that contains a dynamic version"() {
+        given:
+        edge(root, a, dependencyA, "1.+")
+
+        when:
+        record(root, [root, a], [(a): [artifacts(1, a)]])
+
+        then:
+        recorder.complete(100) == null
+    }
+
+    def "does not record graph that contains a failure"() {
+        given:
+        edge(root, a, dependencyA)
+        a.outgoingEdges << Stub(DependencyGraphEdge) {
+            getFrom() >> a
+            getRequested() >> DefaultModuleComponentSelector.newSelector("org", "missing", "1.0")
+            getFailure() >> new ModuleVersionResolveException(newId("org", "missing", "1.0"), "broken")
+        }
+
+        when:
+        record(root, [root, a], [(a): [artifacts(1, a)]])
+
+        then:
+        recorder.complete(100) == null
+    }
+
+    def "does not record graph that contains a changing module"() {
+        given:
+        def changing = node(newId("org", "changing", "1.0"), DefaultModuleComponentIdentifier.newId("org", "changing", "1.0"), true)
+        edge(root, changing, dependencyA)
+
+        when:
+        record(root, [root, changing], [(changing): [artifacts(1, changing)]])
+
+        then:
+        recorder.complete(100) == null
+    }
+
+    def "does not record graph that contains a project"() {
+        given:
+        def project = node(newId("org", "other", "1.0"), DefaultProjectComponentIdentifier.newId(":other"))
+        edge(root, project, dependencyA)
+
+        when:
+        record(root, [root, project], [(project): [artifacts(1, project)]])
+
+        then:
+        recorder.complete(100) == null
+    }
+
+    def "detects replacements for requested modules"() {
+        given:
+        edge(root, a, dependencyA)
+        edge(a, c)
+        def replacements = Stub(ModuleReplacementsData) {
+            getReplacementFor(DefaultModuleIdentifier.newId("org", "c")) >> DefaultModuleIdentifier.newId("org", "d")
+        }
+
+        when:
+        record(root, [root, a, c], [(a): [artifacts(1, a)], (c): [artifacts(2, c)]])
+        def graph = recorder.complete(100)
+
+        then:
+        graph.hasReplacements(replacements)
+        !graph.hasReplacements(ModuleReplacementsData.NO_OP)
+    }
+
+    private void record(DependencyGraphNode root, List<DependencyGraphNode> nodes, Map<DependencyGraphNode, List<ArtifactSet>> artifacts) {
+        def visitor = new CompositeDependencyGraphVisitor(graphVisitor, recorder)
+        def artifactVisitor = new CompositeDependencyArtifactsVisitor(artifactsVisitor, recorder)
+        visitor.start(root)
+        nodes.each { visitor.visitNode(it) }
+        nodes.each { node ->
+            visitor.visitEdge(node)
+            node.incomingEdges.eachWithIndex { edge, i ->
+                artifactVisitor.visitArtifacts(edge.from.nodeId, node.nodeId, artifacts[node][i])
+            }
+        }
+        visitor.finish(root)
+        artifactVisitor.finishArtifacts()
+    }
+
+    private DependencyGraphNode node(def id, def componentId = DefaultModuleComponentIdentifier.newId(id.group, id.name, id.version), boolean changing = false) {
+        def nodeId = new ResolvedConfigurationIdentifier(id, "default")
+        def selection = Stub(ModuleVersionSelection) {
+            getId() >> id
+            getComponentId() >> componentId
+            getSelectionReason() >> VersionSelectionReasons.REQUESTED
+        }
+        def component = Stub(ComponentResolveMetaData) {
+            isChanging() >> changing
+        }
+        def metaData = Stub(ConfigurationMetaData) {
+            getComponent() >> component
+        }
+        Set<DependencyGraphEdge> incoming = new LinkedHashSet<DependencyGraphEdge>()
+        Set<DependencyGraphEdge> outgoing = new LinkedHashSet<DependencyGraphEdge>()
+        return Stub(DependencyGraphNode) {
+            getNodeId() >> nodeId
+            toId() >> id
+            getComponentId() >> componentId
+            getSelection() >> selection
+            getMetaData() >> metaData
+            getIncomingEdges() >> incoming
+            getOutgoingEdges() >> outgoing
+        }
+    }
+
+    private void edge(DependencyGraphNode from, DependencyGraphNode to, ModuleDependency dependency = null, String version = to.toId().version) {
+        def edge = Stub(DependencyGraphEdge) {
+            getFrom() >> from
+            getRequested() >> DefaultModuleComponentSelector.newSelector(to.toId().group, to.toId().name, version)
+            getSelected() >> to.toId()
+            getModuleDependency() >> dependency
+        }
+        from.outgoingEdges << edge
+        to.incomingEdges << edge
+    }
+
+    private ArtifactSet artifacts(long id, DependencyGraphNode owner) {
+        def artifact = Stub(ResolvedArtifact) {
+            getId() >> new DefaultModuleComponentArtifactIdentifier(owner.componentId, owner.toId().name, "jar", "jar")
+        }
+        return Stub(ArtifactSet) {
+            getId() >> id
+            getArtifacts() >> ([artifact] as Set)
+        }
+    }
+}
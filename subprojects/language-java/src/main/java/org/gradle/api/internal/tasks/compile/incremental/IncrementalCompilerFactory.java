@@ -18,7 +18,7 @@ package org.gradle.api.internal.tasks.compile.incremental;
 
 import org.gradle.api.internal.changedetection.changes.IncrementalTaskInputsInternal;
 import org.gradle.api.internal.file.FileOperations;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.api.internal.tasks.compile.CleaningJavaCompiler;
 import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
@@ -41,7 +41,7 @@ public class IncrementalCompilerFactory {
                                       List<Object> source, CompileCaches compileCaches, IncrementalTaskInputsInternal inputs) {
         this.inputs = inputs;
         //bunch of services that enable incremental java compilation.
-        Hasher hasher = new DefaultHasher(); //TODO SF use caching hasher
+        Hasher hasher = FileHashAlgorithm.fromSystemProperty().createHasher(); //TODO SF use caching hasher
         ClassDependenciesAnalyzer analyzer = new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(), hasher, compileCaches.getClassAnalysisCache());
         JarSnapshotter jarSnapshotter = new CachingJarSnapshotter(hasher, analyzer, compileCaches.getJarSnapshotCache(), inputs.getInputFilesSnapshot());
 
@@ -176,4 +176,16 @@ class ClassSetAnalysisTest extends Specification {
         a.isDependencyToAll("C")
         !a.isDependencyToAll("Unknown")
     }
+
+    def "merges analyses of separate class sets"() {
+        def a = new ClassSetAnalysis(ClassSetAnalysisData.merge([
+                new ClassSetAnalysisData(["A": dependents("B"), "B": dependents(), "C": new DefaultDependentsSet(true, [])]),
+                new ClassSetAnalysisData(["A": dependents("D"), "C": dependents("D"), "D": dependents("E"), "E": dependents()])
+        ]))
+
+        expect:
+        a.getRelevantDependents("A").dependentClasses == ["B", "D", "E"] as Set
+        a.getRelevantDependents("D").dependentClasses == ["E"] as Set
+        a.isDependencyToAll("C")
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.integtests.fixtures.executer.GradleDistribution
+import org.gradle.integtests.fixtures.executer.GradleExecuter
+import org.gradle.integtests.fixtures.executer.UnderDevelopmentGradleDistribution
+import org.gradle.test.fixtures.ConcurrentTestUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.junit.experimental.categories.Category
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Runs several builds at the same time, which all hammer the same on-demand cache in the shared user home, and reports how long they take.
+ * Every cache operation of a build that does not hold the cache lock requires the lock to be handed over from another build.
+ */
+@Category(PerformanceTest)
+class FileLockContentionPerformanceTest extends Specification {
+    @Rule TestNameTestDirectoryProvider workspace = new TestNameTestDirectoryProvider()
+    GradleDistribution distribution = new UnderDevelopmentGradleDistribution()
+    @Rule ConcurrentTestUtil concurrent = new ConcurrentTestUtil()
+
+    def setup() {
+        concurrent.shortTimeout = 300000
+    }
+
+    @Unroll
+    def "#processes builds hammering one cache"() {
+        given:
+        def userHome = workspace.file("user-home")
+        processes.times { count ->
+            workspace.file(count).file('build.gradle') << """
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.internal.FileLockManager
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
+
+task hammer << {
+    def cache = gradle.services.get(CacheRepository).cache("fileLockContention").withLockOptions(mode(FileLockManager.LockMode.None)).open()
+    try {
+        def start = System.currentTimeMillis()
+        ${operations}.times {
+            cache.useCache("hammer", { Thread.sleep(1) } as Runnable)
+            // Work that does not need the cache
+            Thread.sleep(5)
+        }
+        println "BUILD $count: ${operations} cache operations took \${System.currentTimeMillis() - start}ms"
+    } finally {
+        cache.close()
+    }
+}
+"""
+        }
+
+        when:
+        def start = System.currentTimeMillis()
+        processes.times { count ->
+            concurrent.start {
+                GradleExecuter executer = distribution.executer(workspace).
+                        requireGradleHome().
+                        withGradleUserHomeDir(userHome)
+                executer.inDirectory(workspace.file(count)).withTasks('hammer').run()
+            }
+        }
+        concurrent.finished()
+
+        then:
+        println "$processes builds with $operations cache operations each took ${System.currentTimeMillis() - start}ms"
+
+        where:
+        processes | operations
+        1         | 300
+        2         | 300
+        4         | 300
+        8         | 300
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance
+
+import org.gradle.integtests.fixtures.executer.GradleDistribution
+import org.gradle.integtests.fixtures.executer.UnderDevelopmentGradleDistribution
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.junit.experimental.categories.Category
+import org.junit.rules.ExternalResource
+import org.mortbay.jetty.Server
+import org.mortbay.jetty.bio.SocketConnector
+import org.mortbay.jetty.handler.AbstractHandler
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Compares downloading the artifacts of a configuration one at a time with downloading them concurrently, from a local HTTP server that
+ * adds a fixed latency to each artifact request.
+ */
+@Category(PerformanceTest)
+class ParallelArtifactDownloadPerformanceTest extends Specification {
+    static final int MODULE_COUNT = 40
+    static final int ARTIFACT_LATENCY_MILLIS = 100
+    static final int CONNECTIONS_PER_REPOSITORY = 4
+
+    @Rule TestNameTestDirectoryProvider workspace = new TestNameTestDirectoryProvider()
+    @Rule SlowRepositoryServer server = new SlowRepositoryServer()
+    GradleDistribution distribution = new UnderDevelopmentGradleDistribution()
+
+    def "downloads the artifacts of a configuration concurrently"() {
+        given:
+        workspace.file("build.gradle") << """
+repositories {
+    maven { url '${server.uri}' }
+}
+configurations {
+    compile
+}
+dependencies {
+    (0..<${MODULE_COUNT}).each { compile "org.test:lib\$it:1.0" }
+}
+task resolve << {
+    println "RESOLVED: " + configurations.compile.files.collect { it.name }.sort()
+}
+"""
+
+        when:
+        def serial = resolveWithEmptyCache("serial")
+        def parallel = resolveWithEmptyCache("parallel", "-Dorg.gradle.dependency.parallelartifacts=true",
+            "-Dorg.gradle.dependency.parallelartifacts.connections=${CONNECTIONS_PER_REPOSITORY}")
+        println "Serial download: ${serial.time}ms, max concurrent artifact requests ${serial.maxConcurrentRequests}"
+        println "Parallel download: ${parallel.time}ms, max concurrent artifact requests ${parallel.maxConcurrentRequests}"
+
+        then:
+        parallel.output == serial.output
+        serial.maxConcurrentRequests == 1
+        parallel.maxConcurrentRequests > 1
+        parallel.maxConcurrentRequests <= CONNECTIONS_PER_REPOSITORY
+        parallel.time < serial.time
+    }
+
+    private Map resolveWithEmptyCache(String name, String... args) {
+        server.resetStatistics()
+        def executer = distribution.executer(workspace).
+                requireGradleHome().
+                withGradleUserHomeDir(workspace.file("user-home-$name"))
+        args.each { executer.withArgument(it) }
+        def start = System.nanoTime()
+        def result = executer.inDirectory(workspace.testDirectory).withTasks('resolve').run()
+        def time = (System.nanoTime() - start).intdiv(1000000)
+        def output = result.output.readLines().find { it.startsWith("RESOLVED: ") }
+        return [time: time, output: output, maxConcurrentRequests: server.maxConcurrentRequests]
+    }
+
+    static class SlowRepositoryServer extends ExternalResource {
+        final Server server = new Server(0)
+        final AtomicInteger concurrentRequests = new AtomicInteger()
+        final AtomicInteger maxConcurrentRequests = new AtomicInteger()
+        final byte[] jar = createJar()
+
+        @Override
+        protected void before() {
+            server.addConnector(new SocketConnector())
+            server.addHandler(new AbstractHandler() {
+                void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                    def matcher = request.pathInfo =~ '^/org/test/(lib\\d+)/1\\.0/lib\\d+-1\\.0\\.(pom|jar)$'
+                    if (request.method != 'GET' || !matcher.matches()) {
+                        return
+                    }
+                    if (matcher.group(2) == 'pom') {
+                        writeContent(response, "text/xml", """<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>org.test</groupId>
+    <artifactId>${matcher.group(1)}</artifactId>
+    <version>1.0</version>
+</project>""".bytes)
+                    } else {
+                        // Count the request as finished before writing the response, so that the next request from the same client is not counted as concurrent
+                        def current = concurrentRequests.incrementAndGet()
+                        try {
+                            synchronized (maxConcurrentRequests) {
+                                maxConcurrentRequests.set(Math.max(current, maxConcurrentRequests.get()))
+                            }
+                            Thread.sleep(ARTIFACT_LATENCY_MILLIS)
+                        } finally {
+                            concurrentRequests.decrementAndGet()
+                        }
+                        writeContent(response, "application/java-archive", jar)
+                    }
+                    request.handled = true
+                }
+            })
+            server.start()
+        }
+
+        @Override
+        protected void after() {
+            server.stop()
+        }
+
+        URI getUri() {
+            return new URI("http://localhost:${server.connectors[0].localPort}/")
+        }
+
+        int getMaxConcurrentRequests() {
+            return maxConcurrentRequests.get()
+        }
+
+        void resetStatistics() {
+            maxConcurrentRequests.set(0)
+        }
+
+        private static void writeContent(HttpServletResponse response, String contentType, byte[] content) {
+            response.setContentType(contentType)
+            response.setContentLength(content.length)
+            response.outputStream.write(content)
+        }
+
+        private static byte[] createJar() {
+            def bytes = new ByteArrayOutputStream()
+            def zipStream = new ZipOutputStream(bytes)
+            zipStream.putNextEntry(new ZipEntry("a.txt"))
+            zipStream.write(new byte[64 * 1024])
+            zipStream.finish()
+            return bytes.toByteArray()
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.performance
+
+import spock.lang.Unroll
+
+import static org.gradle.performance.measure.Duration.millis
+
+class TestReportPerformanceTest extends AbstractCrossVersionPerformanceTest {
+    @Unroll("Project '#testProject' test report")
+    def "test report"() {
+        given:
+        runner.testId = "test report $testProject"
+        runner.testProject = testProject
+        // The tests run once during warm up, after which the test task is up-to-date and only the report is generated
+        runner.tasksToRun = ['cleanTestReport', 'testReport']
+        runner.args = ['-q']
+        runner.maxExecutionTimeRegression = maxExecutionTimeRegression
+        runner.targetVersions = ['2.8', 'last']
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject         | maxExecutionTimeRegression
+        "withTestReport1k"  | millis(500)
+        "withTestReport10k" | millis(1000)
+        "withTestReport50k" | millis(5000)
+    }
+}
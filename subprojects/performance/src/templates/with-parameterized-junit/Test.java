@@ -0,0 +1,36 @@
+package ${packageName};
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class ${testClassName} {
+
+    private final ${productionClassName} production = new ${productionClassName}("value");
+    private final int parameter;
+
+    public ${testClassName}(int parameter) {
+        this.parameter = parameter;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<Object[]>();
+        for (int i = 0; i < ${binding.hasVariable("parameterCount") ? parameterCount : 100}; i++) {
+            parameters.add(new Object[] {i});
+        }
+        return parameters;
+    }
+
+    @org.junit.Test
+    public void test() {
+        assertEquals(production.getProperty(), "value");
+        assertTrue(parameter >= 0);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing
+
+import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class ReusedTestWorkerIntegrationTest extends AbstractIntegrationSpec {
+
+    def "test tasks that run in the same reused worker process do not see each other's system properties and classes"() {
+        given:
+        buildFile << """
+            apply plugin: 'java'
+            repositories { mavenCentral() }
+            sourceSets { otherTest }
+            dependencies {
+                testCompile 'junit:junit:4.12'
+                otherTestCompile sourceSets.main.output, 'junit:junit:4.12'
+            }
+            task otherTest(type: Test) {
+                testClassesDir = sourceSets.otherTest.output.classesDir
+                classpath = sourceSets.otherTest.runtimeClasspath
+                mustRunAfter test
+            }
+        """
+        file("src/main/java/org/gradle/Counter.java") << """
+            package org.gradle;
+            public class Counter {
+                public static int count;
+            }
+        """
+        file("src/test/java/org/gradle/SomeTest.java") << workerTest("SomeTest", "org.gradle.OtherTest")
+        file("src/otherTest/java/org/gradle/OtherTest.java") << workerTest("OtherTest", "org.gradle.SomeTest")
+
+        when:
+        executer.withArgument("-D${ForkingTestClassProcessor.REUSE_WORKERS_PROPERTY}=true")
+        succeeds "test", "otherTest"
+
+        then:
+        file("build/SomeTest-worker.txt").text == file("build/OtherTest-worker.txt").text
+    }
+
+    private static String workerTest(String className, String classOfOtherTask) {
+        """
+            package org.gradle;
+
+            import java.io.FileWriter;
+            import java.lang.management.ManagementFactory;
+            import org.junit.Test;
+            import static org.junit.Assert.*;
+
+            public class ${className} {
+                @Test
+                public void runsInIsolationFromOtherTestTasks() throws Exception {
+                    assertNull(System.getProperty("org.gradle.leaked"));
+                    System.setProperty("org.gradle.leaked", "${className}");
+
+                    assertEquals(1, ++Counter.count);
+
+                    try {
+                        getClass().getClassLoader().loadClass("${classOfOtherTask}");
+                        fail();
+                    } catch (ClassNotFoundException e) {
+                        // expected
+                    }
+
+                    FileWriter writer = new FileWriter("build/${className}-worker.txt");
+                    writer.write(ManagementFactory.getRuntimeMXBean().getName());
+                    writer.close();
+                }
+            }
+        """
+    }
+}
@@ -24,6 +24,8 @@ import org.gradle.api.internal.tasks.compile.incremental.cache.DefaultGeneralCom
 import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.compile.incremental.jar.DefaultJarSnapshotCache;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
+import org.gradle.api.internal.tasks.testing.detection.DefaultTestClassScanCache;
+import org.gradle.api.internal.tasks.testing.detection.TestClassScanCache;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.JdkToolsInitializer;
@@ -70,5 +72,9 @@ public class CompileServices implements PluginServiceRegistry {
         JarSnapshotCache createJarSnapshotCache(CacheRepository cacheRepository) {
             return new DefaultJarSnapshotCache(cacheRepository);
         }
+
+        TestClassScanCache createTestClassScanCache(CacheRepository cacheRepository) {
+            return new DefaultTestClassScanCache(cacheRepository);
+        }
     }
 }
@@ -16,66 +16,72 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashUtil;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
 import java.util.*;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
 
     private List<File> testClassDirectories;
-    private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private final JarClassFileIndex jarClassFileIndex;
+    private final TestClassScanCache scanCache;
+    private final byte[] scanCacheKeyPrefix;
+    private final Map<String, Boolean> superClasses;
     private TestClassProcessor testClassProcessor;
     private final List<String> knownTestCaseClassNames;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
 
-    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
-        assert classFileExtractionManager != null;
-        this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+    protected AbstractTestFrameworkDetector(JarClassFileIndex jarClassFileIndex, TestClassScanCache scanCache) {
+        assert jarClassFileIndex != null;
+        assert scanCache != null;
+        this.jarClassFileIndex = jarClassFileIndex;
+        this.scanCache = scanCache;
+        this.scanCacheKeyPrefix = getClass().getName().getBytes();
+        this.superClasses = new HashMap<String, Boolean>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
+    @Nullable
+    private TestClassScanResult getSuperTestClass(String superClassName) {
         prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
 
-        final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
-
-        File superTestClassFile = null;
-        while (superTestClassFile == null && testClassDirectoriesIt.hasNext()) {
-            final File testClassDirectory = testClassDirectoriesIt.next();
+        for (File testClassDirectory : testClassDirectories) {
             final File superTestClassFileCandidate = new File(testClassDirectory, superClassName + ".class");
             if (superTestClassFileCandidate.exists()) {
-                superTestClassFile = superTestClassFileCandidate;
+                return scanClass(superTestClassFileCandidate);
             }
         }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
-        }
+        // super test class file not in test class directories
+        byte[] classFile = jarClassFileIndex.getClassFile(superClassName);
+        return classFile == null ? null : scanClass(classFile, superClassName);
     }
 
     private void prepareClasspath() {
@@ -93,7 +99,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 if (file.isDirectory()) {
                     testClassDirectories.add(file);
                 } else if (file.isFile() && file.getName().endsWith(".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
+                    jarClassFileIndex.addLibraryJar(file);
                 }
             }
         }
@@ -107,52 +113,67 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
-
-        InputStream classStream = null;
+    private TestClassScanResult scanClass(File testClassFile) {
+        byte[] classFile;
         try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(classStream);
-            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
-        } catch (Throwable e) {
+            classFile = FileUtils.readFileToByteArray(testClassFile);
+        } catch (IOException e) {
             throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(classStream);
         }
+        return scanClass(classFile, testClassFile.getAbsolutePath());
+    }
 
-        return classVisitor;
+    /**
+     * Parses the class file, or reuses the result of parsing a class file with the same content for the same test framework.
+     */
+    private TestClassScanResult scanClass(final byte[] classFile, final String displayName) {
+        byte[] key = HashUtil.sha1(new SequenceInputStream(new ByteArrayInputStream(scanCacheKeyPrefix), new ByteArrayInputStream(classFile))).asByteArray();
+        return scanCache.get(key, new Factory<TestClassScanResult>() {
+            public TestClassScanResult create() {
+                final TestClassVisitor classVisitor = createClassVisitor();
+                try {
+                    final ClassReader classReader = new ClassReader(classFile);
+                    classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+                } catch (Throwable e) {
+                    throw new GradleException("failed to read class file " + displayName, e);
+                }
+                return new TestClassScanResult(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isAbstract(), classVisitor.isTest());
+            }
+        });
     }
 
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        return processTestClass(scanClass(testClassFile), false);
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
-
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
+    protected abstract boolean processTestClass(TestClassScanResult testClass, boolean superClass);
 
-        Boolean isSuperTest = superClasses.get(testClassFile);
+    protected boolean processSuperClass(String superClassName) {
+        Boolean isSuperTest = superClasses.get(superClassName);
 
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+            final TestClassScanResult superClass = getSuperTestClass(superClassName);
+
+            if (superClass != null) {
+                isSuperTest = processTestClass(superClass, true);
+            } else {
+                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file", superClassName);
+                isSuperTest = false;
+            }
 
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+            superClasses.put(superClassName, isSuperTest);
         }
 
-        return isTest;
+        return isSuperTest;
     }
 
     /**
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, TestClassScanResult testClass, boolean superClass) {
+        if (isTest && !testClass.isAbstract() && !superClass) {
+            String className = Type.getObjectType(testClass.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -161,6 +182,13 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClassProcessor = testClassProcessor;
     }
 
+    public void endDetection() {
+        testClassProcessor = null;
+        testClassDirectories = null;
+        superClasses.clear();
+        jarClassFileIndex.stop();
+    }
+
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
         if (knownTestCaseClassNames != null && knownTestCaseClassNames.length != 0) {
             for (String knownTestCaseClassName : knownTestCaseClassNames) {
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.internal.cache.MinimalPersistentCache;
+import org.gradle.cache.CacheRepository;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+
+/**
+ * Cross-process, global cache of test class scan results. A class file that did not change, including a class from a library jar, is not parsed again
+ * to find out whether it is a test class.
+ */
+public class DefaultTestClassScanCache extends MinimalPersistentCache<byte[], TestClassScanResult> implements TestClassScanCache {
+
+    public DefaultTestClassScanCache(CacheRepository cacheRepository) {
+        super(cacheRepository, "test class scan", BYTE_ARRAY_SERIALIZER, new TestClassScanResult.Serializer());
+    }
+}
@@ -16,13 +16,16 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.DurationBalancedTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.SelectedTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
 import org.gradle.api.tasks.testing.Test;
@@ -32,16 +35,31 @@ import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final Map<String, Long> previousTestClassDurations;
+    private final Set<String> selectedTestClasses;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+        this(workerFactory, actorFactor, null, null);
+    }
+
+    /**
+     * @param previousTestClassDurations The duration of each test class in a previous run, used to balance the test classes between forks. When null, test classes are assigned to forks in turn.
+     * @param selectedTestClasses The names of the top-level test classes to execute. When null, all test classes are executed.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, @Nullable Map<String, Long> previousTestClassDurations, @Nullable Set<String> selectedTestClasses) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.selectedTestClasses = selectedTestClasses;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
@@ -59,8 +77,17 @@ public class DefaultTestExecuter implements TestExecuter {
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactor);
+        TestClassProcessor processor;
+        if (previousTestClassDurations != null && testTask.getMaxParallelForks() > 1) {
+            processor = new DurationBalancedTestClassProcessor(testTask.getMaxParallelForks(),
+                reforkingProcessorFactory, actorFactor, new TrueTimeProvider(), previousTestClassDurations);
+        } else {
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
+                reforkingProcessorFactory, actorFactor);
+        }
+        if (selectedTestClasses != null) {
+            processor = new SelectedTestClassProcessor(processor, selectedTestClasses);
+        }
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads class files from library jar files, without extracting them. Each jar is opened once, and the packages that contain class files are indexed so that only
+ * the jars containing a package are searched for a class. The jars stay open until this index is stopped.
+ */
+public class JarClassFileIndex implements Stoppable {
+    private final Map<String, List<ZipFile>> packageJarFiles = new HashMap<String, List<ZipFile>>();
+    private final List<ZipFile> jarFiles = new ArrayList<ZipFile>();
+
+    /**
+     * Opens the jar file and adds the packages of its class files to the index. Jars added first take precedence.
+     */
+    public void addLibraryJar(File libraryJar) {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(libraryJar);
+        } catch (IOException e) {
+            throw new GradleException("failed to scan jar file for packages (" + libraryJar.getAbsolutePath() + ")", e);
+        }
+        jarFiles.add(zipFile);
+
+        Set<String> packages = new HashSet<String>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.endsWith(".class") && !name.startsWith("META-INF")) {
+                packages.add(packageName(name));
+            }
+        }
+        for (String packageName : packages) {
+            List<ZipFile> zipFiles = packageJarFiles.get(packageName);
+            if (zipFiles == null) {
+                zipFiles = new ArrayList<ZipFile>(1);
+                packageJarFiles.put(packageName, zipFiles);
+            }
+            zipFiles.add(zipFile);
+        }
+    }
+
+    /**
+     * Returns the content of the class file for the given internal class name, or null when no library jar contains the class.
+     */
+    @Nullable
+    public byte[] getClassFile(String className) {
+        List<ZipFile> zipFiles = packageJarFiles.get(packageName(className));
+        if (zipFiles == null) {
+            return null;
+        }
+        String entryName = className + ".class";
+        for (ZipFile zipFile : zipFiles) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry != null) {
+                return read(zipFile, entry);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry entry) {
+        try {
+            InputStream inputStream = zipFile.getInputStream(entry);
+            try {
+                return IOUtils.toByteArray(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to read class file " + entry.getName() + " from jar (" + zipFile.getName() + ")", e);
+        }
+    }
+
+    private static String packageName(String path) {
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    public void stop() {
+        List<Stoppable> closers = new ArrayList<Stoppable>(jarFiles.size());
+        for (final ZipFile zipFile : jarFiles) {
+            closers.add(new Stoppable() {
+                public void stop() {
+                    try {
+                        zipFile.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+        jarFiles.clear();
+        packageJarFiles.clear();
+        CompositeStoppable.stoppable(closers).stop();
+    }
+}
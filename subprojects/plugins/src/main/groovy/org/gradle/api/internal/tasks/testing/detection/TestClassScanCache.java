@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2015 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,13 @@
  * limitations under the License.
  */
 
+
 package org.gradle.api.internal.tasks.testing.detection;
 
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
+import org.gradle.api.internal.cache.Cache;
+
+/**
+ * Caches the scan results of class files, keyed by a hash of the class file content and the test framework.
+ */
+public interface TestClassScanCache extends Cache<byte[], TestClassScanResult> {
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+/**
+ * What a test framework detector learned from a single class file, without looking at its super classes.
+ */
+public class TestClassScanResult {
+    private final String className;
+    private final String superClassName;
+    private final boolean isAbstract;
+    private final boolean test;
+
+    public TestClassScanResult(String className, @Nullable String superClassName, boolean isAbstract, boolean test) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.isAbstract = isAbstract;
+        this.test = test;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    @Nullable
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+
+    public boolean isTest() {
+        return test;
+    }
+
+    public static class Serializer implements org.gradle.internal.serialize.Serializer<TestClassScanResult> {
+        public TestClassScanResult read(Decoder decoder) throws Exception {
+            String className = decoder.readString();
+            String superClassName = decoder.readNullableString();
+            boolean isAbstract = decoder.readBoolean();
+            boolean test = decoder.readBoolean();
+            return new TestClassScanResult(className, superClassName, isAbstract, test);
+        }
+
+        public void write(Encoder encoder, TestClassScanResult value) throws Exception {
+            encoder.writeString(value.className);
+            encoder.writeNullableString(value.superClassName);
+            encoder.writeBoolean(value.isAbstract);
+            encoder.writeBoolean(value.test);
+        }
+    }
+}
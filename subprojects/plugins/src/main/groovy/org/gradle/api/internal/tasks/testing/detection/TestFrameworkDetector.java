@@ -25,6 +25,11 @@ public interface TestFrameworkDetector {
 
     boolean processTestClass(File testClassFile);
 
+    /**
+     * Called after the last test class has been processed, to release any resources held by the detection.
+     */
+    void endDetection();
+
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
@@ -23,7 +23,8 @@ import org.gradle.api.internal.tasks.testing.TestClassLoaderFactory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
-import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
+import org.gradle.api.internal.tasks.testing.detection.JarClassFileIndex;
+import org.gradle.api.internal.tasks.testing.detection.TestClassScanCache;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.api.tasks.testing.junit.JUnitOptions;
@@ -41,10 +42,10 @@ public class JUnitTestFramework implements TestFramework {
     private final DefaultTestFilter filter;
     private final TestClassLoaderFactory classLoaderFactory;
 
-    public JUnitTestFramework(Test testTask, DefaultTestFilter filter, ClassLoaderCache classLoaderCache) {
+    public JUnitTestFramework(Test testTask, DefaultTestFilter filter, ClassLoaderCache classLoaderCache, TestClassScanCache scanCache) {
         this.filter = filter;
         options = new JUnitOptions();
-        detector = new JUnitDetector(new ClassFileExtractionManager(testTask.getTemporaryDirFactory()));
+        detector = new JUnitDetector(new JarClassFileIndex(), scanCache);
         classLoaderFactory = new TestClassLoaderFactory(classLoaderCache, testTask);
     }
 
@@ -17,12 +17,16 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportWriterPool;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.html.SimpleHtmlWriter;
+import org.gradle.reporting.HtmlPageBuilder;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -36,6 +40,11 @@ import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final ExecutorFactory executorFactory;
+
+    public DefaultTestReport(ExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
@@ -74,15 +83,20 @@ public class DefaultTestReport implements TestReporter {
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
-
                     output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
-                    for (PackageTestResults packageResults : model.getPackages()) {
-                        output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
+
+                    // Page renderers hold the model of the page being rendered, so each page uses its own renderer
+                    ReportWriterPool writerPool = new ReportWriterPool(executorFactory, "test report writer");
+                    try {
+                        for (PackageTestResults packageResults : model.getPackages()) {
+                            renderPage(writerPool, output, packageResults.getBaseUrl(), packageResults, new PackagePageRenderer());
+                            for (ClassTestResults classResults : packageResults.getClasses()) {
+                                renderPage(writerPool, output, classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+                            }
                         }
+                        writerPool.complete();
+                    } finally {
+                        writerPool.stop();
                     }
                 }
             }, reportDir);
@@ -90,4 +104,12 @@ public class DefaultTestReport implements TestReporter {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    private static <T> void renderPage(ReportWriterPool writerPool, final HtmlReportBuilder output, final String name, final T model, final ReportRenderer<T, HtmlPageBuilder<SimpleHtmlWriter>> renderer) {
+        writerPool.execute(new Runnable() {
+            public void run() {
+                output.renderHtmlPage(name, model, renderer);
+            }
+        });
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the actions that write the files of a test report on a bounded pool of worker threads.
+ *
+ * <p>The calling thread blocks when too many actions are waiting to run, so that the results of a large test run are not all held in memory at once.
+ * The first failure of an action is rethrown by {@link #execute(Runnable)} or {@link #complete()}. When the pool has a single thread, the actions
+ * are run on the calling thread.</p>
+ *
+ * <p>This class is not thread-safe, and should be used from a single calling thread only.</p>
+ */
+public class ReportWriterPool implements Stoppable {
+    public static final String MAX_THREADS_PROPERTY = "org.gradle.test.report.threads";
+
+    /**
+     * The number of actions per thread that may be waiting to run before the calling thread blocks.
+     */
+    private static final int MAX_PENDING_PER_THREAD = 8;
+
+    private final ExecutorFactory executorFactory;
+    private final String displayName;
+    private final int maxThreads;
+    private final LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+    private StoppableExecutor executor;
+
+    public ReportWriterPool(ExecutorFactory executorFactory, String displayName) {
+        this(executorFactory, displayName, Integer.getInteger(MAX_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ReportWriterPool(ExecutorFactory executorFactory, String displayName, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.displayName = displayName;
+        this.maxThreads = maxThreads;
+    }
+
+    public void execute(Runnable action) {
+        if (maxThreads <= 1) {
+            action.run();
+            return;
+        }
+        if (executor == null) {
+            executor = executorFactory.create(displayName, maxThreads);
+        }
+        while (pending.size() >= maxThreads * MAX_PENDING_PER_THREAD) {
+            await(pending.removeFirst());
+        }
+        pending.add(executor.submit(action));
+    }
+
+    /**
+     * Waits for all actions to complete, rethrowing the first failure, and stops this pool.
+     */
+    public void complete() {
+        try {
+            while (!pending.isEmpty()) {
+                await(pending.removeFirst());
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops this pool, discarding the actions that have not started and waiting for the running actions to complete. Failures of these actions are discarded.
+     */
+    public void stop() {
+        for (Future<?> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -18,20 +18,30 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
-import org.gradle.internal.UncheckedException;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * Stores the output of tests. The output of each test class is buffered separately for each destination, and written to the outputs file in chunks
+ * that contain only the output of that class and destination. The index records the chunks of each class and destination, and which of those chunks
+ * contain output for each test, so that the output of a class or test can be read without reading the output of other classes.
+ */
 public class TestOutputStore {
+    /**
+     * The size of the buffered output of a class and destination at which it is written to the outputs file as a chunk.
+     */
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * The total size of buffered output at which all buffered output is written to the outputs file.
+     */
+    private static final int MAX_BUFFERED_SIZE = 1024 * 1024;
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
@@ -49,41 +59,56 @@ public class TestOutputStore {
         return new File(resultsDir, getOutputsFile().getName() + ".idx");
     }
 
-    private static class Region {
-        long start;
-        long stop;
-
-        private Region() {
-            start = -1;
-            stop = -1;
-        }
-
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
+    private static class StreamOutput {
+        final List<Long> chunkStarts = new ArrayList<Long>();
+        final List<Integer> chunkLengths = new ArrayList<Integer>();
+        // The chunks that contain output for each test, where test id 0 is the output of the class outside of any test
+        final Map<Long, List<Integer>> testChunks = new LinkedHashMap<Long, List<Integer>>();
+        Output buffer;
+
+        void addToCurrentChunk(long testId) {
+            List<Integer> chunks = testChunks.get(testId);
+            if (chunks == null) {
+                chunks = new ArrayList<Integer>();
+                testChunks.put(testId, chunks);
+            }
+            int currentChunk = chunkStarts.size();
+            if (chunks.isEmpty() || chunks.get(chunks.size() - 1) != currentChunk) {
+                chunks.add(currentChunk);
+            }
         }
     }
 
-    private static class TestCaseRegion {
-        Region stdOutRegion = new Region();
-        Region stdErrRegion = new Region();
+    private static class ClassOutput {
+        final StreamOutput stdOut = new StreamOutput();
+        final StreamOutput stdErr = new StreamOutput();
     }
 
     public class Writer implements Closeable {
-        private final KryoBackedEncoder output;
-
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        private final OutputStream output;
+        private final Map<Long, ClassOutput> index = new LinkedHashMap<Long, ClassOutput>();
+        private final Set<StreamOutput> buffered = new LinkedHashSet<StreamOutput>();
+        private long outputPosition;
+        private int bufferedSize;
 
         public Writer() {
             try {
-                output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()));
+                output = new BufferedOutputStream(new FileOutputStream(getOutputsFile()));
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
         }
 
         public void close() {
-            output.close();
+            try {
+                try {
+                    writeBufferedChunks();
+                } finally {
+                    output.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             writeIndex();
         }
 
@@ -92,43 +117,53 @@ public class TestOutputStore {
         }
 
         public void onOutput(long classId, long testId, TestOutputEvent outputEvent) {
-            boolean stdout = outputEvent.getDestination() == TestOutputEvent.Destination.StdOut;
-            mark(classId, testId, stdout);
+            ClassOutput classOutput = index.get(classId);
+            if (classOutput == null) {
+                classOutput = new ClassOutput();
+                index.put(classId, classOutput);
+            }
+            StreamOutput streamOutput = outputEvent.getDestination() == TestOutputEvent.Destination.StdOut ? classOutput.stdOut : classOutput.stdErr;
+            if (streamOutput.buffer == null) {
+                streamOutput.buffer = new Output(256, -1);
+                buffered.add(streamOutput);
+            }
+            streamOutput.addToCurrentChunk(testId);
 
-            output.writeBoolean(stdout);
-            output.writeSmallLong(classId);
-            output.writeSmallLong(testId);
+            byte[] bytes = outputEvent.getMessage().getBytes(messageStorageCharset);
+            Output buffer = streamOutput.buffer;
+            int start = buffer.position();
+            buffer.writeLong(testId, true);
+            buffer.writeInt(bytes.length, true);
+            buffer.writeBytes(bytes);
+            bufferedSize += buffer.position() - start;
 
-            byte[] bytes;
             try {
-                bytes = outputEvent.getMessage().getBytes(messageStorageCharset.name());
-            } catch (UnsupportedEncodingException e) {
-                throw UncheckedException.throwAsUncheckedException(e);
+                if (buffer.position() >= CHUNK_SIZE) {
+                    buffered.remove(streamOutput);
+                    writeChunk(streamOutput);
+                } else if (bufferedSize >= MAX_BUFFERED_SIZE) {
+                    writeBufferedChunks();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            output.writeSmallInt(bytes.length);
-            output.writeBytes(bytes, 0, bytes.length);
         }
 
-        private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
+        private void writeBufferedChunks() throws IOException {
+            for (StreamOutput streamOutput : buffered) {
+                writeChunk(streamOutput);
             }
+            buffered.clear();
+        }
 
-            Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
-                testCaseRegions.put(testId, region);
-            }
-
-            TestCaseRegion region = testCaseRegions.get(testId);
-
-            Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
-
-            int total = output.getWritePosition();
-            if (streamRegion.start < 0) {
-                streamRegion.start = total;
-            }
-            streamRegion.stop = total;
+        private void writeChunk(StreamOutput streamOutput) throws IOException {
+            int length = streamOutput.buffer.position();
+            output.write(streamOutput.buffer.getBuffer(), 0, length);
+            streamOutput.chunkStarts.add(outputPosition);
+            streamOutput.chunkLengths.add(length);
+            streamOutput.buffer = null;
+            outputPosition += length;
+            bufferedSize -= length;
         }
 
         private void writeIndex() {
@@ -139,86 +174,94 @@ public class TestOutputStore {
                 throw new UncheckedIOException(e);
             }
 
-
             try {
                 indexOutput.writeInt(index.size(), true);
 
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
-                    }
+                for (Map.Entry<Long, ClassOutput> classEntry : index.entrySet()) {
+                    indexOutput.writeLong(classEntry.getKey(), true);
+                    writeIndex(classEntry.getValue().stdOut, indexOutput);
+                    writeIndex(classEntry.getValue().stdErr, indexOutput);
                 }
             } finally {
                 indexOutput.close();
             }
         }
+
+        private void writeIndex(StreamOutput streamOutput, Output indexOutput) {
+            indexOutput.writeInt(streamOutput.chunkStarts.size(), true);
+            for (int i = 0; i < streamOutput.chunkStarts.size(); i++) {
+                indexOutput.writeLong(streamOutput.chunkStarts.get(i), true);
+                indexOutput.writeInt(streamOutput.chunkLengths.get(i), true);
+            }
+            indexOutput.writeInt(streamOutput.testChunks.size(), true);
+            for (Map.Entry<Long, List<Integer>> testEntry : streamOutput.testChunks.entrySet()) {
+                indexOutput.writeLong(testEntry.getKey(), true);
+                indexOutput.writeInt(testEntry.getValue().size(), true);
+                for (Integer chunk : testEntry.getValue()) {
+                    indexOutput.writeInt(chunk, true);
+                }
+            }
+        }
     }
 
     public Writer writer() {
         return new Writer();
     }
 
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
+    private static class StreamIndex {
+        final long[] chunkStarts;
+        final int[] chunkLengths;
+        final Map<Long, int[]> testChunks;
 
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
+        private StreamIndex(long[] chunkStarts, int[] chunkLengths, Map<Long, int[]> testChunks) {
+            this.chunkStarts = chunkStarts;
+            this.chunkLengths = chunkLengths;
+            this.testChunks = testChunks;
         }
 
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
+        static StreamIndex read(Input input) {
+            int numChunks = input.readInt(true);
+            long[] chunkStarts = new long[numChunks];
+            int[] chunkLengths = new int[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                chunkStarts[i] = input.readLong(true);
+                chunkLengths[i] = input.readInt(true);
+            }
+            int numTests = input.readInt(true);
+            Map<Long, int[]> testChunks = new HashMap<Long, int[]>(numTests * 2);
+            for (int i = 0; i < numTests; i++) {
+                long testId = input.readLong(true);
+                int[] chunks = new int[input.readInt(true)];
+                for (int j = 0; j < chunks.length; j++) {
+                    chunks[j] = input.readInt(true);
+                }
+                testChunks.put(testId, chunks);
+            }
+            return new StreamIndex(chunkStarts, chunkLengths, testChunks);
         }
     }
 
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
-
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
+    private static class ClassIndex {
+        final StreamIndex stdOut;
+        final StreamIndex stdErr;
 
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
-            }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
-            }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
-            }
-
-            children.put(key, index);
+        private ClassIndex(StreamIndex stdOut, StreamIndex stdErr) {
+            this.stdOut = stdOut;
+            this.stdErr = stdErr;
         }
 
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
+        StreamIndex get(TestOutputEvent.Destination destination) {
+            return destination == TestOutputEvent.Destination.StdOut ? stdOut : stdErr;
         }
     }
 
+    /**
+     * Reads the stored output. A reader can be used concurrently by multiple threads, as chunks are read using positional reads.
+     */
     public class Reader implements Closeable {
-        private final Index index;
+        private final Map<Long, ClassIndex> index;
         private final RandomAccessFile dataFile;
+        private final FileChannel dataChannel;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -236,36 +279,25 @@ public class TestOutputStore {
                     throw new UncheckedIOException(e);
                 }
 
-                IndexBuilder rootBuilder = null;
                 try {
                     int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
+                    index = new HashMap<Long, ClassIndex>(numClasses * 2);
                     for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
                         long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
+                        StreamIndex stdOut = StreamIndex.read(input);
+                        StreamIndex stdErr = StreamIndex.read(input);
+                        index.put(classId, new ClassIndex(stdOut, stdErr));
                     }
                 } finally {
                     input.close();
                 }
 
-                index = rootBuilder.build();
-
                 try {
                     dataFile = new RandomAccessFile(getOutputsFile(), "r");
                 } catch (FileNotFoundException e) {
                     throw new UncheckedIOException(e);
                 }
+                dataChannel = dataFile.getChannel();
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' does not exist but the index file '%s' does", outputsFile, indexFile));
@@ -273,6 +305,7 @@ public class TestOutputStore {
 
                 index = null;
                 dataFile = null;
+                dataChannel = null;
             }
         }
 
@@ -287,13 +320,8 @@ public class TestOutputStore {
                 return false;
             }
 
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
-                return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
-            }
+            ClassIndex classIndex = index.get(classId);
+            return classIndex != null && classIndex.get(destination).chunkStarts.length > 0;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -313,70 +341,52 @@ public class TestOutputStore {
                 return;
             }
 
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
-            }
-
-            if (targetIndex == null) {
-                return;
-            }
-
-            boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
-
-            if (region.start < 0) {
+            ClassIndex classIndex = index.get(classId);
+            if (classIndex == null) {
                 return;
             }
 
-            boolean ignoreClassLevel = !allClassOutput && testId != 0;
-            boolean ignoreTestLevel = !allClassOutput && testId == 0;
-
+            StreamIndex streamIndex = classIndex.get(destination);
             try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
-                while (decoder.getReadPosition() <= maxPos) {
-                    boolean readStdout = decoder.readBoolean();
-                    long readClassId = decoder.readSmallLong();
-                    long readTestId = decoder.readSmallLong();
-                    int readLength = decoder.readSmallInt();
-
-                    boolean isClassLevel = readTestId == 0;
-
-                    if (stdout != readStdout || classId != readClassId) {
-                        decoder.skipBytes(readLength);
-                        continue;
+                if (allClassOutput) {
+                    for (int i = 0; i < streamIndex.chunkStarts.length; i++) {
+                        readChunk(streamIndex, i, 0, true, writer);
                     }
-
-                    if (ignoreClassLevel && isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
+                } else {
+                    int[] chunks = streamIndex.testChunks.get(testId);
+                    if (chunks == null) {
+                        return;
                     }
-
-                    if (ignoreTestLevel && !isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
+                    for (int chunkIndex : chunks) {
+                        readChunk(streamIndex, chunkIndex, testId, false, writer);
                     }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-                    if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
-                        }
-
-                        writer.write(message);
-                    } else {
-                        decoder.skipBytes(readLength);
-                    }
+        private void readChunk(StreamIndex streamIndex, int chunkIndex, long testId, boolean allTests, java.io.Writer writer) throws IOException {
+            int length = streamIndex.chunkLengths[chunkIndex];
+            byte[] chunk = new byte[length];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long position = streamIndex.chunkStarts[chunkIndex];
+            while (buffer.hasRemaining()) {
+                int read = dataChannel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException(String.format("Unexpected end of test outputs data file '%s'.", getOutputsFile()));
+                }
+            }
+
+            Input input = new Input(chunk, 0, length);
+            while (input.position() < length) {
+                long readTestId = input.readLong(true);
+                int readLength = input.readInt(true);
+                int messageStart = input.position();
+                if (allTests || readTestId == testId) {
+                    writer.write(new String(chunk, messageStart, readLength, messageStorageCharset));
                 }
-            } catch (IOException e1) {
-                throw new UncheckedIOException(e1);
+                input.setPosition(messageStart + readLength);
             }
         }
     }
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Factory;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.*;
+
+/**
+ * Manages a set of parallel TestClassProcessors, balancing the test classes between them using the durations of the test classes in a previous run.
+ *
+ * <p>Test classes are queued longest first, and a processor is given the next class from the queue when it finishes one of its classes, so that a processor
+ * that is given slow classes is given fewer of them. Some processors do not report that a class has finished until they are stopped, so once all test classes
+ * have been queued the remaining classes are given to the processors with the least estimated work and the processors are stopped.</p>
+ *
+ * <p>When a processor stops without finishing its classes, for example because its worker process crashed, the classes that had not started are queued again
+ * and given to another processor. A class is queued again once only, so that a class that crashes every worker process does not run forever. The classes
+ * that had started are reported as failed, rather than run again.</p>
+ */
+public class DurationBalancedTestClassProcessor implements TestClassProcessor {
+    public static final String ENABLED_PROPERTY = "org.gradle.test.balanced";
+
+    /**
+     * The number of classes a processor may be running or holding at once, so that it does not sit idle waiting for its next class.
+     */
+    static final int MAX_CLASSES_PER_PROCESSOR = 2;
+
+    private final int maxProcessors;
+    private final Factory<TestClassProcessor> factory;
+    private final ActorFactory actorFactory;
+    private final TimeProvider timeProvider;
+    private final Map<String, Long> previousDurations;
+    private final long defaultDuration;
+    private final Object lock = new Object();
+    private final PriorityQueue<QueuedTestClass> queue = new PriorityQueue<QueuedTestClass>();
+    private final List<Fork> forks = new ArrayList<Fork>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+    private long queuedCount;
+    private boolean stopping;
+
+    /**
+     * @param previousDurations The duration of each test class in a previous run, keyed by class name.
+     */
+    public DurationBalancedTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, TimeProvider timeProvider,
+                                              Map<String, Long> previousDurations) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        this.timeProvider = timeProvider;
+        this.previousDurations = previousDurations;
+        this.defaultDuration = averageDuration(previousDurations.values());
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    private static long averageDuration(Collection<Long> durations) {
+        if (durations.isEmpty()) {
+            return 1;
+        }
+        long total = 0;
+        for (Long duration : durations) {
+            total += duration;
+        }
+        return Math.max(1, total / durations.size());
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        Long previousDuration = previousDurations.get(testClass.getTestClassName());
+        long estimatedDuration = previousDuration == null ? defaultDuration : Math.max(1, previousDuration);
+        synchronized (lock) {
+            queue.add(new QueuedTestClass(testClass, estimatedDuration, queuedCount++, false));
+            dispatchToIdleForks();
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            stopping = true;
+            dispatchToIdleForks();
+            while (!forks.isEmpty()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+        try {
+            CompositeStoppable.stoppable(actors).add(resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private void dispatchToIdleForks() {
+        if (stopping) {
+            dispatchAllAndStop();
+            return;
+        }
+        while (!queue.isEmpty()) {
+            Fork fork = idleFork();
+            if (fork == null) {
+                return;
+            }
+            dispatch(fork, queue.poll());
+        }
+    }
+
+    /**
+     * Gives all queued classes to the forks and stops them. A fork may not report that a class has finished until it is stopped, as the TestNG processor
+     * runs its classes when stopped, so the forks cannot wait for a class to finish before being given the next one.
+     */
+    private void dispatchAllAndStop() {
+        while (!queue.isEmpty()) {
+            dispatch(leastLoadedFork(), queue.poll());
+        }
+        for (Fork fork : new ArrayList<Fork>(forks)) {
+            if (!fork.stopRequested) {
+                fork.stopRequested = true;
+                fork.processor.stop();
+            }
+        }
+    }
+
+    /**
+     * Returns the fork that should be given the next class, or null when all forks are busy.
+     */
+    private Fork idleFork() {
+        Fork best = null;
+        for (Fork fork : forks) {
+            if (!fork.stopRequested && (best == null || fork.classes.size() < best.classes.size())) {
+                best = fork;
+            }
+        }
+        if ((best == null || !best.classes.isEmpty()) && forks.size() < maxProcessors) {
+            return startFork();
+        }
+        return best != null && best.classes.size() < MAX_CLASSES_PER_PROCESSOR ? best : null;
+    }
+
+    /**
+     * Returns the fork with the least estimated duration of unfinished classes, starting a new fork when all forks have unfinished classes.
+     */
+    private Fork leastLoadedFork() {
+        Fork best = null;
+        for (Fork fork : forks) {
+            if (!fork.stopRequested && (best == null || fork.estimatedDuration() < best.estimatedDuration())) {
+                best = fork;
+            }
+        }
+        if ((best == null || best.estimatedDuration() > 0) && forks.size() < maxProcessors) {
+            return startFork();
+        }
+        return best;
+    }
+
+    private Fork startFork() {
+        Fork fork = new Fork();
+        Actor actor = actorFactory.createActor(new ForkProcessor(factory.create(), fork));
+        actors.add(actor);
+        fork.processor = actor.getProxy(TestClassProcessor.class);
+        forks.add(fork);
+        fork.processor.startProcessing(fork);
+        return fork;
+    }
+
+    private void dispatch(Fork fork, QueuedTestClass testClass) {
+        fork.classes.put(testClass.testClass.getTestClassName(), testClass);
+        fork.processor.processTestClass(testClass.testClass);
+    }
+
+    /**
+     * Called when a fork has stopped. Reports the classes that the fork started but did not finish as failed, and queues the classes that the fork did not start
+     * again, if they have not been queued again before.
+     */
+    private void stopped(Fork fork, Throwable failure) {
+        synchronized (lock) {
+            forks.remove(fork);
+            for (Map.Entry<Object, String> entry : fork.startedClasses.entrySet()) {
+                if (fork.classes.remove(entry.getValue()) != null) {
+                    resultProcessor.failure(entry.getKey(), new TestSuiteExecutionException(String.format(
+                        "Test class '%s' did not complete, as its test process stopped.", entry.getValue()), failure));
+                    resultProcessor.completed(entry.getKey(), new TestCompleteEvent(timeProvider.getCurrentTime()));
+                }
+            }
+            fork.startedClasses.clear();
+            for (QueuedTestClass testClass : fork.classes.values()) {
+                if (!testClass.requeued) {
+                    queue.add(new QueuedTestClass(testClass.testClass, testClass.estimatedDuration, testClass.sequence, true));
+                }
+            }
+            fork.classes.clear();
+            dispatchToIdleForks();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Notifies this processor when the fork's processor has stopped, which happens once its worker process has exited.
+     */
+    private class ForkProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private final Fork fork;
+
+        ForkProcessor(TestClassProcessor processor, Fork fork) {
+            this.processor = processor;
+            this.fork = fork;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            processor.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            processor.processTestClass(testClass);
+        }
+
+        public void stop() {
+            try {
+                processor.stop();
+            } catch (Throwable t) {
+                stopped(fork, t);
+                throw UncheckedException.throwAsUncheckedException(t);
+            }
+            stopped(fork, null);
+        }
+    }
+
+    /**
+     * Forwards the results of a processor, and gives the processor its next class when it finishes a class.
+     */
+    private class Fork implements TestResultProcessor {
+        // The classes given to this fork that have not finished, in the order they were given
+        private final Map<String, QueuedTestClass> classes = new LinkedHashMap<String, QueuedTestClass>();
+        private final Map<Object, String> startedClasses = new HashMap<Object, String>();
+        private TestClassProcessor processor;
+        private boolean stopRequested;
+
+        long estimatedDuration() {
+            long total = 0;
+            for (QueuedTestClass testClass : classes.values()) {
+                total += testClass.estimatedDuration;
+            }
+            return total;
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (test.isComposite() && test.getClassName() != null) {
+                synchronized (lock) {
+                    if (classes.containsKey(test.getClassName())) {
+                        startedClasses.put(test.getId(), test.getClassName());
+                    }
+                }
+            }
+            resultProcessor.started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+            synchronized (lock) {
+                String className = startedClasses.remove(testId);
+                if (className != null && classes.remove(className) != null) {
+                    dispatchToIdleForks();
+                }
+            }
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+    }
+
+    private static class QueuedTestClass implements Comparable<QueuedTestClass> {
+        private final TestClassRunInfo testClass;
+        private final long estimatedDuration;
+        private final long sequence;
+        private final boolean requeued;
+
+        QueuedTestClass(TestClassRunInfo testClass, long estimatedDuration, long sequence, boolean requeued) {
+            this.testClass = testClass;
+            this.estimatedDuration = estimatedDuration;
+            this.sequence = sequence;
+            this.requeued = requeued;
+        }
+
+        public int compareTo(QueuedTestClass other) {
+            if (estimatedDuration != other.estimatedDuration) {
+                return estimatedDuration > other.estimatedDuration ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+        }
+    }
+}
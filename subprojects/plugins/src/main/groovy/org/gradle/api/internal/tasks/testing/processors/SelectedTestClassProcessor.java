@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+import java.util.Set;
+
+/**
+ * Passes on only the selected test classes to the given processor. A nested test class is passed on when its top-level class is selected.
+ */
+public class SelectedTestClassProcessor implements TestClassProcessor {
+    private final TestClassProcessor processor;
+    private final Set<String> selectedClasses;
+
+    /**
+     * @param selectedClasses The names of the selected top-level classes.
+     */
+    public SelectedTestClassProcessor(TestClassProcessor processor, Set<String> selectedClasses) {
+        this.processor = processor;
+        this.selectedClasses = selectedClasses;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        processor.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        String className = testClass.getTestClassName();
+        int nestedSeparator = className.indexOf('$');
+        String topLevelClassName = nestedSeparator < 0 ? className : className.substring(0, nestedSeparator);
+        if (selectedClasses.contains(topLevelClassName)) {
+            processor.processTestClass(testClass);
+        }
+    }
+
+    public void stop() {
+        processor.stop();
+    }
+}
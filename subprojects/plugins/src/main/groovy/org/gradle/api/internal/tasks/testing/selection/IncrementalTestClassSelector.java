@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Selects the test classes of a test task that are affected by the changes to the test runtime classpath since the last successful run of the task.
+ * All test classes are selected when there is no such run, when the configuration of the task has changed, or when the affected classes cannot be
+ * determined from the class dependencies.
+ *
+ * <p>Dependencies that are not visible in the bytecode, such as classes loaded by name, are not detected.</p>
+ */
+public class IncrementalTestClassSelector {
+    public static final String ENABLED_PROPERTY = "org.gradle.test.incremental";
+
+    private static final Logger LOGGER = Logging.getLogger(IncrementalTestClassSelector.class);
+
+    private final String taskDisplayName;
+    private final TestClasspathSnapshotter snapshotter;
+    private final LocalTestClasspathSnapshotStore store;
+    private final byte[] configurationHash;
+    private TestClasspathSnapshot snapshot;
+
+    /**
+     * @param configuration The configuration of the test task other than its classpath that affects the test results. Any change to this configuration selects all test classes.
+     */
+    public IncrementalTestClassSelector(String taskDisplayName, TestClasspathSnapshotter snapshotter, LocalTestClasspathSnapshotStore store, Serializable configuration) {
+        this.taskDisplayName = taskDisplayName;
+        this.snapshotter = snapshotter;
+        this.store = store;
+        this.configurationHash = HashUtil.sha1(GUtil.serialize(configuration)).asByteArray();
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Takes a snapshot of the given classpath, and returns the names of the selected top-level test classes. Returns null when all test classes are selected.
+     */
+    @Nullable
+    public Set<String> selectTestClasses(Iterable<File> classpath) {
+        try {
+            snapshot = snapshotter.snapshot(classpath);
+        } catch (RuntimeException e) {
+            LOGGER.info("Running all tests of {}, as its classpath could not be analyzed.", taskDisplayName, e);
+            return null;
+        }
+
+        TestClasspathSnapshotData previous = store.get();
+        if (previous == null) {
+            LOGGER.info("Running all tests of {}, as there is no previous successful run.", taskDisplayName);
+            return null;
+        }
+        if (!Arrays.equals(previous.configurationHash, configurationHash)) {
+            LOGGER.info("Running all tests of {}, as its configuration has changed since the last successful run.", taskDisplayName);
+            return null;
+        }
+        DependentsSet affectedClasses = snapshot.getAffectedClassesSince(previous);
+        if (affectedClasses.isDependencyToAll()) {
+            LOGGER.info("Running all tests of {}, as {}.", taskDisplayName, affectedClasses.getDescription());
+            return null;
+        }
+        LOGGER.info("Running only the tests of {} affected by changes since the last successful run. {} classes are affected.", taskDisplayName, affectedClasses.getDependentClasses().size());
+        return affectedClasses.getDependentClasses();
+    }
+
+    /**
+     * Records that the test classes selected by {@link #selectTestClasses(Iterable)} ran successfully.
+     */
+    public void successfulRun() {
+        if (snapshot != null) {
+            store.put(snapshot.getData(configurationHash));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.internal.cache.SingleOperationPersistentStore;
+import org.gradle.cache.CacheRepository;
+
+//Keeps the test classpath snapshot of the last successful run of the given Test task
+public class LocalTestClasspathSnapshotStore {
+
+    private final SingleOperationPersistentStore<TestClasspathSnapshotData> store;
+
+    public LocalTestClasspathSnapshotStore(CacheRepository cacheRepository, Object scope) {
+        //Single operation store that we throw away after the operation makes the implementation simpler.
+        store = new SingleOperationPersistentStore<TestClasspathSnapshotData>(cacheRepository, scope, "local test classpath snapshot", new TestClasspathSnapshotData.Serializer());
+    }
+
+    public void put(TestClasspathSnapshotData data) {
+        store.putAndClose(data);
+    }
+
+    public TestClasspathSnapshotData get() {
+        return store.getAndClose();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DefaultDependentsSet;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependencyToAll;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The classes and other files of a test runtime classpath, with the dependencies between the classes.
+ */
+public class TestClasspathSnapshot {
+
+    private final Map<String, byte[]> classHashes;
+    private final Map<String, byte[]> resourceHashes;
+    private final ClassSetAnalysis analysis;
+
+    public TestClasspathSnapshot(Map<String, byte[]> classHashes, Map<String, byte[]> resourceHashes, ClassSetAnalysis analysis) {
+        this.classHashes = classHashes;
+        this.resourceHashes = resourceHashes;
+        this.analysis = analysis;
+    }
+
+    /**
+     * Returns the top-level classes that are affected by the changes since the given snapshot was taken: the changed classes and their transitive dependents.
+     * Returns a dependency to all when the affected classes cannot be determined, for example because a file other than a class has changed.
+     */
+    public DependentsSet getAffectedClassesSince(TestClasspathSnapshotData previous) {
+        String changedResource = findChange(resourceHashes, previous.resourceHashes);
+        if (changedResource != null) {
+            return new DependencyToAll(String.format("%s has changed", changedResource));
+        }
+
+        Set<String> changedClasses = new HashSet<String>();
+        for (Map.Entry<String, byte[]> entry : classHashes.entrySet()) {
+            byte[] previousHash = previous.classHashes.get(entry.getKey());
+            if (previousHash == null || !Arrays.equals(previousHash, entry.getValue())) {
+                //added since or changed since
+                changedClasses.add(entry.getKey());
+            }
+        }
+        for (String className : previous.classHashes.keySet()) {
+            if (!classHashes.containsKey(className)) {
+                //removed since
+                changedClasses.add(className);
+            }
+        }
+
+        Set<String> affected = new HashSet<String>();
+        for (String className : changedClasses) {
+            DependentsSet dependents = analysis.getRelevantDependents(className);
+            if (dependents.isDependencyToAll()) {
+                return new DependencyToAll(String.format("%s has changed and its dependents cannot be determined", className));
+            }
+            affected.add(topLevelClassName(className));
+            affected.addAll(dependents.getDependentClasses());
+        }
+        return new DefaultDependentsSet(affected);
+    }
+
+    public TestClasspathSnapshotData getData(byte[] configurationHash) {
+        return new TestClasspathSnapshotData(configurationHash, classHashes, resourceHashes);
+    }
+
+    private static String findChange(Map<String, byte[]> hashes, Map<String, byte[]> previousHashes) {
+        for (Map.Entry<String, byte[]> entry : hashes.entrySet()) {
+            byte[] previousHash = previousHashes.get(entry.getKey());
+            if (previousHash == null || !Arrays.equals(previousHash, entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+        for (String path : previousHashes.keySet()) {
+            if (!hashes.containsKey(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private static String topLevelClassName(String className) {
+        int nestedSeparator = className.indexOf('$');
+        return nestedSeparator < 0 ? className : className.substring(0, nestedSeparator);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.MapSerializer;
+
+import java.util.Map;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * The persistent state of a test classpath snapshot, kept between runs of a test task.
+ */
+public class TestClasspathSnapshotData {
+
+    final byte[] configurationHash;
+    final Map<String, byte[]> classHashes;
+    final Map<String, byte[]> resourceHashes;
+
+    /**
+     * @param configurationHash hash of the test task configuration that is not part of the classpath, such as the JVM arguments
+     * @param classHashes hashes of the classes on the classpath, keyed by class name
+     * @param resourceHashes hashes of the other files on the classpath, keyed by path
+     */
+    public TestClasspathSnapshotData(byte[] configurationHash, Map<String, byte[]> classHashes, Map<String, byte[]> resourceHashes) {
+        this.configurationHash = configurationHash;
+        this.classHashes = classHashes;
+        this.resourceHashes = resourceHashes;
+    }
+
+    public static class Serializer implements org.gradle.internal.serialize.Serializer<TestClasspathSnapshotData> {
+
+        private final MapSerializer<String, byte[]> mapSerializer = new MapSerializer<String, byte[]>(STRING_SERIALIZER, BYTE_ARRAY_SERIALIZER);
+
+        public TestClasspathSnapshotData read(Decoder decoder) throws Exception {
+            byte[] configurationHash = decoder.readBinary();
+            Map<String, byte[]> classHashes = mapSerializer.read(decoder);
+            Map<String, byte[]> resourceHashes = mapSerializer.read(decoder);
+            return new TestClasspathSnapshotData(configurationHash, classHashes, resourceHashes);
+        }
+
+        public void write(Encoder encoder, TestClasspathSnapshotData value) throws Exception {
+            encoder.writeBinary(value.configurationHash);
+            mapSerializer.write(encoder, value.classHashes);
+            mapSerializer.write(encoder, value.resourceHashes);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
+import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
+import org.gradle.api.internal.hash.Hasher;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.api.internal.tasks.compile.incremental.jar.CachingJarSnapshotter;
+import org.gradle.api.internal.tasks.compile.incremental.jar.JarArchive;
+import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshot;
+import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
+import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotter;
+import org.gradle.internal.Factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Takes snapshots of test runtime classpaths. The class analysis is shared with incremental Java compilation, so the analysis of a class or jar is cached across builds
+ * and across tasks.
+ */
+public class TestClasspathSnapshotter {
+
+    private final FileOperations fileOperations;
+    private final Hasher hasher;
+    private final ClassAnalysisCache classAnalysisCache;
+    private final DefaultClassDependenciesAnalyzer analyzer;
+    private final JarSnapshotter jarSnapshotter;
+
+    public TestClasspathSnapshotter(FileOperations fileOperations, ClassAnalysisCache classAnalysisCache, JarSnapshotCache jarSnapshotCache) {
+        this.fileOperations = fileOperations;
+        this.hasher = FileHashAlgorithm.fromSystemProperty().createHasher();
+        this.classAnalysisCache = classAnalysisCache;
+        this.analyzer = new DefaultClassDependenciesAnalyzer();
+        this.jarSnapshotter = new CachingJarSnapshotter(hasher, new CachingClassDependenciesAnalyzer(analyzer, hasher, classAnalysisCache), jarSnapshotCache, FilesSnapshotSet.EMPTY);
+    }
+
+    /**
+     * Takes a snapshot of the given classpath. When a class or other file occurs in several classpath entries, the first occurrence is used, as a ClassLoader would.
+     */
+    public TestClasspathSnapshot snapshot(Iterable<File> classpath) {
+        Map<String, byte[]> classHashes = new HashMap<String, byte[]>();
+        Map<String, byte[]> resourceHashes = new HashMap<String, byte[]>();
+        List<ClassSetAnalysisData> analyses = new ArrayList<ClassSetAnalysisData>();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                analyses.add(snapshotDirectory(file, classHashes, resourceHashes));
+            } else if (file.isFile() && (file.getName().endsWith(".jar") || file.getName().endsWith(".zip"))) {
+                analyses.add(snapshotJar(file, classHashes, resourceHashes));
+            } else if (file.isFile()) {
+                putIfAbsent(resourceHashes, file.getAbsolutePath(), hasher.hash(file));
+            }
+        }
+        return new TestClasspathSnapshot(classHashes, resourceHashes, new ClassSetAnalysis(ClassSetAnalysisData.merge(analyses)));
+    }
+
+    private ClassSetAnalysisData snapshotDirectory(File dir, final Map<String, byte[]> classHashes, final Map<String, byte[]> resourceHashes) {
+        final ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator("");
+        fileOperations.fileTree(dir).visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                final File file = fileDetails.getFile();
+                String path = fileDetails.getPath();
+                byte[] hash = hasher.hash(file);
+                if (!path.endsWith(".class")) {
+                    putIfAbsent(resourceHashes, path, hash);
+                    return;
+                }
+                final String className = path.replaceAll("/", ".").replaceAll("\\.class$", "");
+                ClassAnalysis analysis = classAnalysisCache.get(hash, new Factory<ClassAnalysis>() {
+                    public ClassAnalysis create() {
+                        return analyzer.getClassAnalysis(className, file);
+                    }
+                });
+                accumulator.addClass(className, analysis.isDependencyToAll(), analysis.getClassDependencies());
+                putIfAbsent(classHashes, className, hash);
+            }
+        });
+        return new ClassSetAnalysisData(accumulator.getDependentsMap());
+    }
+
+    private ClassSetAnalysisData snapshotJar(File jar, Map<String, byte[]> classHashes, Map<String, byte[]> resourceHashes) {
+        JarSnapshot snapshot = jarSnapshotter.createSnapshot(new JarArchive(jar, fileOperations.zipTree(jar)));
+        for (Map.Entry<String, byte[]> entry : snapshot.getHashes().entrySet()) {
+            putIfAbsent(classHashes, entry.getKey(), entry.getValue());
+        }
+
+        // The jar snapshot only contains the classes, so use the checksums from the zip directory for the other files
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && !entry.getName().endsWith(".class")) {
+                        putIfAbsent(resourceHashes, entry.getName(), ByteBuffer.allocate(16).putLong(entry.getCrc()).putLong(entry.getSize()).array());
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not read the contents of %s.", jar), e);
+        }
+        return snapshot.getAnalysis().getData();
+    }
+
+    private static void putIfAbsent(Map<String, byte[]> hashes, String key, byte[] hash) {
+        if (!hashes.containsKey(key)) {
+            hashes.put(key, hash);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects the test events of a test worker into batches, and sends each batch to the build process as a single message. A batch is sent once it
+ * holds the maximum number of events, or once the maximum delay has passed since its first event, so that the progress of slow tests is still
+ * reported promptly. Events are sent in the order they are received.
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class BatchingTestResultProcessor implements TestResultProcessor, Stoppable {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 100;
+
+    private final RemoteTestResultProcessor target;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final Lock lock = new ReentrantLock();
+    private final Condition batchStarted = lock.newCondition();
+    private final StoppableExecutor executor;
+    private TestEventBatch batch = new TestEventBatch();
+    private boolean stopped;
+
+    public BatchingTestResultProcessor(RemoteTestResultProcessor target, ExecutorFactory executorFactory) {
+        this(target, executorFactory, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public BatchingTestResultProcessor(RemoteTestResultProcessor target, ExecutorFactory executorFactory, int maxBatchSize, long maxDelayMillis) {
+        this.target = target;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        executor = executorFactory.create("Test event batcher");
+        executor.execute(new Runnable() {
+            public void run() {
+                sendDelayedBatches();
+            }
+        });
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        lock.lock();
+        try {
+            batch.started(test, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        lock.lock();
+        try {
+            batch.completed(testId, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        lock.lock();
+        try {
+            batch.output(testId, event);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void failure(Object testId, Throwable result) {
+        lock.lock();
+        try {
+            batch.failure(testId, result);
+            eventAdded();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void eventAdded() {
+        if (batch.size() == 1) {
+            batchStarted.signalAll();
+        }
+        if (batch.size() >= maxBatchSize) {
+            send();
+        }
+    }
+
+    private void send() {
+        if (!batch.isEmpty()) {
+            target.process(batch);
+            batch = new TestEventBatch();
+        }
+    }
+
+    private void sendDelayedBatches() {
+        lock.lock();
+        try {
+            while (!stopped) {
+                if (batch.isEmpty()) {
+                    batchStarted.await();
+                } else {
+                    TestEventBatch current = batch;
+                    batchStarted.await(maxDelayMillis, TimeUnit.MILLISECONDS);
+                    if (batch == current) {
+                        send();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends any pending events, and stops sending batches in the background.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            send();
+            batchStarted.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.stop();
+    }
+}
@@ -30,6 +30,12 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 import java.io.File;
 
 public class ForkingTestClassProcessor implements TestClassProcessor {
+    /**
+     * When set, tests run in worker processes that are kept by the daemon and reused by later test tasks with the same JVM options.
+     * Each test task still gets its own application ClassLoader, but the test classes are not loaded by the system ClassLoader.
+     */
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseworkers";
+
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
@@ -64,6 +70,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         builder.setBaseName("Gradle Test Executor");
         builder.applicationClasspath(classPath);
         builder.setLoadApplicationInSystemClassLoader(true);
+        builder.setReusable(Boolean.getBoolean(REUSE_WORKERS_PROPERTY));
         builder.worker(new TestWorker(processorFactory));
         options.copyTo(builder.getJavaCommand());
         buildConfigAction.execute(builder);
@@ -73,7 +80,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
 
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(TestEventSerializer.create());
-        connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(RemoteTestResultProcessor.class, new ReplayingTestResultProcessor(resultProcessor));
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
@@ -86,4 +93,16 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             workerProcess.waitForStop();
         }
     }
+
+    private static class ReplayingTestResultProcessor implements RemoteTestResultProcessor {
+        private final TestResultProcessor resultProcessor;
+
+        public ReplayingTestResultProcessor(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor;
+        }
+
+        public void process(TestEventBatch events) {
+            events.replayTo(resultProcessor);
+        }
+    }
 }
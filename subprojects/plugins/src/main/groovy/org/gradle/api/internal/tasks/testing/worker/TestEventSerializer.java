@@ -22,6 +22,11 @@ import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.internal.serialize.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class TestEventSerializer {
     public static Serializer<Object[]> create() {
         BaseSerializerFactory factory = new BaseSerializerFactory();
@@ -37,6 +42,7 @@ public class TestEventSerializer {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, factory.getSerializerFor(Throwable.class));
+        registry.register(TestEventBatch.class, new TestEventBatchSerializer(registry.build(), factory.getSerializerFor(Throwable.class)));
         return new ObjectArraySerializer(registry.build());
     }
 
@@ -206,4 +212,224 @@ public class TestEventSerializer {
             encoder.writeString(value.getName());
         }
     }
+
+    /**
+     * Writes a batch of events compactly. Test ids and strings that occur more than once in a batch are written once, and referred to by index
+     * afterwards. Times are written as the difference from the previous time in the batch.
+     */
+    private static class TestEventBatchSerializer implements Serializer<TestEventBatch> {
+        private static final byte OTHER_DESCRIPTOR = 0;
+        private static final byte TEST_DESCRIPTOR = 1;
+        private static final byte TEST_METHOD_DESCRIPTOR = 2;
+        private static final byte TEST_CLASS_DESCRIPTOR = 3;
+        private static final byte TEST_SUITE_DESCRIPTOR = 4;
+        private static final byte WORKER_SUITE_DESCRIPTOR = 5;
+        private static final TestResult.ResultType[] RESULT_TYPES = TestResult.ResultType.values();
+        private static final TestOutputEvent.Destination[] DESTINATIONS = TestOutputEvent.Destination.values();
+
+        private final Serializer<Object> objectSerializer;
+        private final Serializer<Throwable> throwableSerializer;
+
+        private TestEventBatchSerializer(Serializer<Object> objectSerializer, Serializer<Throwable> throwableSerializer) {
+            this.objectSerializer = objectSerializer;
+            this.throwableSerializer = throwableSerializer;
+        }
+
+        public TestEventBatch read(Decoder decoder) throws Exception {
+            BatchReader reader = new BatchReader(decoder);
+            TestEventBatch batch = new TestEventBatch();
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                byte type = decoder.readByte();
+                switch (type) {
+                    case TestEventBatch.STARTED:
+                        TestDescriptorInternal descriptor = readDescriptor(reader);
+                        long startTime = reader.readTime();
+                        Object parentId = reader.readId();
+                        batch.started(descriptor, new TestStartEvent(startTime, parentId));
+                        break;
+                    case TestEventBatch.COMPLETED:
+                        Object completedId = reader.readId();
+                        long endTime = reader.readTime();
+                        int resultType = decoder.readSmallInt();
+                        batch.completed(completedId, new TestCompleteEvent(endTime, resultType == 0 ? null : RESULT_TYPES[resultType - 1]));
+                        break;
+                    case TestEventBatch.OUTPUT:
+                        Object outputId = reader.readId();
+                        TestOutputEvent.Destination destination = DESTINATIONS[decoder.readSmallInt()];
+                        batch.output(outputId, new DefaultTestOutputEvent(destination, decoder.readString()));
+                        break;
+                    case TestEventBatch.FAILURE:
+                        Object failureId = reader.readId();
+                        batch.failure(failureId, throwableSerializer.read(decoder));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unexpected test event type %d found.", type));
+                }
+            }
+            return batch;
+        }
+
+        private TestDescriptorInternal readDescriptor(BatchReader reader) throws Exception {
+            byte kind = reader.decoder.readByte();
+            if (kind == OTHER_DESCRIPTOR) {
+                return (TestDescriptorInternal) objectSerializer.read(reader.decoder);
+            }
+            Object id = reader.readId();
+            switch (kind) {
+                case TEST_DESCRIPTOR:
+                    return new DefaultTestDescriptor(id, reader.readString(), reader.readString());
+                case TEST_METHOD_DESCRIPTOR:
+                    return new DefaultTestMethodDescriptor(id, reader.readString(), reader.readString());
+                case TEST_CLASS_DESCRIPTOR:
+                    return new DefaultTestClassDescriptor(id, reader.readString());
+                case TEST_SUITE_DESCRIPTOR:
+                    return new DefaultTestSuiteDescriptor(id, reader.readString());
+                case WORKER_SUITE_DESCRIPTOR:
+                    return new WorkerTestClassProcessor.WorkerTestSuiteDescriptor(id, reader.readString());
+                default:
+                    throw new IllegalArgumentException(String.format("Unexpected test descriptor type %d found.", kind));
+            }
+        }
+
+        public void write(Encoder encoder, TestEventBatch value) throws Exception {
+            BatchWriter writer = new BatchWriter(encoder);
+            List<TestEventBatch.Event> events = value.getEvents();
+            encoder.writeSmallInt(events.size());
+            for (TestEventBatch.Event event : events) {
+                encoder.writeByte(event.type);
+                switch (event.type) {
+                    case TestEventBatch.STARTED:
+                        TestStartEvent startEvent = (TestStartEvent) event.value;
+                        writeDescriptor(writer, event.descriptor);
+                        writer.writeTime(startEvent.getStartTime());
+                        writer.writeId(startEvent.getParentId());
+                        break;
+                    case TestEventBatch.COMPLETED:
+                        TestCompleteEvent completeEvent = (TestCompleteEvent) event.value;
+                        writer.writeId(event.testId);
+                        writer.writeTime(completeEvent.getEndTime());
+                        encoder.writeSmallInt(completeEvent.getResultType() == null ? 0 : completeEvent.getResultType().ordinal() + 1);
+                        break;
+                    case TestEventBatch.OUTPUT:
+                        TestOutputEvent outputEvent = (TestOutputEvent) event.value;
+                        writer.writeId(event.testId);
+                        encoder.writeSmallInt(outputEvent.getDestination().ordinal());
+                        encoder.writeString(outputEvent.getMessage());
+                        break;
+                    case TestEventBatch.FAILURE:
+                        writer.writeId(event.testId);
+                        throwableSerializer.write(encoder, (Throwable) event.value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unexpected test event type %d found.", event.type));
+                }
+            }
+        }
+
+        private void writeDescriptor(BatchWriter writer, TestDescriptorInternal descriptor) throws Exception {
+            Class<?> type = descriptor.getClass();
+            if (type == DefaultTestDescriptor.class || type == DefaultTestMethodDescriptor.class) {
+                writer.encoder.writeByte(type == DefaultTestDescriptor.class ? TEST_DESCRIPTOR : TEST_METHOD_DESCRIPTOR);
+                writer.writeId(descriptor.getId());
+                writer.writeString(descriptor.getClassName());
+                writer.writeString(descriptor.getName());
+            } else if (type == DefaultTestClassDescriptor.class || type == DefaultTestSuiteDescriptor.class || type == WorkerTestClassProcessor.WorkerTestSuiteDescriptor.class) {
+                writer.encoder.writeByte(type == DefaultTestClassDescriptor.class ? TEST_CLASS_DESCRIPTOR : type == DefaultTestSuiteDescriptor.class ? TEST_SUITE_DESCRIPTOR : WORKER_SUITE_DESCRIPTOR);
+                writer.writeId(descriptor.getId());
+                writer.writeString(descriptor.getName());
+            } else {
+                writer.encoder.writeByte(OTHER_DESCRIPTOR);
+                objectSerializer.write(writer.encoder, descriptor);
+            }
+        }
+
+        private static class BatchWriter {
+            final Encoder encoder;
+            final Map<Object, Integer> ids = new HashMap<Object, Integer>();
+            final Map<String, Integer> strings = new HashMap<String, Integer>();
+            long previousTime;
+
+            BatchWriter(Encoder encoder) {
+                this.encoder = encoder;
+            }
+
+            void writeId(Object id) throws Exception {
+                if (id == null) {
+                    encoder.writeSmallInt(0);
+                    return;
+                }
+                Integer index = ids.get(id);
+                if (index != null) {
+                    encoder.writeSmallInt(index);
+                    return;
+                }
+                index = ids.size() + 1;
+                ids.put(id, index);
+                encoder.writeSmallInt(index);
+                CompositeIdGenerator.CompositeId compositeId = (CompositeIdGenerator.CompositeId) id;
+                encoder.writeSmallLong((Long) compositeId.getScope());
+                encoder.writeSmallLong((Long) compositeId.getId());
+            }
+
+            void writeString(String value) throws Exception {
+                Integer index = strings.get(value);
+                if (index != null) {
+                    encoder.writeSmallInt(index);
+                    return;
+                }
+                index = strings.size();
+                strings.put(value, index);
+                encoder.writeSmallInt(index);
+                encoder.writeString(value);
+            }
+
+            void writeTime(long time) throws Exception {
+                long delta = time - previousTime;
+                previousTime = time;
+                encoder.writeSmallLong((delta << 1) ^ (delta >> 63));
+            }
+        }
+
+        private static class BatchReader {
+            final Decoder decoder;
+            final List<Object> ids = new ArrayList<Object>();
+            final List<String> strings = new ArrayList<String>();
+            long previousTime;
+
+            BatchReader(Decoder decoder) {
+                this.decoder = decoder;
+            }
+
+            Object readId() throws Exception {
+                int index = decoder.readSmallInt();
+                if (index == 0) {
+                    return null;
+                }
+                if (index <= ids.size()) {
+                    return ids.get(index - 1);
+                }
+                Object id = new CompositeIdGenerator.CompositeId(decoder.readSmallLong(), decoder.readSmallLong());
+                ids.add(id);
+                return id;
+            }
+
+            String readString() throws Exception {
+                int index = decoder.readSmallInt();
+                if (index < strings.size()) {
+                    return strings.get(index);
+                }
+                String value = decoder.readString();
+                strings.add(value);
+                return value;
+            }
+
+            long readTime() throws Exception {
+                long zigZag = decoder.readSmallLong();
+                long delta = (zigZag >>> 1) ^ -(zigZag & 1);
+                previousTime += delta;
+                return previousTime;
+            }
+        }
+    }
 }
@@ -22,16 +22,19 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Incubating;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.FileTreeElementComparator;
 import org.gradle.api.internal.file.FileTreeElementHasher;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.options.Option;
 import org.gradle.api.internal.tasks.testing.DefaultTestTaskReports;
 import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassScanCache;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -39,9 +42,13 @@ import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
 import org.gradle.api.internal.tasks.testing.junit.result.*;
 import org.gradle.api.internal.tasks.testing.logging.*;
+import org.gradle.api.internal.tasks.testing.processors.DurationBalancedTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.results.StateTrackingTestResultProcessor;
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.results.TestListenerInternal;
+import org.gradle.api.internal.tasks.testing.selection.IncrementalTestClassSelector;
+import org.gradle.api.internal.tasks.testing.selection.LocalTestClasspathSnapshotStore;
+import org.gradle.api.internal.tasks.testing.selection.TestClasspathSnapshotter;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
@@ -52,8 +59,10 @@ import org.gradle.api.tasks.testing.logging.TestLogging;
 import org.gradle.api.tasks.testing.logging.TestLoggingContainer;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.cache.CacheRepository;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.reflect.Instantiator;
@@ -66,6 +75,7 @@ import org.gradle.process.JavaForkOptions;
 import org.gradle.process.ProcessForkOptions;
 import org.gradle.process.internal.DefaultJavaForkOptions;
 import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.CollectionUtils;
 import org.gradle.util.ConfigureUtil;
 
 import javax.inject.Inject;
@@ -177,6 +187,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected ClassLoaderCache getClassLoaderCache() {
         throw new UnsupportedOperationException();
@@ -187,6 +202,21 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected GeneralCompileCaches getGeneralCompileCaches() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected CacheRepository getCacheRepository() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Inject
+    protected TestClassScanCache getTestClassScanCache() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected FileResolver getFileResolver() {
         throw new UnsupportedOperationException();
@@ -496,11 +526,14 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestEventLogger eventLogger = new TestEventLogger(getTextOutputFactory(), currentLevel, levelLogging, exceptionFormatter);
         addTestListener(eventLogger);
         addTestOutputListener(eventLogger);
-        if (getFilter().isFailOnNoMatchingTests() && !getFilter().getIncludePatterns().isEmpty()) {
+        IncrementalTestClassSelector testClassSelector = IncrementalTestClassSelector.isEnabled() ? createTestClassSelector() : null;
+        Set<String> selectedTestClasses = testClassSelector != null ? testClassSelector.selectTestClasses(getTestRuntimeClasspath()) : null;
+        if (getFilter().isFailOnNoMatchingTests() && !getFilter().getIncludePatterns().isEmpty() && selectedTestClasses == null) {
             addTestListener(new NoMatchingTestsReporter("No tests found for given includes: " + getFilter().getIncludePatterns()));
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousTestClassDurations = DurationBalancedTestClassProcessor.isEnabled() && getMaxParallelForks() > 1 ? readTestClassDurations(binaryResultsDir) : null;
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -521,7 +554,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), previousTestClassDurations, selectedTestClasses);
         }
 
         try {
@@ -540,7 +573,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getExecutorFactory());
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -548,7 +581,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getExecutorFactory());
                 binary2JUnitXmlReportGenerator.generate();
             }
 
@@ -566,7 +599,34 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         if (testCountLogger.hadFailures()) {
             handleTestFailures();
+        } else if (testClassSelector != null) {
+            testClassSelector.successfulRun();
+        }
+    }
+
+    private IncrementalTestClassSelector createTestClassSelector() {
+        GeneralCompileCaches compileCaches = getGeneralCompileCaches();
+        TestClasspathSnapshotter snapshotter = new TestClasspathSnapshotter((FileOperations) getProject(), compileCaches.getClassAnalysisCache(), compileCaches.getJarSnapshotCache());
+        LocalTestClasspathSnapshotStore store = new LocalTestClasspathSnapshotStore(getCacheRepository(), this);
+        ArrayList<Object> configuration = new ArrayList<Object>();
+        configuration.add(getExecutable());
+        configuration.add(getWorkingDir());
+        configuration.add(getAllJvmArgs());
+        configuration.add(new ArrayList<String>(getIncludes()));
+        configuration.add(new ArrayList<String>(getExcludes()));
+        configuration.add(isScanForTestClasses());
+        // Includes the test framework options and the test filter
+        configuration.add(getTestFramework().getProcessorFactory());
+        return new IncrementalTestClassSelector(toString(), snapshotter, store, configuration);
+    }
+
+    private Iterable<File> getTestRuntimeClasspath() {
+        List<File> classpath = new ArrayList<File>();
+        if (getTestClassesDir() != null) {
+            classpath.add(getTestClassesDir());
         }
+        CollectionUtils.addAll(classpath, getClasspath());
+        return classpath;
     }
 
     /**
@@ -909,7 +969,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
      * @param testFrameworkConfigure A closure used to configure the JUnit options.
      */
     public void useJUnit(Closure testFrameworkConfigure) {
-        useTestFramework(new JUnitTestFramework(this, filter, getClassLoaderCache()), testFrameworkConfigure);
+        useTestFramework(new JUnitTestFramework(this, filter, getClassLoaderCache(), getTestClassScanCache()), testFrameworkConfigure);
     }
 
     /**
@@ -926,7 +986,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
      * @param testFrameworkConfigure A closure used to configure the TestNG options.
      */
     public void useTestNG(Closure testFrameworkConfigure) {
-        useTestFramework(new TestNGTestFramework(this, this.filter, getInstantiator(), getClassLoaderCache()), testFrameworkConfigure);
+        useTestFramework(new TestNGTestFramework(this, this.filter, getInstantiator(), getClassLoaderCache(), getTestClassScanCache()), testFrameworkConfigure);
     }
 
     /**
@@ -1106,6 +1166,22 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         action.execute(filter);
     }
 
+    private Map<String, Long> readTestClassDurations(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        TestResultSerializer serializer = new TestResultSerializer(binaryResultsDir);
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                }
+            });
+        } catch (Exception e) {
+            getLogger().info("Could not read the test class durations of the previous run from {}.", binaryResultsDir, e);
+            durations.clear();
+        }
+        return durations;
+    }
+
     // only way I know of to determine current log level
     private LogLevel getCurrentLogLevel() {
         for (LogLevel level : LogLevel.values()) {
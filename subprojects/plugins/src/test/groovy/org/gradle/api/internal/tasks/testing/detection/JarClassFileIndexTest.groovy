@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class JarClassFileIndexTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp
+    def index = new JarClassFileIndex()
+
+    def cleanup() {
+        index.stop()
+    }
+
+    def "reads class files from library jars"() {
+        def jar = jar("lib.jar", "org/a/A.class": "a", "org/a/b/B.class": "b", "C.class": "c")
+
+        when:
+        index.addLibraryJar(jar)
+
+        then:
+        new String(index.getClassFile("org/a/A")) == "a"
+        new String(index.getClassFile("org/a/b/B")) == "b"
+        new String(index.getClassFile("C")) == "c"
+        index.getClassFile("org/a/Missing") == null
+        index.getClassFile("org/other/A") == null
+    }
+
+    def "jars added first take precedence"() {
+        index.addLibraryJar(jar("first.jar", "org/A.class": "first"))
+        index.addLibraryJar(jar("second.jar", "org/A.class": "second", "org/B.class": "b"))
+
+        expect:
+        new String(index.getClassFile("org/A")) == "first"
+        new String(index.getClassFile("org/B")) == "b"
+    }
+
+    def "does not index packages that only contain resources"() {
+        index.addLibraryJar(jar("lib.jar", "org/a/resource.txt": "r", "META-INF/org/B.class": "b"))
+
+        expect:
+        index.getClassFile("org/a/resource") == null
+        index.getClassFile("META-INF/org/B") == null
+    }
+
+    def "forgets jars when stopped"() {
+        index.addLibraryJar(jar("lib.jar", "org/A.class": "a"))
+
+        when:
+        index.stop()
+
+        then:
+        index.getClassFile("org/A") == null
+    }
+
+    private File jar(Map<String, String> entries, String name) {
+        def contents = tmp.createDir("${name}-contents")
+        entries.each { path, text -> contents.file(path).text = text }
+        def jar = tmp.file(name)
+        contents.zipTo(jar)
+        return jar
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ReportWriterPoolTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "runs all actions"() {
+        def pool = new ReportWriterPool(executorFactory, "test", 4)
+        def completed = new CopyOnWriteArrayList()
+
+        when:
+        100.times { index ->
+            pool.execute { completed << index }
+        }
+        pool.complete()
+
+        then:
+        completed.sort() == (0..<100).toList()
+    }
+
+    def "rethrows failure of an action"() {
+        def pool = new ReportWriterPool(executorFactory, "test", 4)
+        def failure = new RuntimeException("broken")
+
+        when:
+        pool.execute { throw failure }
+        pool.complete()
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def "runs actions on the calling thread when using a single thread"() {
+        def pool = new ReportWriterPool(executorFactory, "test", 1)
+        def threads = []
+
+        when:
+        3.times {
+            pool.execute { threads << Thread.currentThread() }
+        }
+        pool.complete()
+
+        then:
+        threads == [Thread.currentThread()] * 3
+    }
+}
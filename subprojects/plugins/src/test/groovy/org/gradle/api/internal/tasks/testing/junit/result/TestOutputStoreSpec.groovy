@@ -98,6 +98,31 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "reads output of class and tests that is written in multiple chunks"() {
+        def large = "x" * 20000
+
+        when:
+        def writer = output.writer()
+        10.times {
+            writer.onOutput(1, output(StdOut, "[class-$it]"))
+            writer.onOutput(1, 1, output(StdOut, "[test-1-$it]$large"))
+            writer.onOutput(2, 1, output(StdOut, "[other-$it]$large"))
+            writer.onOutput(1, 2, output(StdOut, "[test-2-$it]"))
+        }
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == (0..<10).collect { "[class-$it][test-1-$it]$large[test-2-$it]" }.join("")
+        collectOutput(reader, 1, StdOut) == (0..<10).collect { "[class-$it]" }.join("")
+        collectOutput(reader, 1, 1, StdOut) == (0..<10).collect { "[test-1-$it]$large" }.join("")
+        collectOutput(reader, 1, 2, StdOut) == (0..<10).collect { "[test-2-$it]" }.join("")
+        collectAllOutput(reader, 2, StdOut) == (0..<10).collect { "[other-$it]$large" }.join("")
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.*
+import org.gradle.internal.Factory
+import org.gradle.internal.TimeProvider
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import spock.lang.Specification
+
+class DurationBalancedTestClassProcessorTest extends Specification {
+    final TestResultProcessor resultProcessor = Mock()
+    final TimeProvider timeProvider = Mock()
+    final List<RecordingProcessor> forks = []
+    final List<Actor> actors = []
+    final Set<Integer> crashingForks = []
+    final Factory<TestClassProcessor> factory = { def fork = new RecordingProcessor(crashes: crashingForks.contains(forks.size())); forks << fork; fork } as Factory
+    final ActorFactory actorFactory = [createActor: { Object target -> actor(target) }] as ActorFactory
+
+    def "starts processors on demand and gives each a limited number of classes"() {
+        def processor = processor(2, [:])
+
+        when:
+        ["A", "B", "C", "D", "E"].each { processor.processTestClass(testClass(it)) }
+
+        then:
+        forks.size() == 2
+        forks[0].classes == ["A", "C"]
+        forks[1].classes == ["B", "D"]
+
+        when:
+        finish(forks[1], "B")
+
+        then:
+        forks[0].classes == ["A", "C"]
+        forks[1].classes == ["B", "D", "E"]
+    }
+
+    def "gives the longest queued class to the next processor to finish a class"() {
+        def processor = processor(2, [E: 10L, F: 1000L, G: 100L])
+
+        given:
+        ["A", "B", "C", "D", "E", "F", "G"].each { processor.processTestClass(testClass(it)) }
+
+        when:
+        finish(forks[0], "A")
+
+        then:
+        forks[0].classes == ["A", "C", "F"]
+
+        when:
+        finish(forks[0], "F")
+        finish(forks[1], "B")
+
+        then:
+        forks[0].classes == ["A", "C", "F", "G"]
+        forks[1].classes == ["B", "D", "E"]
+    }
+
+    def "ignores results of tests that are not classes given to the processor"() {
+        def processor = processor(1, [:])
+
+        given:
+        ["A", "B", "C"].each { processor.processTestClass(testClass(it)) }
+
+        when:
+        finish(forks[0], "C")
+        forks[0].resultProcessor.started(new DefaultTestDescriptor("method", "A", "method"), new TestStartEvent(0))
+        forks[0].resultProcessor.completed("method", new TestCompleteEvent(0))
+
+        then:
+        forks[0].classes == ["A", "B"]
+    }
+
+    def "gives remaining classes to the processors with the least estimated work when stopped"() {
+        def processor = processor(2, [A: 100L, B: 10L, C: 50L, D: 40L, E: 30L, F: 20L, G: 5L, H: 200L])
+
+        given:
+        ["A", "B", "C", "D", "E", "F", "G", "H"].each { processor.processTestClass(testClass(it)) }
+        finish(forks[0], "A")
+
+        when:
+        processor.stop()
+
+        then:
+        forks.size() == 2
+        forks[0].classes == ["A", "C", "H"]
+        forks[1].classes == ["B", "D", "E", "F", "G"]
+        forks.every { it.stopped }
+    }
+
+    def "does not wait for classes to finish when processors report results only when stopped"() {
+        def processor = processor(2, [:])
+
+        given:
+        ["A", "B", "C", "D", "E", "F", "G"].each { processor.processTestClass(testClass(it)) }
+
+        when:
+        processor.stop()
+
+        then:
+        forks.size() == 2
+        forks[0].classes == ["A", "C", "E", "G"]
+        forks[1].classes == ["B", "D", "F"]
+        forks.every { it.stopped && it.finished == it.classes as Set }
+    }
+
+    def "gives the classes of a processor that stops without finishing them to another processor"() {
+        def processor = processor(2, [:])
+        crashingForks << 0
+
+        when:
+        ["A", "B", "C", "D"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        forks.size() == 3
+        forks[0].classes == ["A", "C"]
+        forks[1].classes == ["B", "D"]
+        forks[2].classes == ["A", "C"]
+        forks.every { it.stopped }
+    }
+
+    def "gives a class to another processor once only"() {
+        def processor = processor(2, [:])
+        crashingForks.addAll([0, 2])
+
+        when:
+        ["A", "B", "C", "D"].each { processor.processTestClass(testClass(it)) }
+        processor.stop()
+
+        then:
+        forks.size() == 3
+        forks[2].classes == ["A", "C"]
+        forks.every { it.stopped }
+    }
+
+    def "reports classes that started on a processor that stops without finishing them as failed"() {
+        def processor = processor(2, [:])
+        crashingForks << 0
+        def test = new DefaultTestClassDescriptor("id", "A")
+
+        given:
+        ["A", "B", "C", "D"].each { processor.processTestClass(testClass(it)) }
+        forks[0].resultProcessor.started(test, new TestStartEvent(0))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * resultProcessor.failure("id", { it instanceof TestSuiteExecutionException && it.message == "Test class 'A' did not complete, as its test process stopped." })
+        1 * resultProcessor.completed("id", _)
+
+        and:
+        forks.size() == 3
+        forks[2].classes == ["C"]
+        forks.every { it.stopped }
+    }
+
+    def "estimates the duration of a new class using the average duration of the previous run"() {
+        def processor = processor(2, [A: 100L, B: 50L, C: 10L, D: 10L, E: 20L])
+
+        when:
+        ["A", "B", "C", "D", "E", "New"].each { processor.processTestClass(testClass(it)) }
+        finish(forks[0], "A")
+
+        then:
+        forks[0].classes == ["A", "C", "New"]
+    }
+
+    def "forwards results to the result processor"() {
+        def processor = processor(2, [:])
+        def test = new DefaultTestClassDescriptor("id", "A")
+        def startEvent = new TestStartEvent(0)
+        def completeEvent = new TestCompleteEvent(0)
+        def failure = new RuntimeException()
+
+        given:
+        processor.processTestClass(testClass("A"))
+
+        when:
+        def results = forks[0].resultProcessor
+        results.started(test, startEvent)
+        results.failure("id", failure)
+        results.completed("id", completeEvent)
+
+        then:
+        1 * resultProcessor.started(test, startEvent)
+        1 * resultProcessor.failure("id", failure)
+        1 * resultProcessor.completed("id", completeEvent)
+        0 * resultProcessor._
+    }
+
+    def "does nothing when no tests processed"() {
+        def processor = processor(2, [:])
+
+        when:
+        processor.stop()
+
+        then:
+        forks.empty
+        actors.size() == 1
+    }
+
+    def processor(int maxProcessors, Map<String, Long> durations) {
+        def processor = new DurationBalancedTestClassProcessor(maxProcessors, factory, actorFactory, timeProvider, durations)
+        processor.startProcessing(resultProcessor)
+        return processor
+    }
+
+    def testClass(String name) {
+        return new DefaultTestClassRunInfo(name)
+    }
+
+    static def finish(RecordingProcessor fork, String className) {
+        fork.finished << className
+        def id = "${fork.hashCode()}:$className"
+        fork.resultProcessor.started(new DefaultTestClassDescriptor(id, className), new TestStartEvent(0))
+        fork.resultProcessor.completed(id, new TestCompleteEvent(0))
+    }
+
+    def actor(Object target) {
+        def actor = [getProxy: { Class type -> target }, stop: {}] as Actor
+        actors << actor
+        return actor
+    }
+
+    /**
+     * Records the classes it is given. Like a worker process, finishes the classes it has not finished when stopped, unless it crashes.
+     */
+    static class RecordingProcessor implements TestClassProcessor {
+        TestResultProcessor resultProcessor
+        List<String> classes = []
+        Set<String> finished = []
+        boolean crashes
+        boolean stopped
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            classes << testClass.testClassName
+        }
+
+        void stop() {
+            stopped = true
+            if (!crashes) {
+                (classes - finished).each { finish(this, it) }
+            }
+        }
+    }
+}
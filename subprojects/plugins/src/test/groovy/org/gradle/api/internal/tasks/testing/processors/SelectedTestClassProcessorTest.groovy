@@ -0,0 +1,61 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import spock.lang.Specification
+
+class SelectedTestClassProcessorTest extends Specification {
+    private final TestClassProcessor target = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final SelectedTestClassProcessor processor = new SelectedTestClassProcessor(target, ["org.gradle.ATest", "BTest"] as Set)
+
+    def "passes on selected test classes"() {
+        def selected = new DefaultTestClassRunInfo("org.gradle.ATest")
+        def nested = new DefaultTestClassRunInfo("org.gradle.ATest\$Nested")
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(selected)
+        processor.processTestClass(nested)
+        processor.stop()
+
+        then:
+        1 * target.startProcessing(resultProcessor)
+
+        then:
+        1 * target.processTestClass(selected)
+        1 * target.processTestClass(nested)
+
+        then:
+        1 * target.stop()
+        0 * target._
+    }
+
+    def "ignores test classes that are not selected"() {
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo("org.gradle.BTest"))
+        processor.processTestClass(new DefaultTestClassRunInfo("org.gradle.ATestSuite"))
+        processor.processTestClass(new DefaultTestClassRunInfo("BTestSuite\$BTest"))
+
+        then:
+        0 * target._
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.selection
+
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData
+import org.gradle.api.internal.tasks.compile.incremental.deps.DefaultDependentsSet
+import spock.lang.Specification
+
+import static org.gradle.api.internal.tasks.compile.incremental.deps.DefaultDependentsSet.dependents
+
+class TestClasspathSnapshotTest extends Specification {
+    def analysis = new ClassSetAnalysis(new ClassSetAnalysisData([
+            "A": dependents("B", "ATest"), "B": dependents("BTest"), "ATest": dependents(), "BTest": dependents(),
+            "C": dependents("CTest\$1"), "CTest\$1": dependents("CTest"), "CTest": dependents(),
+            "D": new DefaultDependentsSet(true, ["DTest"]), "DTest": dependents()
+    ]))
+    def classes = ["A": hash(1), "B": hash(2), "ATest": hash(3), "BTest": hash(4), "C": hash(5), "CTest\$1": hash(6), "CTest": hash(7), "D": hash(8), "DTest": hash(9)]
+    def resources = ["data.txt": hash(10)]
+
+    def "no classes are affected when nothing has changed"() {
+        def snapshot = new TestClasspathSnapshot(classes, resources, analysis)
+
+        expect:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses.empty
+    }
+
+    def "changed class affects its transitive dependents"() {
+        def snapshot = new TestClasspathSnapshot(classes + ["B": hash(20)], resources, analysis)
+
+        expect:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses == ["B", "BTest"] as Set
+
+        when:
+        snapshot = new TestClasspathSnapshot(classes + ["A": hash(20)], resources, analysis)
+
+        then:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses == ["A", "B", "ATest", "BTest"] as Set
+    }
+
+    def "added and removed classes are affected"() {
+        def snapshot = new TestClasspathSnapshot(classes.findAll { it.key != "BTest" } + ["ETest": hash(20)], resources, analysis)
+
+        expect:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses == ["BTest", "ETest"] as Set
+    }
+
+    def "nested classes affect their top-level class"() {
+        def snapshot = new TestClasspathSnapshot(classes + ["C": hash(20)], resources, analysis)
+
+        expect:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses == ["C", "CTest"] as Set
+
+        when:
+        snapshot = new TestClasspathSnapshot(classes + ["CTest\$1": hash(20)], resources, analysis)
+
+        then:
+        snapshot.getAffectedClassesSince(previous(classes, resources)).dependentClasses == ["CTest"] as Set
+    }
+
+    def "all classes are affected when changed class is a dependency to all"() {
+        def snapshot = new TestClasspathSnapshot(classes + ["D": hash(20)], resources, analysis)
+
+        when:
+        def affected = snapshot.getAffectedClassesSince(previous(classes, resources))
+
+        then:
+        affected.dependencyToAll
+        affected.description == "D has changed and its dependents cannot be determined"
+    }
+
+    def "all classes are affected when a resource has changed"() {
+        expect:
+        new TestClasspathSnapshot(classes, ["data.txt": hash(20)], analysis).getAffectedClassesSince(previous(classes, resources)).dependencyToAll
+        new TestClasspathSnapshot(classes, resources + ["other.txt": hash(20)], analysis).getAffectedClassesSince(previous(classes, resources)).dependencyToAll
+        new TestClasspathSnapshot(classes, [:], analysis).getAffectedClassesSince(previous(classes, resources)).dependencyToAll
+    }
+
+    private static TestClasspathSnapshotData previous(Map<String, byte[]> classes, Map<String, byte[]> resources) {
+        return new TestClasspathSnapshotData(hash(0), classes, resources)
+    }
+
+    private static byte[] hash(int value) {
+        return [value] as byte[]
+    }
+}
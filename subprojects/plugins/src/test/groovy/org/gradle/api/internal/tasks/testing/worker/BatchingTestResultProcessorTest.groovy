@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.ConcurrentTestUtil
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class BatchingTestResultProcessorTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def batches = new CopyOnWriteArrayList<TestEventBatch>()
+    def target = { TestEventBatch batch -> batches << batch } as RemoteTestResultProcessor
+    def test = Stub(TestDescriptorInternal) {
+        getId() >> "test"
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "sends a batch once it holds the maximum number of events"() {
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 3, 60000)
+
+        when:
+        processor.started(test, new TestStartEvent(1))
+        processor.output("test", new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "out"))
+
+        then:
+        batches.empty
+
+        when:
+        processor.completed("test", new TestCompleteEvent(2))
+        processor.failure("other", new RuntimeException())
+
+        then:
+        batches.size() == 1
+        batches[0].size() == 3
+
+        when:
+        processor.stop()
+
+        then:
+        batches.size() == 2
+        batches[1].size() == 1
+    }
+
+    def "sends pending events once the maximum delay has passed"() {
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 1000, 10)
+
+        when:
+        processor.started(test, new TestStartEvent(1))
+
+        then:
+        ConcurrentTestUtil.poll {
+            assert batches.size() == 1
+        }
+
+        when:
+        processor.completed("test", new TestCompleteEvent(2))
+
+        then:
+        ConcurrentTestUtil.poll {
+            assert batches.size() == 2
+        }
+
+        cleanup:
+        processor.stop()
+    }
+
+    def "replays events in the order they were received"() {
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 2, 60000)
+        def resultProcessor = Mock(TestResultProcessor)
+        def startEvent = new TestStartEvent(1)
+        def outputEvent = new DefaultTestOutputEvent(TestOutputEvent.Destination.StdErr, "err")
+        def failure = new RuntimeException()
+        def completeEvent = new TestCompleteEvent(2)
+
+        given:
+        processor.started(test, startEvent)
+        processor.output("test", outputEvent)
+        processor.failure("test", failure)
+        processor.completed("test", completeEvent)
+        processor.stop()
+
+        when:
+        batches.each { it.replayTo(resultProcessor) }
+
+        then:
+        1 * resultProcessor.started(test, startEvent)
+
+        then:
+        1 * resultProcessor.output("test", outputEvent)
+
+        then:
+        1 * resultProcessor.failure("test", failure)
+
+        then:
+        1 * resultProcessor.completed("test", completeEvent)
+        0 * resultProcessor._
+    }
+
+    def "does not send empty batches"() {
+        def processor = new BatchingTestResultProcessor(target, executorFactory, 1, 10)
+
+        when:
+        processor.started(test, new TestStartEvent(1))
+        Thread.sleep(50)
+        processor.stop()
+
+        then:
+        batches.size() == 1
+    }
+}
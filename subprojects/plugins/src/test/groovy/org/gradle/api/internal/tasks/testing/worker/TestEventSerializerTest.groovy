@@ -184,6 +184,58 @@ class TestEventSerializerTest extends SerializerSpec {
         result[0].cause.message == "cause"
     }
 
+    def "serializes TestEventBatch"() {
+        def suiteId = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def testId = new CompositeIdGenerator.CompositeId(1L, 3L)
+        def otherTestId = new CompositeIdGenerator.CompositeId(1L, 4L)
+        def batch = new TestEventBatch()
+        batch.started(new DefaultTestClassDescriptor(suiteId, "some-class"), new TestStartEvent(100L))
+        batch.started(new DefaultTestMethodDescriptor(testId, "some-class", "some-test"), new TestStartEvent(102L, suiteId))
+        batch.output(testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "hi"))
+        batch.failure(testId, new GradleException("broken"))
+        batch.completed(testId, new TestCompleteEvent(101L, TestResult.ResultType.FAILURE))
+        batch.started(new DefaultTestDescriptor(otherTestId, "some-class", "other-test"), new TestStartEvent(105L, suiteId))
+        batch.completed(otherTestId, new TestCompleteEvent(110L))
+        batch.completed(suiteId, new TestCompleteEvent(110L, null))
+        def processor = Mock(TestResultProcessor)
+
+        when:
+        def result = serialize(batch)
+
+        then:
+        result.length == 1
+        result[0] instanceof TestEventBatch
+        result[0].size() == 8
+
+        when:
+        result[0].replayTo(processor)
+
+        then:
+        1 * processor.started({ it instanceof DefaultTestClassDescriptor && it.id == suiteId && it.name == "some-class" }, { it.startTime == 100L && it.parentId == null })
+
+        then:
+        1 * processor.started({ it instanceof DefaultTestMethodDescriptor && it.id == testId && it.className == "some-class" && it.name == "some-test" }, { it.startTime == 102L && it.parentId == suiteId })
+
+        then:
+        1 * processor.output(testId, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "hi"))
+
+        then:
+        1 * processor.failure(testId, { it instanceof GradleException && it.message == "broken" })
+
+        then:
+        1 * processor.completed(testId, { it.endTime == 101L && it.resultType == TestResult.ResultType.FAILURE })
+
+        then:
+        1 * processor.started({ it.class == DefaultTestDescriptor && it.id == otherTestId && it.className == "some-class" && it.name == "other-test" }, { it.startTime == 105L && it.parentId == suiteId })
+
+        then:
+        1 * processor.completed(otherTestId, { it.endTime == 110L && it.resultType == null })
+
+        then:
+        1 * processor.completed(suiteId, { it.endTime == 110L && it.resultType == null })
+        0 * processor._
+    }
+
     def Object[] serialize(Object... source) {
         return super.serialize(source, serializer)
     }